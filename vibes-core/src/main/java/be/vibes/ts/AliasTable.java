@@ -0,0 +1,135 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Preconditions;
+import java.util.random.RandomGenerator;
+
+/**
+ * Walker's alias table (using Vose's construction) to sample an outcome
+ * between 0 and size() - 1 with a probability proportional to its weight in
+ * constant time. Outcomes with a weight of 0 are never sampled. Alias tables
+ * are immutable.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+    private final double totalWeight;
+
+    /**
+     * Creates a new alias table for the given weights.
+     *
+     * @param weights The (positive) weights of the outcomes.
+     */
+    public AliasTable(double[] weights) {
+        Preconditions.checkNotNull(weights, "Weights may not be null!");
+        int n = weights.length;
+        this.probability = new double[n];
+        this.alias = new int[n];
+        double total = 0;
+        for (double w : weights) {
+            Preconditions.checkArgument(w >= 0 && !Double.isInfinite(w), "Weights must be positive and finite, got %s!", w);
+            total += w;
+        }
+        this.totalWeight = total;
+        if (n == 0 || total <= 0) {
+            return;
+        }
+        // Scale weights so that the mean is 1
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int nbSmall = 0;
+        int nbLarge = 0;
+        int lastLarge = 0;
+        for (int i = 0; i < n; i++) {
+            if (weights[i] > weights[lastLarge]) {
+                lastLarge = i;
+            }
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[nbSmall++] = i;
+            } else {
+                large[nbLarge++] = i;
+            }
+        }
+        while (nbSmall > 0 && nbLarge > 0) {
+            int s = small[--nbSmall];
+            int l = large[--nbLarge];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            lastLarge = l;
+            if (scaled[l] < 1.0) {
+                small[nbSmall++] = l;
+            } else {
+                large[nbLarge++] = l;
+            }
+        }
+        // Remaining outcomes have a scaled weight of 1 (up to rounding errors)
+        while (nbLarge > 0) {
+            probability[large[--nbLarge]] = 1.0;
+        }
+        while (nbSmall > 0) {
+            int s = small[--nbSmall];
+            if (weights[s] > 0) {
+                probability[s] = 1.0;
+            } else {
+                alias[s] = lastLarge;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of outcomes.
+     *
+     * @return The number of outcomes.
+     */
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * Returns the sum of the weights used to build this table.
+     *
+     * @return The sum of the weights.
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Samples an outcome. The total weight of the table must be greater than
+     * 0.
+     *
+     * @param random The random generator to use.
+     * @return An outcome between 0 and size() - 1.
+     */
+    public int sample(RandomGenerator random) {
+        Preconditions.checkState(totalWeight > 0, "Cannot sample outcomes with a total weight of 0!");
+        int i = random.nextInt(probability.length);
+        return random.nextDouble() < probability[i] ? i : alias[i];
+    }
+
+}
@@ -0,0 +1,141 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.CompiledFExpression;
+import be.vibes.fexpression.FExpression;
+import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.configuration.BitSetConfiguration;
+import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.FeatureIndex;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.BitSet;
+import java.util.TreeSet;
+
+/**
+ * Immutable featured transition system stored in compressed sparse row arrays.
+ * Feature expressions are indexed by transition index and interned, so that
+ * transitions with equal feature expressions share the same (unmodifiable)
+ * instance. Feature expressions are also compiled once over the index of the
+ * features used in this FTS, allowing to evaluate them against a product
+ * without allocation (see {@link #isEnabled(int, BitSet)}). Instances are
+ * created using {@link FeaturedTransitionSystemFactory#freeze()}.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class CompactFeaturedTransitionSystem extends CompactTransitionSystem implements FeaturedTransitionSystem {
+
+    private final FExpression[] fexpressions;
+    private final FeatureIndex featureIndex;
+    private final CompiledFExpression[] guards;
+
+    CompactFeaturedTransitionSystem(FeaturedTransitionSystem fts) {
+        super(fts);
+        this.fexpressions = new FExpression[getTransitionsCount()];
+        TreeSet<String> features = new TreeSet<>();
+        for (int i = 0; i < fexpressions.length; i++) {
+            fexpressions[i] = fts.getFExpression(getTransition(i)).intern();
+            for (Feature<?> f : fexpressions[i].getFeatures()) {
+                features.add(f.getFeatureName());
+            }
+        }
+        this.featureIndex = new FeatureIndex(Lists.newArrayList(features));
+        this.guards = new CompiledFExpression[fexpressions.length];
+        for (int i = 0; i < guards.length; i++) {
+            guards[i] = fexpressions[i].compile(featureIndex);
+        }
+    }
+
+    @Override
+    public FExpression getFExpression(Transition transition) {
+        Preconditions.checkNotNull(transition, "Transition may not be null!");
+        int idx = getTransitionIndex(transition);
+        return idx < 0 ? FExpression.trueValue() : fexpressions[idx];
+    }
+
+    /**
+     * Returns the feature expression of the transition with the given index.
+     *
+     * @param index The index of the transition.
+     * @return The feature expression of the transition.
+     */
+    public FExpression getFExpression(int index) {
+        return fexpressions[index];
+    }
+
+    /**
+     * Returns the index of the features used in the feature expressions of
+     * this FTS.
+     *
+     * @return The feature index of this FTS.
+     */
+    public FeatureIndex getFeatureIndex() {
+        return featureIndex;
+    }
+
+    /**
+     * Returns the features selected in the given product as a bit set over
+     * the feature index of this FTS. Features of the product that are not
+     * used in this FTS are ignored.
+     *
+     * @param product The product.
+     * @return A new bit set with the selected features of the product.
+     */
+    public BitSet getSelectedFeatures(Configuration product) {
+        Preconditions.checkNotNull(product, "Product may not be null!");
+        if (product instanceof BitSetConfiguration conf && featureIndex.equals(conf.getIndex())) {
+            return conf.getSelected();
+        }
+        BitSet selected = new BitSet(featureIndex.size());
+        for (int i = 0; i < featureIndex.size(); i++) {
+            if (product.isSelected(featureIndex.getFeature(i))) {
+                selected.set(i);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the compiled feature expression of the transition with the
+     * given index.
+     *
+     * @param index The index of the transition.
+     * @return The compiled feature expression of the transition.
+     */
+    public CompiledFExpression getGuard(int index) {
+        return guards[index];
+    }
+
+    /**
+     * Returns true if the feature expression of the transition with the given
+     * index evaluates to true for the given selected features.
+     *
+     * @param index The index of the transition.
+     * @param selected The selected features, as returned by
+     * {@link #getSelectedFeatures(Configuration)}.
+     * @return True if the transition is enabled for the selected features.
+     */
+    public boolean isEnabled(int index, BitSet selected) {
+        return guards[index].evaluate(selected);
+    }
+
+}
@@ -0,0 +1,505 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import java.util.*;
+
+/**
+ * An immutable transition system where states and actions are densely numbered
+ * and transitions are stored in compressed sparse row (CSR) arrays. Outgoing
+ * transitions of a state are contiguous in the transitions array, incoming
+ * transitions and transitions labelled by a given action are referenced
+ * through index arrays. Instances are created using
+ * {@link TransitionSystemFactory#freeze()} and share their State, Action and
+ * Transition objects with the transition system they have been built from.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class CompactTransitionSystem implements TransitionSystem {
+
+    private final State initialState;
+
+    private final State[] states;
+    private final Map<String, Integer> stateIndex;
+
+    private final Action[] actions;
+    private final Map<String, Integer> actionIndex;
+
+    // Transitions sorted by source state, then by action
+    private final Transition[] transitions;
+    private final int[] transitionAction;
+    private final int[] transitionTarget;
+    private final int[] outOffsets;
+
+    // Indices in transitions sorted by target state
+    private final int[] inOffsets;
+    private final int[] inTransitions;
+
+    // Indices in transitions sorted by action
+    private final int[] actionOffsets;
+    private final int[] actionTransitions;
+
+    private final Map<String, AtomicProposition> propositions;
+
+    private final Map<State, AtomicProposition> labels;
+
+    CompactTransitionSystem(TransitionSystem ts) {
+        Preconditions.checkNotNull(ts, "Transition system may not be null!");
+        this.initialState = ts.getInitialState();
+        // Number states, initial state is always 0
+        this.states = new State[ts.getStatesCount()];
+        this.stateIndex = new HashMap<>(capacity(states.length));
+        states[0] = initialState;
+        stateIndex.put(initialState.getName(), 0);
+        int i = 1;
+        Iterator<State> itStates = ts.states();
+        while (itStates.hasNext()) {
+            State s = itStates.next();
+            if (!s.equals(initialState)) {
+                states[i] = s;
+                stateIndex.put(s.getName(), i);
+                i++;
+            }
+        }
+        // Number actions
+        this.actions = Iterators.toArray(ts.actions(), Action.class);
+        this.actionIndex = new HashMap<>(capacity(actions.length));
+        for (i = 0; i < actions.length; i++) {
+            actionIndex.put(actions[i].getName(), i);
+        }
+        // Outgoing transitions (CSR)
+        int nbrTransitions = ts.getTransitionsCount();
+        this.transitions = new Transition[nbrTransitions];
+        this.transitionAction = new int[nbrTransitions];
+        this.transitionTarget = new int[nbrTransitions];
+        this.outOffsets = new int[states.length + 1];
+        int k = 0;
+        for (i = 0; i < states.length; i++) {
+            outOffsets[i] = k;
+            // Outgoing transitions of a state are sorted by action
+            Transition[] outgoing = Iterators.toArray(ts.getOutgoing(states[i]), Transition.class);
+            Arrays.sort(outgoing, Comparator.comparingInt((Transition tr) -> actionIndex.get(tr.getAction().getName())));
+            for (Transition tr : outgoing) {
+                transitions[k] = tr;
+                transitionAction[k] = actionIndex.get(tr.getAction().getName());
+                transitionTarget[k] = stateIndex.get(tr.getTarget().getName());
+                k++;
+            }
+        }
+        outOffsets[states.length] = k;
+        Preconditions.checkState(k == nbrTransitions, "Transition system has %s transitions but %s outgoing transitions found!", nbrTransitions, k);
+        // Incoming transitions (CSC)
+        this.inOffsets = new int[states.length + 1];
+        this.inTransitions = new int[nbrTransitions];
+        fillIndex(transitionTarget, inOffsets, inTransitions);
+        // Transitions by actions
+        this.actionOffsets = new int[actions.length + 1];
+        this.actionTransitions = new int[nbrTransitions];
+        fillIndex(transitionAction, actionOffsets, actionTransitions);
+        // Propositions and labels
+        this.propositions = new HashMap<>();
+        this.labels = new HashMap<>();
+        Iterator<AtomicProposition> itProps = ts.atomicPropositions();
+        while (itProps.hasNext()) {
+            AtomicProposition prop = itProps.next();
+            propositions.put(prop.getName(), prop);
+        }
+        for (State s : states) {
+            AtomicProposition label = ts.getLabel(s);
+            if (label != null) {
+                labels.put(s, label);
+            }
+        }
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    /**
+     * Counting sort of the transitions indices using the given keys.
+     */
+    private static void fillIndex(int[] keys, int[] offsets, int[] index) {
+        for (int key : keys) {
+            offsets[key + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int k = 0; k < keys.length; k++) {
+            index[next[keys[k]]++] = k;
+        }
+    }
+
+    /**
+     * Returns the index of the given state in this transition system, or -1 if
+     * the state does not belong to this transition system.
+     *
+     * @param state The state.
+     * @return The index of the state, between 0 and getStatesCount() - 1, or
+     * -1.
+     */
+    public int getStateIndex(State state) {
+        Integer idx = state == null ? null : stateIndex.get(state.getName());
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Returns the state with the given index.
+     *
+     * @param index The index of the state.
+     * @return The state with the given index.
+     */
+    public State getState(int index) {
+        return states[index];
+    }
+
+    /**
+     * Returns the index of the given action in this transition system, or -1
+     * if the action does not belong to this transition system.
+     *
+     * @param action The action.
+     * @return The index of the action, between 0 and getActionsCount() - 1, or
+     * -1.
+     */
+    public int getActionIndex(Action action) {
+        Integer idx = action == null ? null : actionIndex.get(action.getName());
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Returns the action with the given index.
+     *
+     * @param index The index of the action.
+     * @return The action with the given index.
+     */
+    public Action getAction(int index) {
+        return actions[index];
+    }
+
+    /**
+     * Returns the index of the given transition in this transition system, or
+     * -1 if the transition does not belong to this transition system.
+     *
+     * @param transition The transition.
+     * @return The index of the transition, between 0 and
+     * getTransitionsCount() - 1, or -1.
+     */
+    public int getTransitionIndex(Transition transition) {
+        int k = transitionIndex(getStateIndex(transition.getSource()), getActionIndex(transition.getAction()),
+                getStateIndex(transition.getTarget()));
+        return k >= 0 && transitions[k].equals(transition) ? k : -1;
+    }
+
+    /**
+     * Returns the index of the transition with the given source, action and
+     * target indices, or -1 if there is no such transition (or if one of the
+     * indices is -1).
+     */
+    int transitionIndex(int src, int act, int trg) {
+        if (src < 0 || act < 0 || trg < 0) {
+            return -1;
+        }
+        for (int k = firstOutgoing(src, act); k < outOffsets[src + 1] && transitionAction[k] == act; k++) {
+            if (transitionTarget[k] == trg) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the transition with the given index. Outgoing transitions of a
+     * state have consecutive indices.
+     *
+     * @param index The index of the transition.
+     * @return The transition with the given index.
+     */
+    public Transition getTransition(int index) {
+        return transitions[index];
+    }
+
+    /**
+     * Returns the index of the first outgoing transition of the given state.
+     * Outgoing transitions of state i are indexed from outgoingOffset(i) to
+     * outgoingOffset(i + 1) excluded.
+     */
+    int outgoingOffset(int state) {
+        return outOffsets[state];
+    }
+
+    /**
+     * Returns the position of the first incoming transition of the given
+     * state, incoming transitions of state i are returned by
+     * incomingTransition(k) for k from incomingOffset(i) to
+     * incomingOffset(i + 1) excluded.
+     */
+    int incomingOffset(int state) {
+        return inOffsets[state];
+    }
+
+    int incomingTransition(int k) {
+        return inTransitions[k];
+    }
+
+    /**
+     * Returns the position of the first transition with the given action,
+     * transitions with action a are returned by actionTransition(k) for k
+     * from actionOffset(a) to actionOffset(a + 1) excluded.
+     */
+    int actionOffset(int action) {
+        return actionOffsets[action];
+    }
+
+    int actionTransition(int k) {
+        return actionTransitions[k];
+    }
+
+    @Override
+    public Iterator<State> states() {
+        return Iterators.forArray(states);
+    }
+
+    @Override
+    public State getState(String name) {
+        Integer idx = stateIndex.get(name);
+        return idx == null ? null : states[idx];
+    }
+
+    @Override
+    public Iterator<Action> actions() {
+        return Iterators.forArray(actions);
+    }
+
+    @Override
+    public Action getAction(String name) {
+        Integer idx = actionIndex.get(name);
+        return idx == null ? null : actions[idx];
+    }
+
+    @Override
+    public Iterator<Transition> transitions() {
+        return Iterators.forArray(transitions);
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(State source, Action action, State target) {
+        int k = transitionIndex(getStateIndex(source), getActionIndex(action), getStateIndex(target));
+        return k < 0 ? Collections.emptyIterator() : Iterators.singletonIterator(transitions[k]);
+    }
+
+    /**
+     * Binary search of the first outgoing transition of the given state with
+     * an action index greater or equal to the given action index. Outgoing
+     * transitions of state i with action a are indexed from
+     * firstOutgoing(i, a) to firstOutgoing(i, a + 1) excluded.
+     */
+    int firstOutgoing(int src, int act) {
+        int low = outOffsets[src];
+        int high = outOffsets[src + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transitionAction[mid] < act) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(String source, String action, String target) {
+        return getTransitions(getState(source), getAction(action), getState(target));
+    }
+
+    @Override
+    public Iterator<Transition> getOutgoing(State source) {
+        int src = getStateIndex(source);
+        if (src < 0) {
+            return Collections.emptyIterator();
+        }
+        return new SliceIterator(outOffsets[src], outOffsets[src + 1]);
+    }
+
+    @Override
+    public int getOutgoingCount(State source) {
+        int src = getStateIndex(source);
+        return src < 0 ? 0 : outOffsets[src + 1] - outOffsets[src];
+    }
+
+    /**
+     * Returns the index-th outgoing transition of the given state, without
+     * iterating over the previous ones.
+     *
+     * @param source The source state.
+     * @param index The index of the transition, between 0 and
+     * getOutgoingCount(source) - 1.
+     * @return The index-th outgoing transition of the state.
+     */
+    public Transition getOutgoing(State source, int index) {
+        int src = getStateIndex(source);
+        Preconditions.checkArgument(src >= 0, "State %s does not belong to this transition system!", source);
+        Preconditions.checkElementIndex(index, outOffsets[src + 1] - outOffsets[src]);
+        return transitions[outOffsets[src] + index];
+    }
+
+    @Override
+    public Iterator<Transition> getOutgoing(State source, Action action) {
+        int src = getStateIndex(source);
+        int act = getActionIndex(action);
+        if (src < 0 || act < 0) {
+            return Collections.emptyIterator();
+        }
+        int from = firstOutgoing(src, act);
+        int to = from;
+        while (to < outOffsets[src + 1] && transitionAction[to] == act) {
+            to++;
+        }
+        return new SliceIterator(from, to);
+    }
+
+    @Override
+    public Iterator<Transition> getIncoming(State target) {
+        int trg = getStateIndex(target);
+        if (trg < 0) {
+            return Collections.emptyIterator();
+        }
+        return new IndexedIterator(inTransitions, inOffsets[trg], inOffsets[trg + 1]);
+    }
+
+    @Override
+    public int getIncomingCount(State target) {
+        int trg = getStateIndex(target);
+        return trg < 0 ? 0 : inOffsets[trg + 1] - inOffsets[trg];
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(Action action) {
+        int act = getActionIndex(action);
+        if (act < 0) {
+            return Collections.emptyIterator();
+        }
+        return new IndexedIterator(actionTransitions, actionOffsets[act], actionOffsets[act + 1]);
+    }
+
+    @Override
+    public Iterator<AtomicProposition> atomicPropositions() {
+        return propositions.values().iterator();
+    }
+
+    @Override
+    public AtomicProposition getAtomicProposition(String name) {
+        return propositions.get(name);
+    }
+
+    @Override
+    public AtomicProposition getLabel(State state) {
+        return labels.get(state);
+    }
+
+    @Override
+    public State getInitialState() {
+        return initialState;
+    }
+
+    @Override
+    public int getTransitionsCount() {
+        return transitions.length;
+    }
+
+    @Override
+    public int getActionsCount() {
+        return actions.length;
+    }
+
+    @Override
+    public int getStatesCount() {
+        return states.length;
+    }
+
+    @Override
+    public int getPropositionsCount() {
+        return propositions.size();
+    }
+
+    /**
+     * Iterates over transitions[from..to[.
+     */
+    private class SliceIterator implements Iterator<Transition> {
+
+        private int next;
+        private final int to;
+
+        SliceIterator(int from, int to) {
+            this.next = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public Transition next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
+            }
+            return transitions[next++];
+        }
+
+    }
+
+    /**
+     * Iterates over transitions[index[from..to[].
+     */
+    private class IndexedIterator implements Iterator<Transition> {
+
+        private final int[] index;
+        private int next;
+        private final int to;
+
+        IndexedIterator(int[] index, int from, int to) {
+            this.index = index;
+            this.next = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public Transition next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
+            }
+            return transitions[index[next++]];
+        }
+
+    }
+
+}
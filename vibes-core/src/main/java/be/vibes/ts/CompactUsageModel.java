@@ -0,0 +1,100 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Usage model stored in compressed sparse row arrays. The structure of the
+ * model is immutable, probabilities are indexed by transition index and may
+ * still be updated. Outgoing transitions are sampled using alias tables
+ * built on first use and invalidated when a probability is updated.
+ * Instances are created using
+ * {@link UsageModelFactory#freeze()}.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class CompactUsageModel extends CompactTransitionSystem implements UsageModel {
+
+    private final double[] proba;
+    // Alias tables indexed by source state, null if not yet built
+    private final AliasTable[] samplers;
+
+    CompactUsageModel(UsageModel um) {
+        super(um);
+        this.samplers = new AliasTable[getStatesCount()];
+        this.proba = new double[getTransitionsCount()];
+        for (int i = 0; i < proba.length; i++) {
+            proba[i] = um.getProbability(getTransition(i));
+        }
+    }
+
+    @Override
+    public double getProbability(Transition transition) {
+        Preconditions.checkNotNull(transition, "Transition may not be null!");
+        int idx = getTransitionIndex(transition);
+        return idx < 0 ? 0.0 : proba[idx];
+    }
+
+    /**
+     * Returns the probability of the transition with the given index.
+     *
+     * @param index The index of the transition.
+     * @return The probability of the transition.
+     */
+    public double getProbability(int index) {
+        return proba[index];
+    }
+
+    @Override
+    public void setProbability(Transition transition, double proba) {
+        Preconditions.checkNotNull(transition, "Transition may not be null!");
+        Preconditions.checkArgument(proba >= 0 && proba <= 1.0, "Proba must have a value between 0 and 1!");
+        int idx = getTransitionIndex(transition);
+        Preconditions.checkArgument(idx >= 0, "Transition does not belong to this usage model!");
+        this.proba[idx] = proba;
+        this.samplers[getStateIndex(transition.getSource())] = null;
+    }
+
+    @Override
+    public Transition getRandomOutgoing(State state, RandomGenerator random) {
+        int src = getStateIndex(state);
+        Preconditions.checkArgument(src >= 0, "State %s does not belong to this usage model!", state);
+        int from = outgoingOffset(src);
+        int to = outgoingOffset(src + 1);
+        if (from == to) {
+            return null;
+        }
+        // Alias tables are immutable, concurrent builds are harmless
+        AliasTable table = samplers[src];
+        if (table == null) {
+            table = new AliasTable(Arrays.copyOfRange(proba, from, to));
+            samplers[src] = table;
+        }
+        if (table.getTotalWeight() <= 0) {
+            return getTransition(to - 1);
+        }
+        return getTransition(from + table.sample(random));
+    }
+
+}
@@ -52,6 +52,7 @@ public class DefaultFeaturedTransitionSystem extends DefaultTransitionSystem imp
         Preconditions.checkNotNull(transition, "Transition may not be null!");
         Preconditions.checkNotNull(fexpr, "Fexpr may not be null!");
         this.fexpression.put(transition, fexpr);
+        modified();
     }
     
 }
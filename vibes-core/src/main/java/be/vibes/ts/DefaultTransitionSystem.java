@@ -39,11 +39,16 @@ public class DefaultTransitionSystem implements TransitionSystem {
 
     private final Set<Transition> allTransitions;
     private final Table<State, State, Set<Transition>> transitions;
+    private final Table<State, Action, List<Transition>> outgoingByAction;
+    private final ListMultimap<Action, Transition> transitionsByAction;
 
     private final Map<String, AtomicProposition> propositions;
 
     private final Map<State, AtomicProposition> labels;
 
+    // Incremented each time this transition system is modified
+    private int modifications = 0;
+
     DefaultTransitionSystem(String initialState) {
         Preconditions.checkNotNull(initialState, "InitialState may not be null!");
         this.initialState = new State(initialState);
@@ -52,6 +57,8 @@ public class DefaultTransitionSystem implements TransitionSystem {
         this.actions = new HashMap<>();
         this.allTransitions = new HashSet<>();
         this.transitions = HashBasedTable.create();
+        this.outgoingByAction = HashBasedTable.create();
+        this.transitionsByAction = ArrayListMultimap.create();
         this.propositions = new HashMap<>();
         this.labels = new HashMap<>();
     }
@@ -83,13 +90,16 @@ public class DefaultTransitionSystem implements TransitionSystem {
 
     @Override
     public Iterator<Transition> getTransitions(State source, Action action, State target) {
-        Set<Transition> set = transitions.row(source).get(target);
-        if (set == null) {
-            set = new HashSet<>();
+        List<Transition> list = outgoingByAction.get(source, action);
+        if (list == null) {
+            return Collections.emptyIterator();
+        }
+        for (Transition t : list) {
+            if (t.getTarget().equals(target)) {
+                return Iterators.singletonIterator(t);
+            }
         }
-        return set.stream()
-                .filter((t) -> t.getAction().equals(action))
-                .iterator();
+        return Collections.emptyIterator();
     }
 
     @Override
@@ -105,6 +115,12 @@ public class DefaultTransitionSystem implements TransitionSystem {
         return Iterables.concat(transitions.row(source).values()).iterator();
     }
 
+    @Override
+    public Iterator<Transition> getOutgoing(State source, Action action) {
+        List<Transition> list = outgoingByAction.get(source, action);
+        return list == null ? Collections.emptyIterator() : Iterators.unmodifiableIterator(list.iterator());
+    }
+
     @Override
     public Iterator<Transition> getIncoming(State target) {
         return Iterables.concat(transitions.column(target).values()).iterator();
@@ -112,9 +128,7 @@ public class DefaultTransitionSystem implements TransitionSystem {
 
     @Override
     public Iterator<Transition> getTransitions(Action action) {
-        return allTransitions.stream()
-                .filter((t) -> t.getAction().equals(action))
-                .iterator();
+        return Iterators.unmodifiableIterator(transitionsByAction.get(action).iterator());
     }
 
     @Override
@@ -142,6 +156,7 @@ public class DefaultTransitionSystem implements TransitionSystem {
         if (state == null) {
             state = new State(stateName);
             this.states.put(stateName, state);
+            modified();
         }
         return state;
     }
@@ -151,6 +166,7 @@ public class DefaultTransitionSystem implements TransitionSystem {
         if (action == null) {
             action = new Action(actionName);
             this.actions.put(actionName, action);
+            modified();
         }
         return action;
     }
@@ -172,7 +188,15 @@ public class DefaultTransitionSystem implements TransitionSystem {
             }
             transition = new Transition(source, action, target);
             transitions.get(source, target).add(transition);
+            List<Transition> outgoing = outgoingByAction.get(source, action);
+            if (outgoing == null) {
+                outgoing = new ArrayList<>();
+                outgoingByAction.put(source, action, outgoing);
+            }
+            outgoing.add(transition);
+            transitionsByAction.put(action, transition);
             allTransitions.add(transition);
+            modified();
         }
         return transition;
     }
@@ -182,6 +206,7 @@ public class DefaultTransitionSystem implements TransitionSystem {
         if(prop == null){
             prop = new AtomicProposition(name);
             this.propositions.put(name, prop);
+            modified();
         }
         return prop;
     }
@@ -192,6 +217,19 @@ public class DefaultTransitionSystem implements TransitionSystem {
         Preconditions.checkArgument(states.containsValue(state), "State does not belong to this transition system!");
         Preconditions.checkArgument(propositions.containsValue(prop), "Prop does not belong to this transition system!");
         this.labels.put(state, prop);
+        modified();
+    }
+
+    void modified() {
+        modifications++;
+    }
+
+    /**
+     * Returns the number of modifications of this transition system, used to
+     * detect that copies of the transition system are outdated.
+     */
+    int getModificationsCount() {
+        return modifications;
     }
 
     @Override
@@ -21,8 +21,11 @@ package be.vibes.ts;
  */
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
 
 /**
  *
@@ -31,10 +34,20 @@ import java.util.Map;
 public class DefaultUsageModel extends DefaultTransitionSystem implements UsageModel{
     
     private final Map<Transition, Double> proba;
+    // Alias tables of the outgoing transitions, invalidated on modification
+    // (concurrent as random selection may run in parallel)
+    private final Map<State, OutgoingSampler> samplers;
 
     public DefaultUsageModel(String initialState) {
         super(initialState);
         this.proba = new HashMap<>();
+        this.samplers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    Transition addTransition(State source, Action action, State target) {
+        samplers.remove(source);
+        return super.addTransition(source, action, target);
     }
 
     @Override
@@ -52,6 +65,41 @@ public class DefaultUsageModel extends DefaultTransitionSystem implements UsageM
         Preconditions.checkNotNull(transition, "Transition may not be null!");
         Preconditions.checkArgument(proba >= 0 && proba <= 1.0, "Proba must have a value between 0 and 1!");
         this.proba.put(transition, proba);
+        this.samplers.remove(transition.getSource());
+    }
+
+    @Override
+    public Transition getRandomOutgoing(State state, RandomGenerator random) {
+        Preconditions.checkNotNull(state, "State may not be null!");
+        return samplers.computeIfAbsent(state, (s) -> {
+            Transition[] outgoing = Iterators.toArray(getOutgoing(s), Transition.class);
+            double[] weights = new double[outgoing.length];
+            for (int i = 0; i < outgoing.length; i++) {
+                weights[i] = getProbability(outgoing[i]);
+            }
+            return new OutgoingSampler(outgoing, new AliasTable(weights));
+        }).sample(random);
+    }
+
+    private static final class OutgoingSampler {
+
+        private final Transition[] outgoing;
+        private final AliasTable table;
+
+        OutgoingSampler(Transition[] outgoing, AliasTable table) {
+            this.outgoing = outgoing;
+            this.table = table;
+        }
+
+        Transition sample(RandomGenerator random) {
+            if (outgoing.length == 0) {
+                return null;
+            } else if (table.getTotalWeight() <= 0) {
+                return outgoing[outgoing.length - 1];
+            }
+            return outgoing[table.sample(random)];
+        }
+
     }
     
 }
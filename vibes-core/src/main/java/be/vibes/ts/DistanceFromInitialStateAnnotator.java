@@ -75,7 +75,7 @@ public class DistanceFromInitialStateAnnotator implements Annotator {
 
     @Override
     public boolean isAnnotated(TransitionSystem ts) {
-        return ts.getInitialState().getProperty(PROP_STATE_DFROM, false);
+        return ts.getInitialState().getProperty(PROP_STATE_DFROM, -1) >= 0;
     }
 
 }
@@ -76,7 +76,7 @@ public class DistanceToInitialStateAnnotator implements Annotator {
 
     @Override
     public boolean isAnnotated(TransitionSystem ts) {
-        return ts.getInitialState().getProperty(PROP_STATE_DTO, false);
+        return ts.getInitialState().getProperty(PROP_STATE_DTO, -1) >= 0;
     }
 
 }
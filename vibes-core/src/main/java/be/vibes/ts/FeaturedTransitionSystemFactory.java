@@ -50,5 +50,10 @@ public class FeaturedTransitionSystemFactory extends TransitionSystemFactory{
     public FeaturedTransitionSystem build() {
         return (DefaultFeaturedTransitionSystem) super.build();
     }
+
+    @Override
+    public CompactFeaturedTransitionSystem freeze() {
+        return new CompactFeaturedTransitionSystem((DefaultFeaturedTransitionSystem) ts);
+    }
     
 }
@@ -0,0 +1,322 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.configuration.Configuration;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A read-only view of the projection of a {@link FeaturedTransitionSystem}
+ * for a given product. Contrary to {@link SimpleProjection}, no transition
+ * system is built: transitions of the FTS are filtered on the fly and the
+ * result of the evaluation of their feature expression is cached on first
+ * use (in bit sets indexed by transition for a
+ * {@link CompactFeaturedTransitionSystem}). As in {@link SimpleProjection},
+ * only the initial state and the states and actions appearing in at least
+ * one enabled transition belong to the view. States, actions and
+ * transitions are the objects of the FTS, and labels of the states are the
+ * labels in the FTS.
+ * <p>
+ * The FTS should not be modified while the view is used. This class is not
+ * thread-safe.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class ProjectedTransitionSystem implements TransitionSystem {
+
+    private final FeaturedTransitionSystem fts;
+    private final Configuration product;
+
+    // Used if the FTS is a CompactFeaturedTransitionSystem
+    private final CompactFeaturedTransitionSystem compact;
+    private final BitSet selected;
+    private final BitSet evaluated;
+    private final BitSet enabled;
+
+    // Used otherwise
+    private final Map<Transition, Boolean> cache;
+
+    public ProjectedTransitionSystem(FeaturedTransitionSystem fts, Configuration product) {
+        Preconditions.checkNotNull(fts, "FTS may not be null!");
+        Preconditions.checkNotNull(product, "Product may not be null!");
+        this.fts = fts;
+        this.product = product;
+        if (fts instanceof CompactFeaturedTransitionSystem c) {
+            this.compact = c;
+            this.selected = c.getSelectedFeatures(product);
+            this.evaluated = new BitSet(c.getTransitionsCount());
+            this.enabled = new BitSet(c.getTransitionsCount());
+            this.cache = null;
+        } else {
+            this.compact = null;
+            this.selected = null;
+            this.evaluated = null;
+            this.enabled = null;
+            this.cache = new HashMap<>();
+        }
+    }
+
+    public FeaturedTransitionSystem getFeaturedTransitionSystem() {
+        return fts;
+    }
+
+    public Configuration getProduct() {
+        return product;
+    }
+
+    /**
+     * Returns true if the feature expression of the given transition of the
+     * FTS evaluates to true for the product of this view.
+     *
+     * @param transition A transition of the FTS.
+     * @return True if the transition belongs to this view.
+     */
+    public boolean isEnabled(Transition transition) {
+        if (compact != null) {
+            int idx = compact.getTransitionIndex(transition);
+            return idx >= 0 && isEnabled(idx);
+        }
+        return cache.computeIfAbsent(transition, (tr) -> fts.getFExpression(tr).evaluate(product));
+    }
+
+    private boolean isEnabled(int idx) {
+        if (!evaluated.get(idx)) {
+            evaluated.set(idx);
+            if (compact.isEnabled(idx, selected)) {
+                enabled.set(idx);
+            }
+        }
+        return enabled.get(idx);
+    }
+
+    private boolean contains(State state) {
+        if (state == null || fts.getState(state.getName()) == null) {
+            return false;
+        }
+        return state.equals(fts.getInitialState())
+                || getOutgoing(state).hasNext()
+                || getIncoming(state).hasNext();
+    }
+
+    private boolean contains(Action action) {
+        return action != null && getTransitions(action).hasNext();
+    }
+
+    @Override
+    public Iterator<State> states() {
+        return Iterators.filter(fts.states(), this::contains);
+    }
+
+    @Override
+    public State getState(String name) {
+        State state = fts.getState(name);
+        return contains(state) ? state : null;
+    }
+
+    @Override
+    public Iterator<Action> actions() {
+        return Iterators.filter(fts.actions(), this::contains);
+    }
+
+    @Override
+    public Action getAction(String name) {
+        Action action = fts.getAction(name);
+        return contains(action) ? action : null;
+    }
+
+    @Override
+    public Iterator<Transition> transitions() {
+        if (compact != null) {
+            return new IndexIterator(0, compact.getTransitionsCount()) {
+                @Override
+                int transition(int k) {
+                    return k;
+                }
+            };
+        }
+        return Iterators.filter(fts.transitions(), this::isEnabled);
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(State source, Action action, State target) {
+        if (compact != null) {
+            int idx = compact.transitionIndex(compact.getStateIndex(source), compact.getActionIndex(action),
+                    compact.getStateIndex(target));
+            return idx >= 0 && isEnabled(idx) ? Iterators.singletonIterator(compact.getTransition(idx))
+                    : Collections.emptyIterator();
+        }
+        return Iterators.filter(fts.getTransitions(source, action, target), this::isEnabled);
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(String source, String action, String target) {
+        if (compact != null) {
+            return getTransitions(compact.getState(source), compact.getAction(action), compact.getState(target));
+        }
+        return Iterators.filter(fts.getTransitions(source, action, target), this::isEnabled);
+    }
+
+    @Override
+    public Iterator<Transition> getOutgoing(State source) {
+        int src = compact == null ? -1 : compact.getStateIndex(source);
+        if (src >= 0) {
+            return new IndexIterator(compact.outgoingOffset(src), compact.outgoingOffset(src + 1)) {
+                @Override
+                int transition(int k) {
+                    return k;
+                }
+            };
+        }
+        return Iterators.filter(fts.getOutgoing(source), this::isEnabled);
+    }
+
+    @Override
+    public int getOutgoingCount(State source) {
+        return Iterators.size(getOutgoing(source));
+    }
+
+    @Override
+    public Iterator<Transition> getOutgoing(State source, Action action) {
+        int src = compact == null ? -1 : compact.getStateIndex(source);
+        int act = compact == null ? -1 : compact.getActionIndex(action);
+        if (src >= 0 && act >= 0) {
+            return new IndexIterator(compact.firstOutgoing(src, act), compact.firstOutgoing(src, act + 1)) {
+                @Override
+                int transition(int k) {
+                    return k;
+                }
+            };
+        } else if (compact != null) {
+            return Collections.emptyIterator();
+        }
+        return Iterators.filter(fts.getOutgoing(source, action), this::isEnabled);
+    }
+
+    @Override
+    public Iterator<Transition> getIncoming(State target) {
+        int trg = compact == null ? -1 : compact.getStateIndex(target);
+        if (trg >= 0) {
+            return new IndexIterator(compact.incomingOffset(trg), compact.incomingOffset(trg + 1)) {
+                @Override
+                int transition(int k) {
+                    return compact.incomingTransition(k);
+                }
+            };
+        }
+        return Iterators.filter(fts.getIncoming(target), this::isEnabled);
+    }
+
+    @Override
+    public int getIncomingCount(State target) {
+        return Iterators.size(getIncoming(target));
+    }
+
+    @Override
+    public Iterator<Transition> getTransitions(Action action) {
+        int act = compact == null ? -1 : compact.getActionIndex(action);
+        if (act >= 0) {
+            return new IndexIterator(compact.actionOffset(act), compact.actionOffset(act + 1)) {
+                @Override
+                int transition(int k) {
+                    return compact.actionTransition(k);
+                }
+            };
+        }
+        return Iterators.filter(fts.getTransitions(action), this::isEnabled);
+    }
+
+    @Override
+    public Iterator<AtomicProposition> atomicPropositions() {
+        return fts.atomicPropositions();
+    }
+
+    @Override
+    public AtomicProposition getAtomicProposition(String name) {
+        return fts.getAtomicProposition(name);
+    }
+
+    @Override
+    public AtomicProposition getLabel(State state) {
+        return contains(state) ? fts.getLabel(state) : null;
+    }
+
+    @Override
+    public State getInitialState() {
+        return fts.getInitialState();
+    }
+
+    @Override
+    public int getTransitionsCount() {
+        return Iterators.size(transitions());
+    }
+
+    @Override
+    public int getActionsCount() {
+        return Iterators.size(actions());
+    }
+
+    @Override
+    public int getStatesCount() {
+        return Iterators.size(states());
+    }
+
+    @Override
+    public int getPropositionsCount() {
+        return fts.getPropositionsCount();
+    }
+
+    /**
+     * Iterates over the enabled transitions of a compact FTS with indices
+     * transition(from) to transition(to - 1).
+     */
+    private abstract class IndexIterator extends AbstractIterator<Transition> {
+
+        private int next;
+        private final int to;
+
+        IndexIterator(int from, int to) {
+            this.next = from;
+            this.to = to;
+        }
+
+        abstract int transition(int k);
+
+        @Override
+        protected Transition computeNext() {
+            while (next < to) {
+                int idx = transition(next++);
+                if (isEnabled(idx)) {
+                    return compact.getTransition(idx);
+                }
+            }
+            return endOfData();
+        }
+
+    }
+
+}
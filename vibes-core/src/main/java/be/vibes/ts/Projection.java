@@ -22,6 +22,8 @@ package be.vibes.ts;
 
 import be.vibes.fexpression.configuration.Configuration;
 import be.vibes.ts.exception.UnresolvedFExpression;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class implementing this interface allow to project a
@@ -46,4 +48,24 @@ public interface Projection {
     public TransitionSystem project(FeaturedTransitionSystem fts, Configuration product)
             throws UnresolvedFExpression;
 
+    /**
+     * This method performs a total projection of the FTS for each of the
+     * given products. By default, products are projected one after the other.
+     *
+     * @param fts The FTS to project.
+     * @param products The configurations to use for projection.
+     * @return A list of new TS, the i-th TS being the projection of the FTS
+     * using the i-th product.
+     * @throws UnresolvedFExpression If an fexpression can not be resolved using
+     * one of the given configurations.
+     */
+    public default List<TransitionSystem> project(FeaturedTransitionSystem fts, List<? extends Configuration> products)
+            throws UnresolvedFExpression {
+        List<TransitionSystem> projections = new ArrayList<>(products.size());
+        for (Configuration product : products) {
+            projections.add(project(fts, product));
+        }
+        return projections;
+    }
+
 }
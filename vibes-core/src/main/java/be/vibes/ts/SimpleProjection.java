@@ -20,9 +20,15 @@ package be.vibes.ts;
  * #L%
  */
 
-import be.vibes.fexpression.FExpression;
 import be.vibes.fexpression.configuration.Configuration;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * This class implements a simple projection operator. For each transition, if
@@ -39,18 +45,27 @@ import java.util.Iterator;
  */
 public class SimpleProjection implements Projection {
 
+    private static final int PARALLEL_THRESHOLD = 4 * Long.SIZE;
+
     private static SimpleProjection instance = null;
 
     public static SimpleProjection getInstance() {
         return instance == null ? instance = new SimpleProjection() : instance;
     }
 
+    // Compact copies of the (non-compact) FTS used for batch projections,
+    // with the modifications count of the FTS when the copy has been built
+    private final Map<DefaultFeaturedTransitionSystem, CompactCopy> compactCopies = new MapMaker().weakKeys().makeMap();
+
     protected SimpleProjection() {
     }
 
     @Override
     public TransitionSystem project(FeaturedTransitionSystem fts,
             Configuration product) {
+        if (fts instanceof CompactFeaturedTransitionSystem compact) {
+            return project(compact, product);
+        }
         TransitionSystemFactory factory = new TransitionSystemFactory(fts.getInitialState().getName());
         Iterator<State> it = fts.states();
         while (it.hasNext()) {
@@ -58,19 +73,130 @@ public class SimpleProjection implements Projection {
             Iterator<Transition> itTr = fts.getOutgoing(s);
             while (itTr.hasNext()) {
                 Transition tr = itTr.next();
-                FExpression expr = fts.getFExpression(tr).assign(product);
-                if (expr.isTrue()) {
-                    String source = tr.getSource().getName();
-                    String action = tr.getAction().getName();
-                    String target = tr.getTarget().getName();
-                    factory.addState(source);
-                    factory.addAction(action);
-                    factory.addState(target);
-                    factory.addTransition(source, action, target);
+                if (fts.getFExpression(tr).evaluate(product)) {
+                    addTransition(factory, tr);
                 }
             }
         }
         return factory.build();
     }
 
+    /**
+     * Projects the given compact FTS using its compiled feature expressions.
+     * The product is translated once to a bit set over the feature index of
+     * the FTS, evaluating the guards does not allocate any memory.
+     */
+    private TransitionSystem project(CompactFeaturedTransitionSystem fts,
+            Configuration product) {
+        TransitionSystemFactory factory = new TransitionSystemFactory(fts.getInitialState().getName());
+        BitSet selected = fts.getSelectedFeatures(product);
+        for (int i = 0; i < fts.getTransitionsCount(); i++) {
+            if (fts.isEnabled(i, selected)) {
+                addTransition(factory, fts.getTransition(i));
+            }
+        }
+        return factory.build();
+    }
+
+    /**
+     * Projects the FTS for all the given products in a single pass over its
+     * transitions. Products are grouped by blocks of 64, the guard of each
+     * transition is evaluated for a whole block at once (one bit per
+     * product). Large batches are evaluated and built in parallel. If the
+     * given FTS is not a {@link CompactFeaturedTransitionSystem}, a compact
+     * copy is built first and reused by the next calls until the FTS is
+     * modified.
+     *
+     * @param fts The FTS to project.
+     * @param products The configurations to use for projection.
+     * @return A list of new TS, the i-th TS being the projection of the FTS
+     * using the i-th product.
+     */
+    @Override
+    public List<TransitionSystem> project(FeaturedTransitionSystem fts,
+            List<? extends Configuration> products) {
+        Preconditions.checkNotNull(fts, "FTS may not be null!");
+        Preconditions.checkNotNull(products, "Products may not be null!");
+        CompactFeaturedTransitionSystem compact = getCompact(fts);
+        int nbBlocks = (products.size() + Long.SIZE - 1) / Long.SIZE;
+        boolean parallel = products.size() >= PARALLEL_THRESHOLD;
+        // enabled[b][t] gives the products of block b for which transition t is enabled
+        long[][] enabled = new long[nbBlocks][];
+        IntStream blocks = IntStream.range(0, nbBlocks);
+        (parallel ? blocks.parallel() : blocks).forEach((b) -> enabled[b] = evaluateBlock(compact, products, b));
+        IntStream indices = IntStream.range(0, products.size());
+        TransitionSystem[] projections = new TransitionSystem[products.size()];
+        (parallel ? indices.parallel() : indices).forEach((p) -> {
+            long[] block = enabled[p / Long.SIZE];
+            long bit = 1L << (p % Long.SIZE);
+            TransitionSystemFactory factory = new TransitionSystemFactory(compact.getInitialState().getName());
+            for (int i = 0; i < block.length; i++) {
+                if ((block[i] & bit) != 0) {
+                    addTransition(factory, compact.getTransition(i));
+                }
+            }
+            projections[p] = factory.build();
+        });
+        return Arrays.asList(projections);
+    }
+
+    /**
+     * Returns the given FTS if it is compact, or a compact copy of it.
+     */
+    CompactFeaturedTransitionSystem getCompact(FeaturedTransitionSystem fts) {
+        if (fts instanceof CompactFeaturedTransitionSystem compact) {
+            return compact;
+        } else if (fts instanceof DefaultFeaturedTransitionSystem def) {
+            int modifications = def.getModificationsCount();
+            CompactCopy copy = compactCopies.get(def);
+            if (copy == null || copy.modifications != modifications) {
+                copy = new CompactCopy(new CompactFeaturedTransitionSystem(def), modifications);
+                compactCopies.put(def, copy);
+            }
+            return copy.compact;
+        }
+        // Modifications of other implementations can not be detected
+        return new CompactFeaturedTransitionSystem(fts);
+    }
+
+    private static class CompactCopy {
+
+        private final CompactFeaturedTransitionSystem compact;
+        private final int modifications;
+
+        CompactCopy(CompactFeaturedTransitionSystem compact, int modifications) {
+            this.compact = compact;
+            this.modifications = modifications;
+        }
+
+    }
+
+    private long[] evaluateBlock(CompactFeaturedTransitionSystem fts,
+            List<? extends Configuration> products, int block) {
+        long[] features = new long[fts.getFeatureIndex().size()];
+        int from = block * Long.SIZE;
+        int to = Math.min(products.size(), from + Long.SIZE);
+        for (int p = from; p < to; p++) {
+            BitSet selected = fts.getSelectedFeatures(products.get(p));
+            for (int f = selected.nextSetBit(0); f >= 0; f = selected.nextSetBit(f + 1)) {
+                features[f] |= 1L << (p - from);
+            }
+        }
+        long[] enabled = new long[fts.getTransitionsCount()];
+        for (int i = 0; i < enabled.length; i++) {
+            enabled[i] = fts.getGuard(i).evaluate(features);
+        }
+        return enabled;
+    }
+
+    private void addTransition(TransitionSystemFactory factory, Transition tr) {
+        String source = tr.getSource().getName();
+        String action = tr.getAction().getName();
+        String target = tr.getTarget().getName();
+        factory.addState(source);
+        factory.addAction(action);
+        factory.addState(target);
+        factory.addTransition(source, action, target);
+    }
+
 }
@@ -20,7 +20,6 @@ package be.vibes.ts;
  * #L%
  */
 
-import be.vibes.ts.exception.TransitionSystenExecutionException;
 import be.vibes.ts.execution.Execution;
 
 /**
@@ -40,15 +39,14 @@ public class TestCase extends Execution {
         return id;
     }
 
+    private TestCase(TestCase testCase) {
+        super(testCase);
+        this.id = testCase.id;
+    }
+
     @Override
     public Execution copy() {
-        TestCase copy = new TestCase(getId());
-        try {
-            copy.enqueueAll(this);
-        } catch (TransitionSystenExecutionException ex) {
-            throw new IllegalStateException("Copy of an inconsistent TestCase!", ex);
-        }
-        return copy;
+        return new TestCase(this);
     }
     
 }
@@ -49,6 +49,16 @@ public interface TransitionSystem {
     public Iterator<Transition> getOutgoing(State source);
     
     public int getOutgoingCount(State source);
+
+    /**
+     * Returns the outgoing transitions of the given source state labelled with
+     * the given action.
+     *
+     * @param source The source state of the transitions.
+     * @param action The action of the transitions.
+     * @return An iterator over the transitions (source, action, *).
+     */
+    public Iterator<Transition> getOutgoing(State source, Action action);
     
     public Iterator<Transition> getIncoming(State target);
     
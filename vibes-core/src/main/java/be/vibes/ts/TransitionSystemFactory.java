@@ -83,6 +83,18 @@ public class TransitionSystemFactory {
         return ts;
     }
     
+    /**
+     * Returns an immutable copy of the transition system built so far, where
+     * states, actions and transitions are stored in compact integer indexed
+     * arrays. The factory may still be used afterwards, later modifications
+     * are not reflected in the frozen transition system.
+     *
+     * @return A compact copy of the transition system.
+     */
+    public CompactTransitionSystem freeze(){
+        return new CompactTransitionSystem(ts);
+    }
+    
     public void validate(){
         // TODO Implement checks for deterministic LTS, connected LTS, and other well formed rules
         throw new UnsupportedOperationException("Not implemented yet!");
@@ -20,6 +20,9 @@ package be.vibes.ts;
  * #L%
  */
 
+import java.util.Iterator;
+import java.util.random.RandomGenerator;
+
 /**
  *
  * @author Xavier Devroey - xavier.devroey@gmail.com
@@ -29,5 +32,34 @@ public interface UsageModel extends TransitionSystem{
     public double getProbability(Transition transition);
     
     public void setProbability(Transition transition, double proba);
+
+    /**
+     * Returns a random outgoing transition of the given state, selected with
+     * a probability proportional to its probability in this usage model. If
+     * all the outgoing transitions have a probability of 0, the last outgoing
+     * transition is returned. The default implementation scans the outgoing
+     * transitions, implementations may rely on precomputed alias tables.
+     *
+     * @param state The source state.
+     * @param random The random generator to use.
+     * @return A random outgoing transition, or null if the state has no
+     * outgoing transition.
+     */
+    public default Transition getRandomOutgoing(State state, RandomGenerator random) {
+        double total = 0;
+        Iterator<Transition> it = getOutgoing(state);
+        while (it.hasNext()) {
+            total += getProbability(it.next());
+        }
+        double randomNbr = random.nextDouble() * total;
+        double sum = 0;
+        Transition tr = null;
+        it = getOutgoing(state);
+        while (it.hasNext() && randomNbr >= sum) {
+            tr = it.next();
+            sum = sum + getProbability(tr);
+        }
+        return tr;
+    }
     
 }
@@ -48,5 +48,10 @@ public class UsageModelFactory extends TransitionSystemFactory{
     public DefaultUsageModel build() {
         return (DefaultUsageModel) super.build();
     }
+
+    @Override
+    public CompactUsageModel freeze() {
+        return new CompactUsageModel((DefaultUsageModel) ts);
+    }
     
 }
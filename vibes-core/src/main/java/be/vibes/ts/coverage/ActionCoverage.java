@@ -27,6 +27,8 @@ import be.vibes.ts.FeaturedTransitionSystem;
 import be.vibes.ts.Transition;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.execution.Execution;
+import be.vibes.ts.execution.StateSetExecutor;
+import com.google.common.collect.Sets;
 
 import java.util.HashSet;
 import java.util.Iterator;
@@ -67,6 +69,16 @@ public class ActionCoverage extends StructuralCoverage<Action> {
         return covered;
     }
 
+    @Override
+    protected boolean requiresExecutions() {
+        return false;
+    }
+
+    @Override
+    protected Set<Action> getCoveredElements(StateSetExecutor executor) {
+        return Sets.newHashSet(executor.getExecutedActions());
+    }
+
     @Override
     public Iterator<Action> getElementsToBeCovered() {
         return getTs().actions();
@@ -27,6 +27,7 @@ import be.vibes.ts.State;
 import be.vibes.ts.Transition;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.execution.Execution;
+import be.vibes.ts.execution.StateSetExecutor;
 
 import java.util.HashSet;
 import java.util.Iterator;
@@ -69,6 +70,16 @@ public class StateCoverage extends StructuralCoverage<State> {
         return covered;
     }
 
+    @Override
+    protected boolean requiresExecutions() {
+        return false;
+    }
+
+    @Override
+    protected Set<State> getCoveredElements(StateSetExecutor executor) {
+        return executor.getVisitedStates();
+    }
+
     @Override
     public Iterator<State> getElementsToBeCovered() {
         return getTs().states();
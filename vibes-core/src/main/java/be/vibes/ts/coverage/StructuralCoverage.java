@@ -27,6 +27,7 @@ import be.vibes.ts.exception.CoverageComputationException;
 import be.vibes.ts.exception.TransitionSystenExecutionException;
 import be.vibes.ts.execution.Execution;
 import be.vibes.ts.execution.FeaturedTransitionSystemExecutor;
+import be.vibes.ts.execution.StateSetExecutor;
 import be.vibes.ts.execution.TransitionSystemExecutor;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
@@ -34,6 +35,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * Structural coverage criteria for transition and featured transition systems. The criteria executes the tests on
  * the transition or featured transition system to collected structural coverage information and return the
@@ -49,6 +52,10 @@ public abstract class StructuralCoverage<T> implements CoverageCriteria {
 
     private final TransitionSystem ts;
     private final TransitionSystemExecutor executor;
+    // Executions are needed to take feature expressions into account
+    private final boolean featured;
+    // Created on first use, see requiresExecutions()
+    private StateSetExecutor stateSetExecutor;
     private final Set<T> elementsToCover;
 
     /**
@@ -59,6 +66,7 @@ public abstract class StructuralCoverage<T> implements CoverageCriteria {
     public StructuralCoverage(TransitionSystem ts) {
         this.ts = ts;
         this.executor = new TransitionSystemExecutor(ts);
+        this.featured = false;
         this.elementsToCover = Sets.newHashSet(getElementsToBeCovered());
     }
 
@@ -71,6 +79,7 @@ public abstract class StructuralCoverage<T> implements CoverageCriteria {
     public StructuralCoverage(FeaturedTransitionSystem fts, FeatureModel<?> fm) {
         this.ts = fts;
         this.executor = new FeaturedTransitionSystemExecutor(fts, fm);
+        this.featured = true;
         this.elementsToCover = Sets.newHashSet(getElementsToBeCovered());
     }
 
@@ -111,6 +120,15 @@ public abstract class StructuralCoverage<T> implements CoverageCriteria {
 
     private void addCoveredElements(TestCase test, Set<T> covered) throws CoverageComputationException {
         try {
+            if (!featured && !requiresExecutions()) {
+                if (stateSetExecutor == null) {
+                    stateSetExecutor = new StateSetExecutor(ts);
+                }
+                stateSetExecutor.reset();
+                stateSetExecutor.execute(test);
+                covered.addAll(getCoveredElements(stateSetExecutor));
+                return;
+            }
             executor.reset();
             executor.execute(test);
             Iterator<Execution> executions = executor.getCurrentExecutions();
@@ -126,6 +144,37 @@ public abstract class StructuralCoverage<T> implements CoverageCriteria {
 
     protected abstract Set<T> getCoveredElements(Execution execution);
 
+    /**
+     * Returns true if the criteria needs the executions of the test cases to
+     * compute the covered elements. Otherwise, test cases are executed on
+     * transition systems using a {@link StateSetExecutor} and the covered
+     * elements are retrieved using
+     * {@link #getCoveredElements(StateSetExecutor)}, which has to be
+     * overridden by criteria returning false.
+     *
+     * @return True if the executions are needed to compute the coverage.
+     */
+    protected boolean requiresExecutions() {
+        return true;
+    }
+
+    /**
+     * Returns the elements covered by the executions tracked by the given
+     * executor. Only called if {@link #requiresExecutions()} returns false,
+     * criteria that do not require executions have to override this method.
+     *
+     * @param executor The executor used to execute a test case.
+     * @return The elements covered by the executions of the test case.
+     * @throws IllegalStateException If the criteria requires the executions
+     * of the test cases, or if this method is not overridden.
+     */
+    protected Set<T> getCoveredElements(StateSetExecutor executor) {
+        checkState(!requiresExecutions(), "Coverage criteria %s requires the executions of the test cases!",
+                getClass().getName());
+        throw new IllegalStateException("Coverage criteria " + getClass().getName()
+                + " does not require executions but does not override getCoveredElements(StateSetExecutor)!");
+    }
+
     public abstract Iterator<T> getElementsToBeCovered();
 
     protected TransitionSystem getTs() {
@@ -23,43 +23,59 @@ package be.vibes.ts.execution;
 import be.vibes.ts.Transition;
 import be.vibes.ts.exception.TransitionSystenExecutionException;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
  * An execution (also called behavior) of M is a non-empty, infinite sequence
  * seq = s0 a1 s1 a2 . . . With s0 = i such that (si -- ai+1 --&gt; si+1) for all 0
  * &le; i.
+ * <p>
+ * Transitions are stored in an immutable list of nodes where each node points
+ * to its predecessor. Executions obtained using {@link #copy()} share their
+ * prefix with the original execution, making copy an O(1) operation.
  *
  * @author Xavier Devroey - xavier.devroey@gmail.com
  */
 public class Execution implements Iterable<Transition> {
 
-    private final Deque<Transition> transitions;
+    private Node last;
 
     public Execution() {
-        this.transitions = new ArrayDeque<>();
+        this.last = null;
+    }
+
+    /**
+     * Creates a new execution sharing the transitions of the given execution.
+     *
+     * @param execution The execution to share the transitions with.
+     */
+    protected Execution(Execution execution) {
+        Preconditions.checkNotNull(execution, "Execution may not be null!");
+        this.last = execution.last;
     }
 
     @Override
     public Iterator<Transition> iterator() {
-        return this.transitions.iterator();
+        return Iterators.forArray(toArray());
+    }
+
+    private Transition[] toArray() {
+        Transition[] array = new Transition[getSize()];
+        for (Node node = last; node != null; node = node.previous) {
+            array[node.size - 1] = node.transition;
+        }
+        return array;
     }
 
     public Execution enqueue(Transition transition) throws TransitionSystenExecutionException {
-        if (transitions.isEmpty()) {
-            transitions.add(transition);
-        } else {
-            // Check that the last state is the source state of the current transition 
-            Transition last = transitions.getLast();
-            if (!last.getTarget().equals(transition.getSource())) {
-                throw new TransitionSystenExecutionException("Last transition (" + transition + ") does not start from last state (" + last.toString() + ")!");
-            } else {
-                this.transitions.addLast(transition);
-            }
+        // Check that the last state is the source state of the current transition 
+        if (last != null && !last.transition.getTarget().equals(transition.getSource())) {
+            throw new TransitionSystenExecutionException("Last transition (" + transition + ") does not start from last state (" + last.transition.toString() + ")!");
         }
+        this.last = new Node(transition, last);
         return this;
     }
 
@@ -71,42 +87,80 @@ public class Execution implements Iterable<Transition> {
     }
 
     public Execution dequeue() {
-        Preconditions.checkElementIndex(0, this.transitions.size(), "Execution is empty!");
-        this.transitions.removeLast();
+        Preconditions.checkElementIndex(0, getSize(), "Execution is empty!");
+        this.last = last.previous;
         return this;
     }
 
     public Transition getFirst() {
-        Preconditions.checkElementIndex(0, this.transitions.size(), "Execution is empty!");
-        return this.transitions.getFirst();
+        Preconditions.checkElementIndex(0, getSize(), "Execution is empty!");
+        return this.last.first;
     }
 
     public Transition getLast() {
-        Preconditions.checkElementIndex(0, this.transitions.size(), "Execution is empty!");
-        return this.transitions.getLast();
+        Preconditions.checkElementIndex(0, getSize(), "Execution is empty!");
+        return this.last.transition;
+    }
+
+    /**
+     * Returns the node holding the last transition of this execution, or null
+     * if the execution is empty. Nodes are immutable and shared between
+     * copies of an execution, they may be used to cache information about
+     * the prefixes of an execution.
+     */
+    Node getLastNode() {
+        return last;
     }
 
     public int getSize() {
-        return this.transitions.size();
+        return last == null ? 0 : last.size;
     }
 
     public boolean isEmpty() {
-        return this.transitions.isEmpty();
+        return last == null;
     }
 
+    /**
+     * Returns a copy of this execution. The copy shares its transitions with
+     * this execution, further enqueue and dequeue operations on one of them
+     * do not affect the other.
+     *
+     * @return A copy of this execution.
+     */
     public Execution copy() {
-        Execution copy = new Execution();
-        try {
-            copy.enqueueAll(this);
-        } catch (TransitionSystenExecutionException ex) {
-            throw new IllegalStateException("Copy of an inconsistent Execution!", ex);
-        }
-        return copy;
+        return new Execution(this);
     }
 
     @Override
     public String toString() {
-        return "Execution{" + "transitions=" + transitions + '}';
+        return "Execution{" + "transitions=" + Arrays.toString(toArray()) + '}';
+    }
+
+    /**
+     * Immutable node of the list of transitions.
+     */
+    static final class Node {
+
+        private final Transition transition;
+        private final Node previous;
+        private final Transition first;
+        private final int size;
+
+        Node(Transition transition, Node previous) {
+            this.transition = transition;
+            this.previous = previous;
+            this.first = previous == null ? transition : previous.first;
+            this.size = previous == null ? 1 : previous.size + 1;
+        }
+
+        Transition getTransition() {
+            return transition;
+        }
+
+        Node getPrevious() {
+            return previous;
+        }
+
     }
 
 }
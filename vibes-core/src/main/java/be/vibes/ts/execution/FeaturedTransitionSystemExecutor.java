@@ -24,6 +24,7 @@ package be.vibes.ts.execution;
 import be.vibes.fexpression.FExpression;
 import be.vibes.solver.ConstraintIdentifier;
 import be.vibes.solver.FeatureModel;
+import be.vibes.solver.Sat4JSolverFacade;
 import be.vibes.solver.SolverFacade;
 import be.vibes.solver.exception.SolverFatalErrorException;
 import be.vibes.solver.exception.ConstraintNotFoundException;
@@ -33,11 +34,20 @@ import be.vibes.ts.Action;
 import be.vibes.ts.FeaturedTransitionSystem;
 import be.vibes.ts.Transition;
 import be.vibes.ts.exception.TransitionSystenExecutionException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  *
  * @author Xavier Devroey - xavier.devroey@gmail.com
@@ -47,6 +57,8 @@ public class FeaturedTransitionSystemExecutor extends TransitionSystemExecutor {
     private static final Logger LOG = LoggerFactory.getLogger(FeaturedTransitionSystemExecutor.class);
 
     private final SolverFacade fm;
+    // Product constraints of the prefixes of executions, nodes are immutable
+    private final Map<Execution.Node, FExpression> productConstraints = new WeakHashMap<>();
 
     public FeaturedTransitionSystemExecutor(FeaturedTransitionSystem fts, FeatureModel<?> fm) {
         super(fts);
@@ -58,28 +70,97 @@ public class FeaturedTransitionSystemExecutor extends TransitionSystemExecutor {
         this.fm = fm;
     }
 
+    @Override
+    public boolean canExecute(Action action) throws TransitionSystenExecutionException {
+        checkNotNull(action, "Action may not be null!");
+        // Executions ending in the same state may have different feature expressions
+        Iterator<Execution> it = getCurrentExecutions();
+        if (!it.hasNext()) {
+            return canExecute(null, action);
+        }
+        boolean canExecute = false;
+        while (!canExecute && it.hasNext()) {
+            canExecute = canExecute(it.next(), action);
+        }
+        return canExecute;
+    }
+
     @Override
     protected List<Transition> getNextTransitions(Execution current, Action action) throws TransitionSystenExecutionException {
         List<Transition> candidates = super.getNextTransitions(current, action);
+        if (candidates.isEmpty()) {
+            // No need to call the solver
+            return candidates;
+        }
+        if (fm instanceof Sat4JSolverFacade solver) {
+            return filterWithAssumptions(solver, current, candidates);
+        }
         List<Transition> result = new ArrayList<>();
         // Filter transition to ones with compatible feature expression
         ConstraintIdentifier currentExecId = addConstraint(getFexpression(current));
+        try {
+            for (Transition tr : candidates) {
+                ConstraintIdentifier trId = addConstraint(getTransitionSystem().getFExpression(tr));
+                try {
+                    if (fm.isSatisfiable()) {
+                        result.add(tr);
+                    }
+                } catch (ConstraintSolvingException ex) {
+                    LOG.debug("Solver could not feature expression {} of transition {} ", trId.getConstraint(), tr, ex);
+                    throw new TransitionSystenExecutionException("Exception happend while solving feature expression " + trId.getConstraint() + " of transition " + tr + "!", ex);
+                } finally {
+                    removeConstraint(trId);
+                }
+            }
+        } finally {
+            removeConstraint(currentExecId);
+        }
+        return result;
+    }
+
+    /**
+     * Filters the candidate transitions using the incremental solver of the
+     * given facade: feature expressions of the transitions are encoded once
+     * as selector literals and the execution and candidate transitions are
+     * checked using assumptions, without adding or removing constraints.
+     */
+    private List<Transition> filterWithAssumptions(Sat4JSolverFacade solver, Execution current, List<Transition> candidates) throws TransitionSystenExecutionException {
+        List<Transition> result = new ArrayList<>();
+        Set<Integer> selectors = new LinkedHashSet<>();
+        if (current != null) {
+            for (Transition tr : current) {
+                selectors.add(getSelector(solver, tr));
+            }
+        }
+        int[] assumptions = new int[selectors.size() + 1];
+        int i = 0;
+        for (int sel : selectors) {
+            assumptions[i++] = sel;
+        }
         for (Transition tr : candidates) {
-            ConstraintIdentifier trId = addConstraint(getTransitionSystem().getFExpression(tr));
+            assumptions[i] = getSelector(solver, tr);
             try {
-                if (fm.isSatisfiable()) {
+                if (solver.isSatisfiable(assumptions)) {
                     result.add(tr);
                 }
             } catch (ConstraintSolvingException ex) {
-                LOG.debug("Solver could not feature expression {} of transition {} ", trId.getConstraint(), tr, ex);
-                throw new TransitionSystenExecutionException("Exception happend while solving feature expression " + trId.getConstraint() + " of transition " + tr + "!", ex);
-            } finally {
-                removeConstraint(currentExecId);
+                LOG.debug("Solver could not feature expression {} of transition {} ", getTransitionSystem().getFExpression(tr), tr, ex);
+                throw new TransitionSystenExecutionException("Exception happend while solving feature expression " + getTransitionSystem().getFExpression(tr) + " of transition " + tr + "!", ex);
             }
         }
         return result;
     }
 
+    private int getSelector(Sat4JSolverFacade solver, Transition tr) throws TransitionSystenExecutionException {
+        FExpression expr = getTransitionSystem().getFExpression(tr);
+        try {
+            return solver.getSelector(expr);
+        } catch (SolverInitializationException ex) {
+            LOG.debug("Could not add constraint {} to Feature Model solver!", expr, ex);
+            throw new TransitionSystenExecutionException("Could add constraint " + expr + " to Feature Model solver!", ex);
+        }
+    }
+
     private ConstraintIdentifier addConstraint(FExpression expr) throws TransitionSystenExecutionException {
         try {
             return fm.addConstraint(expr);
@@ -97,22 +178,73 @@ public class FeaturedTransitionSystemExecutor extends TransitionSystemExecutor {
             fm.removeConstraint(id);
         } catch (SolverFatalErrorException ex) {
             LOG.debug("Could not remove constraint {} to Feature Model solver, will reset!", id.getConstraint(), ex);
+            resetSolver();
         } catch (ConstraintNotFoundException ex) {
             LOG.debug("Solver encountered a fatal error while removing constraint {}, will reset!", id.getConstraint(), ex);
-        } finally {
-            try {
-                fm.reset();
-            } catch (SolverInitializationException ex) {
-                LOG.error("Could not reset feature model!", ex);
-                throw new TransitionSystenExecutionException("Could not reset feature model!", ex);
-            }
+            resetSolver();
+        }
+    }
+
+    private void resetSolver() throws TransitionSystenExecutionException {
+        try {
+            fm.reset();
+        } catch (SolverInitializationException ex) {
+            LOG.error("Could not reset feature model!", ex);
+            throw new TransitionSystenExecutionException("Could not reset feature model!", ex);
         }
     }
 
+    /**
+     * Returns the conjunction of the feature expressions of the transitions
+     * of the given execution. Same as
+     * {@link #getProductConstraint(Execution)}.
+     *
+     * @param current The execution.
+     * @return The product constraint of the execution.
+     */
     public FExpression getFexpression(Execution current) {
-        FExpression expr = FExpression.trueValue();
-        for (Transition tr : current) {
-            expr.andWith(getTransitionSystem().getFExpression(tr));
+        return getProductConstraint(current);
+    }
+
+    /**
+     * Returns the simplified conjunction of the feature expressions of the
+     * transitions of the given execution, i.e., the constraint on the
+     * products able to perform the execution. Constraints are cached for
+     * each prefix of the executions processed by this executor and extended
+     * incrementally when transitions are enqueued, executions sharing a
+     * prefix (including copies) share the cached constraint of that prefix.
+     *
+     * @param execution The execution, may be null.
+     * @return The product constraint of the execution, true if the execution
+     * is null or empty. The returned expression may be modified freely.
+     */
+    public FExpression getProductConstraint(Execution execution) {
+        if (execution == null) {
+            return FExpression.trueValue();
+        }
+        return getProductConstraint(execution.getLastNode()).copy();
+    }
+
+    private FExpression getProductConstraint(Execution.Node last) {
+        // Find the longest prefix with a known constraint
+        Deque<Execution.Node> toCompute = new ArrayDeque<>();
+        Execution.Node node = last;
+        FExpression expr = null;
+        while (node != null && (expr = productConstraints.get(node)) == null) {
+            toCompute.push(node);
+            node = node.getPrevious();
+        }
+        if (expr == null) {
+            expr = FExpression.trueValue();
+        }
+        // Extend it with the remaining transitions
+        while (!toCompute.isEmpty()) {
+            node = toCompute.pop();
+            FExpression fexpr = getTransitionSystem().getFExpression(node.getTransition());
+            if (!fexpr.isTrue()) {
+                expr = expr.isTrue() ? fexpr.applySimplification() : expr.and(fexpr).applySimplification();
+            }
+            productConstraints.put(node, expr);
         }
         return expr;
     }
@@ -125,6 +257,10 @@ public class FeaturedTransitionSystemExecutor extends TransitionSystemExecutor {
     @Override
     public void reset() throws TransitionSystenExecutionException {
         super.reset();
+        if (fm instanceof Sat4JSolverFacade) {
+            // Only selectors have been added, they may be reused
+            return;
+        }
         try {
             this.fm.reset();
         } catch (SolverInitializationException e) {
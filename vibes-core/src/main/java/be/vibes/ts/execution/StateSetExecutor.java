@@ -0,0 +1,287 @@
+package be.vibes.ts.execution;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.ts.*;
+import be.vibes.ts.exception.TransitionSystenExecutionException;
+import com.google.common.collect.Iterators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Executes a TransitionSystem by tracking the set of states reachable after
+ * each executed action (on-the-fly determinization) instead of all the paths
+ * followed in the transition system, as done by
+ * {@link TransitionSystemExecutor}. The number of executions followed by a
+ * TransitionSystemExecutor may grow exponentially with the number of
+ * non-deterministic actions, whereas this executor only keeps one
+ * {@link BitSet} of states per executed action. A witness execution may be
+ * reconstructed on demand using {@link #getWitness()}.
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class StateSetExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateSetExecutor.class);
+
+    private final TransitionSystem ts;
+    private final State[] states;
+    private final Map<State, Integer> stateIndex;
+
+    // steps.get(i) is the set of states reached after the i first actions
+    private final List<BitSet> steps;
+    private final List<Action> actions;
+    private Execution witness;
+
+    public StateSetExecutor(TransitionSystem ts) {
+        checkNotNull(ts, "Transition system may not be null!");
+        this.ts = ts;
+        this.states = new State[ts.getStatesCount()];
+        this.stateIndex = new HashMap<>();
+        Iterator<State> it = ts.states();
+        for (int i = 0; it.hasNext(); i++) {
+            states[i] = it.next();
+            stateIndex.put(states[i], i);
+        }
+        this.steps = new ArrayList<>();
+        this.actions = new ArrayList<>();
+        init();
+    }
+
+    public boolean canExecute(String action) {
+        checkNotNull(action, "Action may not be null!");
+        Action act = ts.getAction(action);
+        checkArgument(act != null, "Action %s does not belong to the transition system!", action);
+        return canExecute(act);
+    }
+
+    public boolean canExecute(Action action) {
+        checkNotNull(action, "Action may not be null!");
+        BitSet current = getCurrent();
+        for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+            if (ts.getOutgoing(states[i], action).hasNext()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute the action that has the given name on the transition system or
+     * throws a TransitionSystenExecutionException if the action cannot be
+     * executed from any of the current states. In that case, the current
+     * states are left unchanged.
+     *
+     * @param action The action to execute.
+     * @throws NullPointerException               If the action name is null.
+     * @throws IllegalArgumentException           If the action name does not
+     *                                            corresponds to an action of the transition system.
+     * @throws TransitionSystenExecutionException If the action cannot be
+     *                                            executed.
+     */
+    public void execute(String action) throws TransitionSystenExecutionException {
+        checkNotNull(action, "Action may not be null!");
+        Action act = ts.getAction(action);
+        checkArgument(act != null, "Action %s does not belong to the transition system!", action);
+        execute(act);
+    }
+
+    /**
+     * Execute the given action on the transition system or throws a
+     * TransitionSystenExecutionException if the action cannot be executed from
+     * any of the current states. In that case, the current states are left
+     * unchanged.
+     *
+     * @param action The action to execute.
+     * @throws NullPointerException               If the action is null.
+     * @throws TransitionSystenExecutionException If the action cannot be executed.
+     */
+    public void execute(Action action) throws TransitionSystenExecutionException {
+        checkNotNull(action, "Action may not be null!");
+        BitSet current = getCurrent();
+        BitSet next = new BitSet(states.length);
+        for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+            Iterator<Transition> it = ts.getOutgoing(states[i], action);
+            while (it.hasNext()) {
+                next.set(stateIndex.get(it.next().getTarget()));
+            }
+        }
+        if (next.isEmpty()) {
+            throw new TransitionSystenExecutionException("Could not execute action " + action + " from states " + Arrays.toString(Iterators.toArray(getCurrentStates(), State.class)) + "!");
+        }
+        steps.add(next);
+        actions.add(action);
+        witness = null;
+    }
+
+    /**
+     * Executes the actions of the given test case on the transition system or
+     * throws a TransitionSystenExecutionException if the test case cannot be
+     * executed.
+     *
+     * @param testCase The test case to execute.
+     * @throws NullPointerException               If the testCase or one of its actions are null.
+     * @throws TransitionSystenExecutionException If the test case cannot be executed.
+     */
+    public void execute(TestCase testCase) throws TransitionSystenExecutionException {
+        checkNotNull(testCase, "TestCase may not be null!");
+        for (Transition transition : testCase) {
+            execute(transition.getAction());
+        }
+    }
+
+    private BitSet getCurrent() {
+        return steps.get(steps.size() - 1);
+    }
+
+    /**
+     * Returns the states in which the transition system may be after the
+     * execution of the previous actions.
+     *
+     * @return The current states.
+     */
+    public Iterator<State> getCurrentStates() {
+        return getCurrent().stream().mapToObj((i) -> states[i]).iterator();
+    }
+
+    /**
+     * Returns the number of actions executed since the last reset.
+     *
+     * @return The number of executed actions.
+     */
+    public int getExecutedActionsCount() {
+        return actions.size();
+    }
+
+    /**
+     * Returns the actions executed since the last reset.
+     *
+     * @return The executed actions, in order of execution.
+     */
+    public Iterator<Action> getExecutedActions() {
+        return Collections.unmodifiableList(actions).iterator();
+    }
+
+    /**
+     * Returns the states that belong to at least one of the executions of the
+     * previous actions. Only executions that reach one of the current states
+     * are considered, i.e., states visited on dead branches are excluded. If
+     * no action has been executed, an empty set is returned.
+     *
+     * @return The states visited by the executions of the previous actions.
+     */
+    public Set<State> getVisitedStates() {
+        Set<State> visited = new HashSet<>();
+        if (actions.isEmpty()) {
+            return visited;
+        }
+        // Backward pruning of the states that do not lead to a current state
+        BitSet alive = getCurrent();
+        addAll(alive, visited);
+        for (int step = actions.size() - 1; step >= 0; step--) {
+            BitSet reached = steps.get(step);
+            BitSet previous = new BitSet(states.length);
+            for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+                Iterator<Transition> it = ts.getOutgoing(states[i], actions.get(step));
+                while (it.hasNext()) {
+                    if (alive.get(stateIndex.get(it.next().getTarget()))) {
+                        previous.set(i);
+                        break;
+                    }
+                }
+            }
+            alive = previous;
+            addAll(alive, visited);
+        }
+        return visited;
+    }
+
+    private void addAll(BitSet set, Set<State> result) {
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.add(states[i]);
+        }
+    }
+
+    /**
+     * Returns one of the executions of the previous actions. The execution is
+     * reconstructed backward from one of the current states the first time
+     * this method is called after the execution of an action.
+     *
+     * @return An execution of the previous actions, empty if no action has
+     * been executed.
+     */
+    public Execution getWitness() {
+        if (witness == null) {
+            Transition[] path = new Transition[actions.size()];
+            State target = states[getCurrent().nextSetBit(0)];
+            for (int step = actions.size() - 1; step >= 0; step--) {
+                BitSet reached = steps.get(step);
+                Transition selected = null;
+                Iterator<Transition> it = ts.getIncoming(target);
+                while (selected == null && it.hasNext()) {
+                    Transition tr = it.next();
+                    if (tr.getAction().equals(actions.get(step)) && reached.get(stateIndex.get(tr.getSource()))) {
+                        selected = tr;
+                    }
+                }
+                // Cannot be null given the construction of the steps
+                path[step] = selected;
+                target = selected.getSource();
+            }
+            witness = new Execution();
+            try {
+                witness.enqueueAll(Arrays.asList(path));
+            } catch (TransitionSystenExecutionException ex) {
+                // This should not happen given the construction of the path
+                LOG.error("Witness path is not a valid execution!", ex);
+                throw new IllegalStateException("Witness path is not a valid execution!", ex);
+            }
+        }
+        return witness.copy();
+    }
+
+    protected TransitionSystem getTransitionSystem() {
+        return ts;
+    }
+
+    /**
+     * Resets the status of the executor: the current state is the initial
+     * state of the transition system.
+     */
+    public void reset() {
+        init();
+    }
+
+    private void init() {
+        steps.clear();
+        actions.clear();
+        BitSet initial = new BitSet(states.length);
+        initial.set(stateIndex.get(ts.getInitialState()));
+        steps.add(initial);
+        witness = null;
+    }
+
+}
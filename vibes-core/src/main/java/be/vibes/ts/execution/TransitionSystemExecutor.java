@@ -27,8 +27,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -64,18 +66,21 @@ public class TransitionSystemExecutor {
             LOG.trace("No execution found, will start from initial state!");
             canExecute = canExecute(null, action);
         } else {
+            // Only the set of current states matters, not the followed paths
+            Set<State> checked = new HashSet<>();
             Iterator<Execution> it = executions.iterator();
-            State s;
             while (!canExecute && it.hasNext()) {
                 Execution current = it.next();
-                LOG.trace("Executions found, will start from state {}!", current.getLast().getTarget());
-                canExecute = canExecute(current, action);
+                if (checked.add(current.getLast().getTarget())) {
+                    LOG.trace("Executions found, will start from state {}!", current.getLast().getTarget());
+                    canExecute = canExecute(current, action);
+                }
             }
         }
         return canExecute;
     }
 
-    private boolean canExecute(Execution current, Action action) throws TransitionSystenExecutionException {
+    protected boolean canExecute(Execution current, Action action) throws TransitionSystenExecutionException {
         checkNotNull(action, "Action may not be null!");
         return !getNextTransitions(current, action).isEmpty();
     }
@@ -153,7 +158,8 @@ public class TransitionSystemExecutor {
         boolean executed = false;
         for (Execution exec : this.executions) {
             List<Transition> nextTransitions = getNextTransitions(exec, action);
-            if (executed = !nextTransitions.isEmpty()) {
+            if (!nextTransitions.isEmpty()) {
+                executed = true;
                 for (Transition tr : nextTransitions) {
                     try {
                         newExecutions.add(exec.copy().enqueue(tr));
@@ -172,13 +178,7 @@ public class TransitionSystemExecutor {
         checkNotNull(action, "Action may not be null!");
         State source = current == null ? getTransitionSystem().getInitialState() : current.getLast().getTarget();
         List<Transition> next = new ArrayList<>();
-        Iterator<Transition> it = getTransitionSystem().getOutgoing(source);
-        while (it.hasNext()) {
-            Transition tr = it.next();
-            if (tr.getAction().equals(action)) {
-                next.add(tr);
-            }
-        }
+        getTransitionSystem().getOutgoing(source, action).forEachRemaining(next::add);
         return next;
     }
 
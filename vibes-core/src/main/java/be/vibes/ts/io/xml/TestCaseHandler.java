@@ -21,6 +21,7 @@ package be.vibes.ts.io.xml;
  * #L%
  */
 
+import be.vibes.ts.Action;
 import be.vibes.ts.execution.Execution;
 import be.vibes.ts.TestCase;
 import be.vibes.ts.TestSet;
@@ -112,8 +113,13 @@ public class TestCaseHandler implements XmlEventHandler {
         LOG.trace("Starting transition");
         String action = element.getAttributeByName(QName.valueOf(ACTION_ATTR)).getValue();
         Preconditions.checkNotNull(action, "Action attribute may not be null!");
+        Action act = ts.getAction(action);
+        if (act == null) {
+            LOG.error("Action {} does not belong to the transition system!", action);
+            throw new XMLStreamException("Action " + action + " does not belong to the transition system!");
+        }
         try {
-            currentExecutor.execute(action);
+            currentExecutor.execute(act);
         } catch (TransitionSystenExecutionException ex) {
             LOG.error("Action {} could not be executed!", action, ex);
             throw new XMLStreamException("Action " + action + "could not be executed!", ex);
@@ -0,0 +1,137 @@
+package be.vibes.ts;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.ts.execution.TransitionSystemExecutor;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CompactTransitionSystemTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompactTransitionSystemTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private TransitionSystemFactory getFactory() {
+        TransitionSystemFactory factory = new TransitionSystemFactory("s0");
+        factory.addStates("s1", "s2", "s3");
+        factory.addActions("a1", "a2", "a0");
+        factory.addTransition("s0", "a1", "s1");
+        factory.addTransition("s1", "a2", "s2");
+        factory.addTransition("s1", "a2", "s0");
+        factory.addTransition("s2", "a2", "s3");
+        factory.addTransition("s3", "a0", "s0");
+        return factory;
+    }
+
+    @Test
+    public void testFreeze() {
+        TransitionSystemFactory factory = getFactory();
+        TransitionSystem ts = factory.build();
+        CompactTransitionSystem compact = factory.freeze();
+        assertThat(compact.getInitialState(), sameInstance(ts.getInitialState()));
+        assertThat(compact.getStatesCount(), equalTo(ts.getStatesCount()));
+        assertThat(compact.getActionsCount(), equalTo(ts.getActionsCount()));
+        assertThat(compact.getTransitionsCount(), equalTo(ts.getTransitionsCount()));
+        assertThat(Lists.newArrayList(compact.states()), containsInAnyOrder(Iterators.toArray(ts.states(), State.class)));
+        assertThat(Lists.newArrayList(compact.actions()), containsInAnyOrder(Iterators.toArray(ts.actions(), Action.class)));
+        assertThat(Lists.newArrayList(compact.transitions()), containsInAnyOrder(Iterators.toArray(ts.transitions(), Transition.class)));
+        assertThat(compact.getStateIndex(compact.getInitialState()), equalTo(0));
+    }
+
+    @Test
+    public void testOutgoingIncoming() {
+        TransitionSystemFactory factory = getFactory();
+        TransitionSystem ts = factory.build();
+        CompactTransitionSystem compact = factory.freeze();
+        for (State s : Lists.newArrayList(ts.states())) {
+            assertThat(compact.getOutgoingCount(s), equalTo(ts.getOutgoingCount(s)));
+            assertThat(compact.getIncomingCount(s), equalTo(ts.getIncomingCount(s)));
+            assertThat(Lists.newArrayList(compact.getOutgoing(s)), containsInAnyOrder(Iterators.toArray(ts.getOutgoing(s), Transition.class)));
+            assertThat(Lists.newArrayList(compact.getIncoming(s)), containsInAnyOrder(Iterators.toArray(ts.getIncoming(s), Transition.class)));
+        }
+        Action a2 = compact.getAction("a2");
+        assertThat(Lists.newArrayList(compact.getTransitions(a2)), hasSize(3));
+        assertThat(Lists.newArrayList(compact.getTransitions("s1", "a2", "s0")),
+                contains(ts.getTransitions("s1", "a2", "s0").next()));
+        assertThat(compact.getTransitions("s1", "a1", "s0").hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void testGetOutgoingByAction() {
+        TransitionSystemFactory factory = getFactory();
+        TransitionSystem ts = factory.build();
+        CompactTransitionSystem compact = factory.freeze();
+        for (State s : Lists.newArrayList(ts.states())) {
+            for (Action a : Lists.newArrayList(ts.actions())) {
+                assertThat(Lists.newArrayList(compact.getOutgoing(s, a)), containsInAnyOrder(Iterators.toArray(ts.getOutgoing(s, a), Transition.class)));
+            }
+        }
+        assertThat(Lists.newArrayList(compact.getOutgoing(compact.getState("s1"), compact.getAction("a2"))), hasSize(2));
+    }
+
+    @Test
+    public void testTransitionIndex() {
+        CompactTransitionSystem compact = getFactory().freeze();
+        for (int i = 0; i < compact.getTransitionsCount(); i++) {
+            assertThat(compact.getTransitionIndex(compact.getTransition(i)), equalTo(i));
+        }
+    }
+
+    @Test
+    public void testFreezeIsNotModifiedByFactory() {
+        TransitionSystemFactory factory = getFactory();
+        CompactTransitionSystem compact = factory.freeze();
+        factory.addTransition("s3", "a1", "s4");
+        assertThat(compact.getStatesCount(), equalTo(4));
+        assertThat(compact.getState("s4"), nullValue());
+        assertThat(compact.getOutgoingCount(compact.getState("s3")), equalTo(1));
+    }
+
+    @Test
+    public void testExecution() throws Exception {
+        CompactTransitionSystem compact = getFactory().freeze();
+        TransitionSystemExecutor exec = new TransitionSystemExecutor(compact);
+        exec.execute("a1");
+        exec.execute("a2");
+        assertThat(Lists.newArrayList(exec.getCurrentExecutions()), hasSize(2));
+    }
+
+}
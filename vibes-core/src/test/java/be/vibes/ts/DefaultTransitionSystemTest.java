@@ -159,4 +159,24 @@ public class DefaultTransitionSystemTest {
         assertThat(Lists.newArrayList(ts.getOutgoing(s1)), containsInAnyOrder(t2, t3));
     }
 
+    @Test
+    public void testGetOutgoingByAction() {
+        DefaultTransitionSystem ts = new DefaultTransitionSystem("s0");
+        State s0 = ts.addState("s0");
+        State s1 = ts.addState("s1");
+        Action a = ts.addAction("a");
+        Action b = ts.addAction("b");
+        Transition t1 = ts.addTransition(s0, a, s1);
+        Transition t2 = ts.addTransition(s0, a, s0);
+        Transition t3 = ts.addTransition(s0, b, s1);
+        Transition t4 = ts.addTransition(s1, a, s0);
+
+        assertThat(Lists.newArrayList(ts.getOutgoing(s0, a)), containsInAnyOrder(t1, t2));
+        assertThat(Lists.newArrayList(ts.getOutgoing(s0, b)), contains(t3));
+        assertThat(Lists.newArrayList(ts.getOutgoing(s1, b)), empty());
+        assertThat(Lists.newArrayList(ts.getTransitions(a)), containsInAnyOrder(t1, t2, t4));
+        assertThat(Lists.newArrayList(ts.getTransitions(s0, a, s1)), contains(t1));
+        assertThat(Lists.newArrayList(ts.getTransitions(s1, b, s0)), empty());
+    }
+
 }
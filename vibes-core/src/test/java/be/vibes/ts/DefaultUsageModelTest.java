@@ -21,6 +21,7 @@ package be.vibes.ts;
  */
 
 import com.google.common.collect.Lists;
+import java.util.SplittableRandom;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -77,4 +78,51 @@ public class DefaultUsageModelTest {
         assertThat(ts.getProbability(t1), equalTo(0.42));
     }
 
+    @Test
+    public void testRandomOutgoing() {
+        UsageModelFactory factory = new UsageModelFactory("s0");
+        factory.addTransition("s0", "a", 0.75, "s1");
+        factory.addTransition("s0", "b", 0.0, "s2");
+        factory.addTransition("s0", "c", 0.25, "s0");
+        factory.addTransition("s1", "d", 0.0, "s0");
+        for (UsageModel um : Lists.newArrayList(factory.build(), factory.freeze())) {
+            State s0 = um.getState("s0");
+            Transition a = um.getTransitions("s0", "a", "s1").next();
+            Transition b = um.getTransitions("s0", "b", "s2").next();
+            SplittableRandom random = new SplittableRandom(42);
+            int nbrA = 0;
+            for (int i = 0; i < 10000; i++) {
+                Transition tr = um.getRandomOutgoing(s0, random);
+                assertThat(tr, not(equalTo(b)));
+                nbrA += tr.equals(a) ? 1 : 0;
+            }
+            assertThat(nbrA, greaterThan(7000));
+            assertThat(nbrA, lessThan(8000));
+            // Outgoing transitions with probability 0 only: last transition
+            assertThat(um.getRandomOutgoing(um.getState("s1"), random), equalTo(um.getTransitions("s1", "d", "s0").next()));
+            assertThat(um.getRandomOutgoing(um.getState("s2"), random), nullValue());
+            // Alias tables are invalidated on update
+            um.setProbability(a, 0.0);
+            um.setProbability(b, 1.0);
+            for (int i = 0; i < 100; i++) {
+                assertThat(um.getRandomOutgoing(s0, random), not(equalTo(a)));
+            }
+        }
+    }
+
+    @Test
+    public void testAliasTable() {
+        AliasTable table = new AliasTable(new double[]{1.0, 0.0, 3.0});
+        assertEquals(3, table.size());
+        assertEquals(4.0, table.getTotalWeight(), 0.0);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] counts = new int[3];
+        for (int i = 0; i < 40000; i++) {
+            counts[table.sample(random)]++;
+        }
+        assertEquals(0, counts[1]);
+        assertThat(counts[2], greaterThan(29000));
+        assertThat(counts[2], lessThan(31000));
+    }
+
 }
@@ -21,8 +21,17 @@ package be.vibes.ts;
  */
 
 import be.vibes.fexpression.FExpression;
+import be.vibes.fexpression.configuration.BitSetConfiguration;
+import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.FeatureIndex;
+import be.vibes.fexpression.configuration.SimpleConfiguration;
 import static be.vibes.fexpression.FExpression.*;
+import static be.vibes.fexpression.Feature.feature;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.List;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -82,5 +91,145 @@ public class FeaturedTransitionSystemTest{
         assertThat("Wrong feature expression", ts.getFExpression(t1), equalTo(expr2));
     }
 
+    @Test
+    public void testCompactProjection() throws Exception {
+        FeaturedTransitionSystemFactory factory = new FeaturedTransitionSystemFactory("s0");
+        factory.addStates("s0", "s1", "s2");
+        factory.addActions("a", "b", "c");
+        factory.addTransition("s0", "a", featureExpr("f").and(featureExpr("g").not()), "s1");
+        factory.addTransition("s0", "b", featureExpr("g").or(featureExpr("h")), "s2");
+        factory.addTransition("s1", "c", "s0");
+        factory.addTransition("s2", "c", featureExpr("h"), "s0");
+        CompactFeaturedTransitionSystem compact = factory.freeze();
+        FeaturedTransitionSystem fts = factory.build();
+        assertEquals(new FeatureIndex("f", "g", "h"), compact.getFeatureIndex());
+        for (int i = 0; i < 8; i++) {
+            BitSetConfiguration product = new BitSetConfiguration(compact.getFeatureIndex(), BitSet.valueOf(new long[]{i}));
+            Configuration simple = new SimpleConfiguration(product.getFeatures());
+            TransitionSystem expected = SimpleProjection.getInstance().project(fts, simple);
+            for (TransitionSystem ts : Lists.newArrayList(
+                    SimpleProjection.getInstance().project(compact, product),
+                    SimpleProjection.getInstance().project(compact, simple))) {
+                assertEquals(expected.getTransitionsCount(), ts.getTransitionsCount());
+                assertEquals(expected.getStatesCount(), ts.getStatesCount());
+                assertEquals(expected.getActionsCount(), ts.getActionsCount());
+            }
+        }
+    }
+
+    @Test
+    public void testBatchProjection() throws Exception {
+        FeaturedTransitionSystemFactory factory = new FeaturedTransitionSystemFactory("s0");
+        factory.addStates("s0", "s1", "s2");
+        factory.addActions("a", "b", "c");
+        factory.addTransition("s0", "a", featureExpr("f").and(featureExpr("g").not()), "s1");
+        factory.addTransition("s0", "b", featureExpr("g").or(featureExpr("h")), "s2");
+        factory.addTransition("s1", "c", "s0");
+        factory.addTransition("s2", "c", featureExpr("h"), "s0");
+        FeaturedTransitionSystem fts = factory.build();
+        List<Configuration> products = Lists.newArrayList();
+        for (int i = 0; i < 300; i++) {
+            Configuration product = new SimpleConfiguration();
+            for (String f : new String[]{"f", "g", "h", "i"}) {
+                if ((i * 7 + f.charAt(0)) % 3 == 0) {
+                    product.selectFeature(feature(f));
+                }
+            }
+            products.add(product);
+        }
+        for (FeaturedTransitionSystem ts : Lists.newArrayList(fts, factory.freeze())) {
+            List<TransitionSystem> projections = SimpleProjection.getInstance().project(ts, products);
+            assertEquals(products.size(), projections.size());
+            for (int i = 0; i < products.size(); i++) {
+                TransitionSystem expected = SimpleProjection.getInstance().project(fts, products.get(i));
+                assertEquals(expected.getTransitionsCount(), projections.get(i).getTransitionsCount());
+                assertEquals(expected.getStatesCount(), projections.get(i).getStatesCount());
+                assertEquals(expected.getActionsCount(), projections.get(i).getActionsCount());
+            }
+        }
+    }
+
+    @Test
+    public void testBatchProjectionReusesCompactCopy() throws Exception {
+        FeaturedTransitionSystemFactory factory = new FeaturedTransitionSystemFactory("s0");
+        factory.addStates("s0", "s1");
+        factory.addActions("a", "b");
+        factory.addTransition("s0", "a", featureExpr("f").and(featureExpr("g").not()), "s1");
+        factory.addTransition("s1", "b", featureExpr("g"), "s0");
+        FeaturedTransitionSystem fts = factory.build();
+        List<Configuration> products = Lists.newArrayList(new SimpleConfiguration(feature("f")), new SimpleConfiguration(feature("g")));
+        SimpleProjection projection = SimpleProjection.getInstance();
+        CompactFeaturedTransitionSystem compact = projection.getCompact(fts);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, projection.project(fts, products).get(0).getTransitionsCount());
+            assertSame(compact, projection.getCompact(fts));
+        }
+        // Modified FTS are copied again
+        factory.addTransition("s1", "a", featureExpr("f"), "s1");
+        assertNotSame(compact, projection.getCompact(fts));
+        assertEquals(2, projection.project(fts, products).get(0).getTransitionsCount());
+        // Copies and their feature indexes are not retained
+        WeakReference<FeatureIndex> index = new WeakReference<>(compact.getFeatureIndex());
+        WeakReference<CompactFeaturedTransitionSystem> copy = new WeakReference<>(projection.getCompact(fts));
+        compact = null;
+        fts = null;
+        factory = null;
+        for (int i = 0; i < 50 && (index.get() != null || copy.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+            // Collected entries are removed from the cache when it is used
+            projection.getCompact(new FeaturedTransitionSystemFactory("s0").build());
+        }
+        assertNull("Feature index retained after projection!", index.get());
+        assertNull("Compact copy retained after projection!", copy.get());
+    }
+
+    @Test
+    public void testProjectedView() throws Exception {
+        FeaturedTransitionSystemFactory factory = new FeaturedTransitionSystemFactory("s0");
+        factory.addStates("s0", "s1", "s2", "s3");
+        factory.addActions("a", "b", "c", "d");
+        factory.addTransition("s0", "a", featureExpr("f").and(featureExpr("g").not()), "s1");
+        factory.addTransition("s0", "b", featureExpr("g").or(featureExpr("h")), "s2");
+        factory.addTransition("s1", "c", "s0");
+        factory.addTransition("s2", "c", featureExpr("h"), "s0");
+        factory.addTransition("s2", "d", featureExpr("f").and(featureExpr("h")), "s3");
+        FeaturedTransitionSystem fts = factory.build();
+        for (FeaturedTransitionSystem ts : Lists.newArrayList(fts, factory.freeze())) {
+            for (int i = 0; i < 8; i++) {
+                Configuration product = new BitSetConfiguration(new FeatureIndex("f", "g", "h"), BitSet.valueOf(new long[]{i}));
+                TransitionSystem expected = SimpleProjection.getInstance().project(fts, product);
+                ProjectedTransitionSystem view = new ProjectedTransitionSystem(ts, product);
+                assertEquals(expected.getTransitionsCount(), view.getTransitionsCount());
+                assertEquals(expected.getStatesCount(), view.getStatesCount());
+                assertEquals(expected.getActionsCount(), view.getActionsCount());
+                for (State s : Lists.newArrayList(ts.states())) {
+                    State e = expected.getState(s.getName());
+                    assertEquals(e == null, view.getState(s.getName()) == null);
+                    if (e != null) {
+                        assertEquals(expected.getOutgoingCount(e), view.getOutgoingCount(s));
+                        assertEquals(expected.getIncomingCount(e), view.getIncomingCount(s));
+                    }
+                }
+                for (Transition tr : Lists.newArrayList(view.transitions())) {
+                    assertTrue(view.isEnabled(tr));
+                    assertTrue(expected.getTransitions(tr.getSource().getName(), tr.getAction().getName(), tr.getTarget().getName()).hasNext());
+                }
+                for (Transition tr : Lists.newArrayList(ts.transitions())) {
+                    assertEquals(view.isEnabled(tr), view.getTransitions(tr.getSource(), tr.getAction(), tr.getTarget()).hasNext());
+                    assertEquals(view.isEnabled(tr), view.getTransitions(tr.getSource().getName(), tr.getAction().getName(), tr.getTarget().getName()).hasNext());
+                }
+                for (Action a : Lists.newArrayList(ts.actions())) {
+                    Action e = expected.getAction(a.getName());
+                    assertEquals(e == null ? 0 : Iterators.size(expected.getTransitions(e)), Iterators.size(view.getTransitions(a)));
+                    for (State s : Lists.newArrayList(ts.states())) {
+                        State es = expected.getState(s.getName());
+                        int count = e == null || es == null ? 0 : Iterators.size(expected.getOutgoing(es, e));
+                        assertEquals(count, Iterators.size(view.getOutgoing(s, a)));
+                    }
+                }
+            }
+        }
+    }
 
 }
@@ -1,9 +1,14 @@
 package be.vibes.ts.coverage;
 
+import be.vibes.ts.Action;
 import be.vibes.ts.TestCase;
 import be.vibes.ts.TestSet;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.TransitionSystemFactory;
+import be.vibes.ts.execution.Execution;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
@@ -55,6 +60,33 @@ public class ActionCoverageTest {
         assertThat(result, closeTo(3.0/4.0, 0.00001));
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void testCoverageWithoutStateSets() throws Exception {
+        TransitionSystemFactory factory = new TransitionSystemFactory("s0");
+        factory.addTransition("s0", "a1", "s0");
+        TransitionSystem ts = factory.build();
+        TestCase test = new TestCase("foo");
+        test.enqueue(ts.getTransitions("s0", "a1", "s0").next());
+        // Does not require executions but does not use the state sets
+        StructuralCoverage<Action> coverage = new StructuralCoverage<>(ts) {
+            @Override
+            protected Set<Action> getCoveredElements(Execution execution) {
+                return Collections.emptySet();
+            }
+
+            @Override
+            protected boolean requiresExecutions() {
+                return false;
+            }
+
+            @Override
+            public Iterator<Action> getElementsToBeCovered() {
+                return getTs().actions();
+            }
+        };
+        coverage.coverage(test);
+    }
+
     @Test
     public void testFullCoverageTest() throws Exception{
         TransitionSystemFactory factory = new TransitionSystemFactory("s0");
@@ -0,0 +1,127 @@
+package be.vibes.ts.execution;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.ts.TestCase;
+import be.vibes.ts.Transition;
+import be.vibes.ts.TransitionSystem;
+import be.vibes.ts.TransitionSystemFactory;
+import be.vibes.ts.exception.TransitionSystenExecutionException;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class ExecutionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private TransitionSystem getTransitionSystem() {
+        TransitionSystemFactory factory = new TransitionSystemFactory("s0");
+        factory.addTransition("s0", "a1", "s1");
+        factory.addTransition("s1", "a2", "s2");
+        factory.addTransition("s1", "a2", "s3");
+        factory.addTransition("s2", "a0", "s0");
+        return factory.build();
+    }
+
+    @Test
+    public void testEnqueueDequeue() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        Transition t1 = ts.getTransitions("s0", "a1", "s1").next();
+        Transition t2 = ts.getTransitions("s1", "a2", "s2").next();
+        Transition t3 = ts.getTransitions("s2", "a0", "s0").next();
+        Execution exec = new Execution();
+        assertThat(exec.isEmpty(), equalTo(true));
+        exec.enqueue(t1).enqueue(t2).enqueue(t3);
+        assertThat(exec.getSize(), equalTo(3));
+        assertThat(exec.getFirst(), equalTo(t1));
+        assertThat(exec.getLast(), equalTo(t3));
+        assertThat(Lists.newArrayList(exec), contains(t1, t2, t3));
+        exec.dequeue();
+        assertThat(exec.getSize(), equalTo(2));
+        assertThat(exec.getLast(), equalTo(t2));
+        assertThat(Lists.newArrayList(exec), contains(t1, t2));
+    }
+
+    @Test(expected = TransitionSystenExecutionException.class)
+    public void testEnqueueInconsistent() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        Execution exec = new Execution();
+        exec.enqueue(ts.getTransitions("s0", "a1", "s1").next());
+        exec.enqueue(ts.getTransitions("s2", "a0", "s0").next());
+    }
+
+    @Test
+    public void testCopySharesPrefix() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        Transition t1 = ts.getTransitions("s0", "a1", "s1").next();
+        Transition t2 = ts.getTransitions("s1", "a2", "s2").next();
+        Transition t3 = ts.getTransitions("s1", "a2", "s3").next();
+        Execution exec = new Execution().enqueue(t1);
+        Execution copy1 = exec.copy().enqueue(t2);
+        Execution copy2 = exec.copy().enqueue(t3);
+        assertThat(Lists.newArrayList(exec), contains(t1));
+        assertThat(Lists.newArrayList(copy1), contains(t1, t2));
+        assertThat(Lists.newArrayList(copy2), contains(t1, t3));
+        copy1.dequeue().dequeue();
+        assertThat(copy1.isEmpty(), equalTo(true));
+        assertThat(copy2.getSize(), equalTo(2));
+        assertThat(copy2.getFirst(), equalTo(t1));
+    }
+
+    @Test
+    public void testTestCaseCopy() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        Transition t1 = ts.getTransitions("s0", "a1", "s1").next();
+        Transition t2 = ts.getTransitions("s1", "a2", "s2").next();
+        TestCase tc = new TestCase("tc");
+        tc.enqueue(t1);
+        Execution copy = tc.copy();
+        assertThat(copy, instanceOf(TestCase.class));
+        assertThat(((TestCase) copy).getId(), equalTo("tc"));
+        copy.enqueue(t2);
+        assertThat(tc.getSize(), equalTo(1));
+        assertThat(Lists.newArrayList(copy), contains(t1, t2));
+    }
+
+}
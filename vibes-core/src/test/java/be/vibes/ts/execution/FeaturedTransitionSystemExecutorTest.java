@@ -0,0 +1,121 @@
+package be.vibes.ts.execution;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.FExpression;
+import be.vibes.fexpression.Feature;
+import be.vibes.solver.BDDSolverFacade;
+import be.vibes.ts.FeaturedTransitionSystem;
+import be.vibes.ts.FeaturedTransitionSystemFactory;
+import be.vibes.ts.TestCase;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static be.vibes.fexpression.FExpression.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class FeaturedTransitionSystemExecutorTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeaturedTransitionSystemExecutorTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private FeaturedTransitionSystem getFts() {
+        FeaturedTransitionSystemFactory factory = new FeaturedTransitionSystemFactory("s0");
+        factory.addTransition("s0", "a", featureExpr("f"), "s1");
+        factory.addTransition("s1", "b", featureExpr("g").not(), "s2");
+        factory.addTransition("s1", "b", featureExpr("g"), "s3");
+        factory.addTransition("s2", "c", "s0");
+        return factory.build();
+    }
+
+    private boolean eval(FExpression expr, boolean f, boolean g) {
+        Map<Feature<?>, Boolean> assignements = Maps.newHashMap();
+        assignements.put(Feature.feature("f"), f);
+        assignements.put(Feature.feature("g"), g);
+        return expr.assign(assignements).applySimplification().isTrue();
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        FeaturedTransitionSystem fts = getFts();
+        FeaturedTransitionSystemExecutor exec = new FeaturedTransitionSystemExecutor(fts, new BDDSolverFacade(featureExpr("f").and(featureExpr("g"))));
+        assertThat(exec.canExecute("a"), equalTo(true));
+        exec.execute("a");
+        exec.execute("b");
+        List<Execution> current = Lists.newArrayList(exec.getCurrentExecutions());
+        assertThat(current, hasSize(1));
+        assertThat(current.get(0).getLast().getTarget(), equalTo(fts.getState("s3")));
+        assertThat(exec.canExecute("c"), equalTo(false));
+    }
+
+    @Test
+    public void testGetProductConstraint() throws Exception {
+        FeaturedTransitionSystem fts = getFts();
+        FeaturedTransitionSystemExecutor exec = new FeaturedTransitionSystemExecutor(fts, new BDDSolverFacade(featureExpr("f").or(featureExpr("g"))));
+        assertThat(exec.getProductConstraint(null).isTrue(), equalTo(true));
+        TestCase tc = new TestCase("tc");
+        assertThat(exec.getProductConstraint(tc).isTrue(), equalTo(true));
+        tc.enqueue(fts.getTransitions("s0", "a", "s1").next());
+        FExpression expr = exec.getProductConstraint(tc);
+        assertThat(eval(expr, true, false), equalTo(true));
+        assertThat(eval(expr, false, true), equalTo(false));
+        // Modifying the returned expression does not modify the cached one
+        expr.andWith(falseValue());
+        tc.enqueue(fts.getTransitions("s1", "b", "s2").next());
+        TestCase copy = (TestCase) tc.copy();
+        copy.enqueue(fts.getTransitions("s2", "c", "s0").next());
+        for (TestCase t : Lists.newArrayList(tc, copy)) {
+            expr = exec.getProductConstraint(t);
+            assertThat(eval(expr, true, false), equalTo(true));
+            assertThat(eval(expr, true, true), equalTo(false));
+            assertThat(eval(expr, false, false), equalTo(false));
+        }
+        tc.dequeue();
+        tc.enqueue(fts.getTransitions("s1", "b", "s3").next());
+        expr = exec.getProductConstraint(tc);
+        assertThat(eval(expr, true, true), equalTo(true));
+        assertThat(eval(expr, true, false), equalTo(false));
+    }
+
+}
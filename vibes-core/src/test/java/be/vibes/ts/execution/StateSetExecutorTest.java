@@ -0,0 +1,133 @@
+package be.vibes.ts.execution;
+
+/*-
+ * #%L
+ * VIBeS: core
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.ts.State;
+import be.vibes.ts.TransitionSystem;
+import be.vibes.ts.TransitionSystemFactory;
+import be.vibes.ts.exception.TransitionSystenExecutionException;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Xavier Devroey - xavier.devroey@gmail.com
+ */
+public class StateSetExecutorTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateSetExecutorTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private TransitionSystem getTransitionSystem() {
+        TransitionSystemFactory factory = new TransitionSystemFactory("s0");
+        factory.addStates("s1", "s2", "s3");
+        factory.addActions("a1", "a2", "a0");
+        factory.addTransition("s0", "a1", "s1");
+        factory.addTransition("s1", "a2", "s2");
+        factory.addTransition("s1", "a2", "s0");
+        factory.addTransition("s2", "a2", "s3");
+        factory.addTransition("s3", "a0", "s0");
+        return factory.build();
+    }
+
+    @Test
+    public void testCanExecute() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        StateSetExecutor exec = new StateSetExecutor(ts);
+        assertThat(exec.canExecute("a0"), equalTo(false));
+        assertThat(exec.canExecute("a1"), equalTo(true));
+        assertThat(exec.canExecute("a2"), equalTo(false));
+        exec.execute("a1");
+        exec.execute("a2");
+        assertThat(exec.canExecute("a0"), equalTo(false));
+        assertThat(exec.canExecute("a1"), equalTo(true));
+        assertThat(exec.canExecute("a2"), equalTo(true));
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        StateSetExecutor exec = new StateSetExecutor(ts);
+        assertThat(Lists.newArrayList(exec.getCurrentStates()), contains(ts.getInitialState()));
+        assertThat(exec.getWitness().isEmpty(), equalTo(true));
+        exec.execute("a1");
+        exec.execute("a2");
+        assertThat(Lists.newArrayList(exec.getCurrentStates()), containsInAnyOrder(ts.getState("s0"), ts.getState("s2")));
+        assertThat(exec.getExecutedActionsCount(), equalTo(2));
+        exec.execute("a2");
+        assertThat(Lists.newArrayList(exec.getCurrentStates()), contains(ts.getState("s3")));
+        Execution witness = exec.getWitness();
+        assertThat(Lists.newArrayList(witness), contains(
+                ts.getTransitions("s0", "a1", "s1").next(),
+                ts.getTransitions("s1", "a2", "s2").next(),
+                ts.getTransitions("s2", "a2", "s3").next()));
+    }
+
+    @Test
+    public void testVisitedStatesIgnoreDeadBranches() throws Exception {
+        TransitionSystemFactory factory = new TransitionSystemFactory("s0");
+        factory.addTransition("s0", "a", "s1");
+        factory.addTransition("s0", "a", "s2");
+        factory.addTransition("s1", "b", "s3");
+        TransitionSystem ts = factory.build();
+        StateSetExecutor exec = new StateSetExecutor(ts);
+        exec.execute("a");
+        assertThat(exec.getVisitedStates(), containsInAnyOrder(ts.getState("s0"), ts.getState("s1"), ts.getState("s2")));
+        exec.execute("b");
+        assertThat(exec.getVisitedStates(), containsInAnyOrder(ts.getState("s0"), ts.getState("s1"), ts.getState("s3")));
+        exec.reset();
+        assertThat(exec.getVisitedStates(), empty());
+        assertThat(Lists.newArrayList(exec.getCurrentStates()), contains(ts.getInitialState()));
+    }
+
+    @Test
+    public void testExecuteWithNoInputEnabled() throws Exception {
+        TransitionSystem ts = getTransitionSystem();
+        StateSetExecutor exec = new StateSetExecutor(ts);
+        exec.execute("a1");
+        try {
+            exec.execute("a1");
+            fail("Action a1 should not be executable!");
+        } catch (TransitionSystenExecutionException ex) {
+            // Current states are left unchanged
+            assertThat(Lists.newArrayList(exec.getCurrentStates()), contains(ts.getState("s1")));
+        }
+    }
+
+}
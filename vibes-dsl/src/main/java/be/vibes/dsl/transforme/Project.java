@@ -27,6 +27,7 @@ import be.vibes.ts.Projection;
 import be.vibes.ts.SimpleProjection;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.exception.UnresolvedFExpression;
+import java.util.List;
 import static com.google.common.base.Preconditions.*;
 
 public class Project {
@@ -42,4 +43,15 @@ public class Project {
         }
     }
 
+    public static List<TransitionSystem> projectProducts(FeaturedTransitionSystem fts, List<? extends Configuration> configs) {
+        checkNotNull(fts);
+        checkNotNull(configs);
+        Projection proj = SimpleProjection.getInstance();
+        try {
+            return proj.project(fts, configs);
+        } catch (UnresolvedFExpression e) {
+            throw new TransformationException("Exception while performing projection", e);
+        }
+    }
+
 }
@@ -0,0 +1,315 @@
+package be.vibes.fexpression;
+
+/*-
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.configuration.BitSetConfiguration;
+import be.vibes.fexpression.configuration.FeatureIndex;
+import com.bpodgursky.jbool_expressions.And;
+import com.bpodgursky.jbool_expressions.Expression;
+import com.bpodgursky.jbool_expressions.Literal;
+import com.bpodgursky.jbool_expressions.Not;
+import com.bpodgursky.jbool_expressions.Or;
+import com.bpodgursky.jbool_expressions.Variable;
+import com.google.common.base.Preconditions;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A feature expression compiled to a postfix program over the indices of a
+ * {@link FeatureIndex}. Evaluating the program against the selected features
+ * of a configuration does not allocate memory (as long as the expression
+ * has a depth lower than 64) and does not go through the simplification
+ * rules used by {@link FExpression#assign(java.util.Map)}. Features that do
+ * not belong to the index are considered as deselected.
+ * <p>
+ * Compiled expressions are immutable and obtained using
+ * {@link FExpression#compile(FeatureIndex)}.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public final class CompiledFExpression {
+
+    static final byte FEATURE = 0;
+    static final byte CONSTANT = 1;
+    static final byte NOT = 2;
+    static final byte AND = 3;
+    static final byte OR = 4;
+
+    // Compiled expressions are memoized with their index as (weak) key, a
+    // strong reference to the index would prevent the entry to be collected
+    private final WeakReference<FeatureIndex> index;
+    private final int featuresCount;
+    private final byte[] ops;
+    // Feature index (or -1) for FEATURE, 0 or 1 for CONSTANT, arity for AND and OR
+    private final int[] args;
+    private final int maxDepth;
+
+    private CompiledFExpression(FeatureIndex index, byte[] ops, int[] args, int maxDepth) {
+        this.index = new WeakReference<>(index);
+        this.featuresCount = index.size();
+        this.ops = ops;
+        this.args = args;
+        this.maxDepth = maxDepth;
+    }
+
+    static CompiledFExpression compile(FExpression expression, FeatureIndex index) {
+        Preconditions.checkNotNull(index, "Index may not be null!");
+        Compiler compiler = new Compiler(index);
+        compiler.compile(expression.getExpression(), 1);
+        return new CompiledFExpression(index, compiler.ops, compiler.args, compiler.maxDepth);
+    }
+
+    /**
+     * Returns the feature index of this expression, or null if the index is
+     * not used anymore.
+     *
+     * @return The feature index of this expression.
+     */
+    public FeatureIndex getIndex() {
+        return index.get();
+    }
+
+    /**
+     * Returns true if this expression uses the given feature index.
+     *
+     * @param other The feature index.
+     * @return True if this expression has been compiled for the given index.
+     */
+    public boolean usesIndex(FeatureIndex other) {
+        FeatureIndex idx = index.get();
+        return idx == other || (idx != null && idx.equals(other));
+    }
+
+    /**
+     * Returns the number of instructions of the program.
+     *
+     * @return The size of the program.
+     */
+    public int size() {
+        return ops.length;
+    }
+
+    /**
+     * Evaluates this expression against the given configuration, which must
+     * use the same feature index.
+     *
+     * @param configuration The configuration.
+     * @return True if the configuration satisfies this expression.
+     */
+    public boolean evaluate(BitSetConfiguration configuration) {
+        return configuration.satisfies(this);
+    }
+
+    /**
+     * Evaluates this expression where the selected features are the set bits
+     * of the given bit set (using the feature index of this expression).
+     *
+     * @param selected The indices of the selected features.
+     * @return True if the selected features satisfy this expression.
+     */
+    public boolean evaluate(BitSet selected) {
+        if (maxDepth > Long.SIZE) {
+            return evaluateDeep(selected);
+        }
+        // Stack of booleans, top of the stack is the lowest bit
+        long stack = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            int arg = args[pc];
+            switch (ops[pc]) {
+                case FEATURE ->
+                    stack = (stack << 1) | (arg >= 0 && selected.get(arg) ? 1 : 0);
+                case CONSTANT ->
+                    stack = (stack << 1) | arg;
+                case NOT ->
+                    stack ^= 1;
+                case AND -> {
+                    long mask = arg == Long.SIZE ? -1L : (1L << arg) - 1;
+                    long value = (stack & mask) == mask ? 1 : 0;
+                    stack = ((arg == Long.SIZE ? 0 : stack >>> arg) << 1) | value;
+                }
+                case OR -> {
+                    long mask = arg == Long.SIZE ? -1L : (1L << arg) - 1;
+                    long value = (stack & mask) != 0 ? 1 : 0;
+                    stack = ((arg == Long.SIZE ? 0 : stack >>> arg) << 1) | value;
+                }
+                default ->
+                    throw new IllegalStateException("Unknown instruction " + ops[pc]);
+            }
+        }
+        return (stack & 1) != 0;
+    }
+
+    /**
+     * Evaluates this expression against up to 64 configurations at once. The
+     * i-th element of the given array gives, for the i-th feature of the
+     * index, the configurations in which the feature is selected (one bit
+     * per configuration). The result gives the configurations satisfying
+     * this expression, using the same bit numbering.
+     *
+     * @param features The configurations selecting each feature of the
+     * index.
+     * @return The configurations satisfying this expression.
+     */
+    public long evaluate(long[] features) {
+        Preconditions.checkArgument(features.length >= featuresCount, "Expected at least %s features but got %s!", featuresCount, features.length);
+        long[] stack = new long[Math.max(1, maxDepth)];
+        int top = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            int arg = args[pc];
+            switch (ops[pc]) {
+                case FEATURE ->
+                    stack[top++] = arg >= 0 ? features[arg] : 0L;
+                case CONSTANT ->
+                    stack[top++] = arg != 0 ? -1L : 0L;
+                case NOT ->
+                    stack[top - 1] = ~stack[top - 1];
+                case AND -> {
+                    long value = -1L;
+                    for (int i = top - arg; i < top; i++) {
+                        value &= stack[i];
+                    }
+                    top -= arg;
+                    stack[top++] = value;
+                }
+                case OR -> {
+                    long value = 0L;
+                    for (int i = top - arg; i < top; i++) {
+                        value |= stack[i];
+                    }
+                    top -= arg;
+                    stack[top++] = value;
+                }
+                default ->
+                    throw new IllegalStateException("Unknown instruction " + ops[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    private boolean evaluateDeep(BitSet selected) {
+        boolean[] stack = new boolean[maxDepth];
+        int top = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            int arg = args[pc];
+            switch (ops[pc]) {
+                case FEATURE ->
+                    stack[top++] = arg >= 0 && selected.get(arg);
+                case CONSTANT ->
+                    stack[top++] = arg != 0;
+                case NOT ->
+                    stack[top - 1] = !stack[top - 1];
+                case AND -> {
+                    boolean value = true;
+                    for (int i = top - arg; i < top; i++) {
+                        value &= stack[i];
+                    }
+                    top -= arg;
+                    stack[top++] = value;
+                }
+                case OR -> {
+                    boolean value = false;
+                    for (int i = top - arg; i < top; i++) {
+                        value |= stack[i];
+                    }
+                    top -= arg;
+                    stack[top++] = value;
+                }
+                default ->
+                    throw new IllegalStateException("Unknown instruction " + ops[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Translates the jbool expression to postfix instructions.
+     */
+    private static class Compiler {
+
+        private final FeatureIndex index;
+        private byte[] ops = new byte[16];
+        private int[] args = new int[16];
+        private int size = 0;
+        private int maxDepth = 0;
+
+        Compiler(FeatureIndex index) {
+            this.index = index;
+        }
+
+        private void emit(byte op, int arg) {
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+            }
+            ops[size] = op;
+            args[size] = arg;
+            size++;
+        }
+
+        /**
+         * Compiles the given expression, whose value will be at the given
+         * depth in the stack.
+         */
+        @SuppressWarnings("unchecked")
+        void compile(Expression<Feature<?>> expr, int depth) {
+            maxDepth = Math.max(maxDepth, depth);
+            switch (expr) {
+                case Literal<?> literal ->
+                    emit(CONSTANT, literal.getValue() ? 1 : 0);
+                case Variable<?> variable ->
+                    emit(FEATURE, index.indexOf(((Variable<Feature<?>>) variable).getValue()));
+                case Not<?> not -> {
+                    compile(((Not<Feature<?>>) not).getE(), depth);
+                    emit(NOT, 0);
+                }
+                case And<?> and -> {
+                    compileOperands(expr, depth);
+                    emit(AND, expr.getChildren().size());
+                }
+                case Or<?> or -> {
+                    compileOperands(expr, depth);
+                    emit(OR, expr.getChildren().size());
+                }
+                default ->
+                    throw new IllegalStateException("Some FExpression elements have not been implemented in the compiler!");
+            }
+            if (depth == 1) {
+                ops = Arrays.copyOf(ops, size);
+                args = Arrays.copyOf(args, size);
+            }
+        }
+
+        private void compileOperands(Expression<Feature<?>> expr, int depth) {
+            int d = depth;
+            for (Expression<Feature<?>> child : expr.getChildren()) {
+                compile(child, d);
+                d++;
+            }
+            if (expr.getChildren().isEmpty()) {
+                // Empty conjunction (resp. disjunction) is true (resp. false)
+                maxDepth = Math.max(maxDepth, depth);
+            }
+        }
+
+    }
+
+}
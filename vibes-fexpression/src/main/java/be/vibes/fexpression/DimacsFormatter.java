@@ -45,7 +45,33 @@ public class DimacsFormatter implements FExpressionVisitorWithReturn<Object> {
 
     private LastCallType lastCall = null;
 
+    /**
+     * Returns the DIMACS clauses of the CNF version of the given expression
+     * using the given feature mapping. Clauses are memoized per feature
+     * mapping (compared by identity) for all the expressions structurally
+     * equal to the given one.
+     *
+     * @param expression The expression to format.
+     * @param featureMapping The mapping from feature names to DIMACS
+     * variables.
+     * @return The DIMACS clauses, callers may modify the returned arrays.
+     * @throws DimacsFormatException If the expression could not be formatted.
+     */
     public static int[][] format(FExpression expression, BiMap<String, Integer> featureMapping) throws DimacsFormatException {
+        FExpressionMemo memo = expression.getMemo();
+        int[][] clauses = memo.dimacs.get(featureMapping);
+        if (clauses == null) {
+            clauses = doFormat(expression, featureMapping);
+            memo.dimacs.put(featureMapping, clauses);
+        }
+        int[][] copy = new int[clauses.length][];
+        for (int i = 0; i < clauses.length; i++) {
+            copy[i] = clauses[i].clone();
+        }
+        return copy;
+    }
+
+    private static int[][] doFormat(FExpression expression, BiMap<String, Integer> featureMapping) throws DimacsFormatException {
         DimacsFormatter form = new DimacsFormatter(featureMapping);
         Object ret;
         try {
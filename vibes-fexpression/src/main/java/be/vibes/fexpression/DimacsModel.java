@@ -25,12 +25,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static be.vibes.fexpression.Feature.feature;
+import be.vibes.fexpression.configuration.BitSetConfiguration;
+import be.vibes.fexpression.configuration.FeatureIndex;
 import be.vibes.fexpression.exception.DimacsFormatException;
 
 import com.google.common.base.CharMatcher;
@@ -82,9 +85,10 @@ public class DimacsModel {
     private final ArrayList<int[]> dimacsFD;
     private final BiMap<String, Integer> featureMapping;
     private FExpression fd;
+    private FeatureIndex featureIndex;
 
     private DimacsModel(FExpression fd) throws DimacsFormatException {
-        this.fd = fd.toCnf();
+        this.fd = fd;
         featureMapping = HashBiMap.create();
         int i = 1;
         for (Feature<?> f : fd.getFeatures()) {
@@ -92,9 +96,11 @@ public class DimacsModel {
             i++;
         }
         dimacsFD = Lists.newArrayList();
-        int[][] cnf = DimacsFormatter.format(this.fd, featureMapping);
-        for (i = 0; i < cnf.length; i++) {
-            dimacsFD.add(cnf[i]);
+        // Tseitin encoding, auxiliary variables are numbered after the features
+        int[] nextVar = {featureMapping.size() + 1};
+        int[][] clauses = TseitinFormatter.format(fd, featureMapping, () -> nextVar[0]++);
+        for (i = 0; i < clauses.length; i++) {
+            dimacsFD.add(clauses[i]);
         }
     }
 
@@ -244,4 +250,41 @@ public class DimacsModel {
         return featureMapping.size();
     }
 
+    /**
+     * Returns a dense index of the features of this model, ordered by DIMACS
+     * variable. The index is built once and may be used to create
+     * {@link BitSetConfiguration} objects sharing the same feature numbering.
+     *
+     * @return The feature index of this model.
+     */
+    public FeatureIndex getFeatureIndex() {
+        if (featureIndex == null || featureIndex.size() != featureMapping.size()) {
+            List<String> features = Lists.newArrayList(featureMapping.keySet());
+            features.sort(Comparator.comparingInt(featureMapping::get));
+            featureIndex = new FeatureIndex(features);
+        }
+        return featureIndex;
+    }
+
+    /**
+     * Returns the number of DIMACS variables used by this model, i.e., the
+     * greatest variable of the feature mapping and of the DIMACS clauses.
+     * Variables that are not in the feature mapping are auxiliary variables
+     * introduced by the Tseitin encoding of the feature diagram.
+     *
+     * @return The number of variables of this model.
+     */
+    public int getVariablesCount() {
+        int max = 0;
+        for (int var : featureMapping.values()) {
+            max = Math.max(max, var);
+        }
+        for (int[] clause : dimacsFD) {
+            for (int lit : clause) {
+                max = Math.max(max, Math.abs(lit));
+            }
+        }
+        return max;
+    }
+
 }
@@ -1,12 +1,19 @@
 package be.vibes.fexpression;
 
+import be.vibes.fexpression.configuration.BitSetConfiguration;
 import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.FeatureIndex;
 import be.vibes.fexpression.exception.FExpressionException;
 import com.bpodgursky.jbool_expressions.*;
 import com.bpodgursky.jbool_expressions.rules.RuleSet;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import java.util.*;
+import java.util.function.Function;
 
 /*
  * #%L
@@ -30,7 +37,18 @@ import java.util.*;
  */
 public class FExpression {
 
+    // Canonical (interned) expressions, compared using equals
+    private static final Interner<FExpression> INTERNER = Interners.newWeakInterner();
+
     private Expression<Feature<?>> expression;
+    // True if this expression is the canonical instance of its structure
+    private final boolean interned;
+    // Cached canonical instance of this expression, reset on modification
+    private FExpression canonical;
+    // Memoized values of the canonical instance
+    private FExpressionMemo memo;
+    // Cached hash code of interned expressions
+    private int hash;
 
     public static FExpression trueValue() {
         return new FExpression(Literal.of(true));
@@ -49,11 +67,16 @@ public class FExpression {
     }
 
     private FExpression(Expression<Feature<?>> expression) {
+        this(expression, false);
+    }
+
+    private FExpression(Expression<Feature<?>> expression, boolean interned) {
         this.expression = expression;
+        this.interned = interned;
     }
 
     public FExpression(Feature<?> feat) {
-        expression = Variable.of(feat);
+        this(Variable.of(feat));
     }
 
     public FExpression(String featureName) {
@@ -66,7 +89,13 @@ public class FExpression {
     }
 
     public Set<Feature<?>> getFeatures() {
-        return ExprUtil.getVariables(expression);
+        FExpressionMemo m = getMemo();
+        Set<Feature<?>> features = m.features;
+        if (features == null) {
+            features = ExprUtil.getVariables(expression);
+            m.features = features;
+        }
+        return Sets.newHashSet(features);
     }
 
     public Set<Feature<?>> getNegatedFeatures() {
@@ -107,7 +136,9 @@ public class FExpression {
     }
 
     public void andWith(FExpression expr) {
+        checkNotInterned();
         expression = And.of(expression, expr.getExpression());
+        canonical = null;
     }
 
     public FExpression or(FExpression expr) {
@@ -115,7 +146,9 @@ public class FExpression {
     }
 
     public void orWith(FExpression expr) {
+        checkNotInterned();
         expression = Or.of(expression, expr.getExpression());
+        canonical = null;
     }
 
     public FExpression not() {
@@ -123,16 +156,105 @@ public class FExpression {
     }
 
     public void notWith() {
+        checkNotInterned();
         expression = Not.of(expression);
+        canonical = null;
+    }
+
+    private void checkNotInterned() {
+        if (interned) {
+            throw new UnsupportedOperationException("Interned FExpression may not be modified, use copy() first!");
+        }
     }
     
+    /**
+     * Returns a new modifiable expression equal to this one.
+     *
+     * @return A copy of this expression.
+     */
     public FExpression copy(){
-        return new FExpression(expression);
+        FExpression copy = new FExpression(expression);
+        copy.canonical = canonical;
+        return copy;
+    }
+
+    // Interning
+
+    /**
+     * Returns the canonical instance of this expression: structurally equal
+     * expressions have the same canonical instance, which allows to compare
+     * them using ==. Canonical instances may not be modified (andWith, orWith
+     * and notWith throw an UnsupportedOperationException) and share a memo
+     * holding their CNF, features, DIMACS clauses, etc.
+     *
+     * @return The canonical instance of this expression.
+     */
+    public FExpression intern() {
+        FExpression c = canonical;
+        if (c == null) {
+            FExpression candidate = interned ? this : new FExpression(expression, true);
+            c = INTERNER.intern(candidate);
+            if (c == candidate) {
+                c.canonical = c;
+            }
+            canonical = c;
+        }
+        return c;
+    }
+
+    /**
+     * Returns true if this expression is a canonical instance.
+     *
+     * @return True if this expression has been returned by intern().
+     * @see #intern()
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    FExpressionMemo getMemo() {
+        FExpression c = intern();
+        FExpressionMemo m = c.memo;
+        if (m == null) {
+            synchronized (c) {
+                m = c.memo;
+                if (m == null) {
+                    m = new FExpressionMemo();
+                    c.memo = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Returns the value associated to the given key in the memo shared by
+     * all the expressions structurally equal to this one, computing it using
+     * the given function if absent. Keys are compared by identity and weakly
+     * referenced: a value is dropped when its key is garbage collected. This
+     * allows, e.g., to cache the BDD of an expression per BDD factory.
+     *
+     * @param <V> The type of the memoized value.
+     * @param key The key of the value (e.g., a BDD factory).
+     * @param compute The function used to compute the value from the
+     * canonical instance of this expression.
+     * @return The memoized value.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V memoize(Object key, Function<FExpression, V> compute) {
+        Preconditions.checkNotNull(key, "Key may not be null!");
+        return (V) getMemo().values.computeIfAbsent(key, (k) -> compute.apply(intern()));
     }
 
     // Normal forms
     public FExpression toCnf() {
-        return new FExpression(RuleSet.toCNF(expression));
+        FExpressionMemo m = getMemo();
+        FExpression cnf = m.cnf;
+        if (cnf == null) {
+            cnf = new FExpression(RuleSet.toCNF(expression)).intern();
+            m.cnf = cnf;
+        }
+        return cnf.copy();
     }
 
     public FExpression toDnf() {
@@ -141,12 +263,78 @@ public class FExpression {
 
     // Assignements 
     
+    /**
+     * Assigns all the features of this expression using the given
+     * configuration (deselected features are assigned to false). As all the
+     * features are assigned, the result is always true or false.
+     *
+     * @param config The configuration.
+     * @return FExpression.trueValue() if the configuration satisfies this
+     * expression, FExpression.falseValue() otherwise.
+     * @see #evaluate(Configuration)
+     */
     public FExpression assign(Configuration config) {
-        Map<Feature<?>, Boolean> assignements = Maps.newHashMap();
-        for(Feature<?> f : getFeatures()){
-            assignements.put(f, config.isSelected(f));
+        return evaluate(config) ? trueValue() : falseValue();
+    }
+
+    /**
+     * Returns true if the given configuration satisfies this expression
+     * (deselected features are considered false). Configurations using a
+     * {@link BitSetConfiguration} are evaluated using the compiled version
+     * of this expression for their feature index.
+     *
+     * @param config The configuration.
+     * @return True if the configuration satisfies this expression.
+     */
+    public boolean evaluate(Configuration config) {
+        if (config instanceof BitSetConfiguration bitSetConfig) {
+            return bitSetConfig.satisfies(compile(bitSetConfig.getIndex()));
         }
-        return assign(assignements);
+        return evaluate(expression, config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean evaluate(Expression<Feature<?>> expr, Configuration config) {
+        switch (expr) {
+            case Literal<?> literal -> {
+                return literal.getValue();
+            }
+            case Variable<?> variable -> {
+                return config.isSelected(((Variable<Feature<?>>) variable).getValue());
+            }
+            case Not<?> not -> {
+                return !evaluate(((Not<Feature<?>>) not).getE(), config);
+            }
+            case And<?> and -> {
+                for (Expression<Feature<?>> e : expr.getChildren()) {
+                    if (!evaluate(e, config)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case Or<?> or -> {
+                for (Expression<Feature<?>> e : expr.getChildren()) {
+                    if (evaluate(e, config)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case null, default ->
+                    throw new IllegalStateException("Some FExpression elements have not been implemented in the evaluator!");
+        }
+    }
+
+    /**
+     * Returns this expression compiled to a postfix program over the given
+     * feature index. Compiled expressions are memoized per feature index.
+     *
+     * @param index The feature index.
+     * @return The compiled expression.
+     */
+    public CompiledFExpression compile(FeatureIndex index) {
+        return memoize(index, (e) -> CompiledFExpression.compile(e, index));
     }
 
     public FExpression assignTrue(Feature<?> f) {
@@ -185,6 +373,22 @@ public class FExpression {
     // Method Redefinitions
     @Override
     public int hashCode() {
+        if (interned) {
+            int h = hash;
+            if (h == 0) {
+                h = structuralHashCode();
+                hash = h;
+            }
+            return h;
+        }
+        FExpression c = canonical;
+        if (c != null) {
+            return c.hashCode();
+        }
+        return structuralHashCode();
+    }
+
+    private int structuralHashCode() {
         int hash = 7;
         hash = 23 * hash + Objects.hashCode(this.expression);
         return hash;
@@ -192,12 +396,17 @@ public class FExpression {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
+        if (this == obj) {
+            return true;
         }
         if (!(obj instanceof FExpression other)) {
             return false;
         }
+        FExpression c1 = canonical;
+        FExpression c2 = other.canonical;
+        if (c1 != null && c2 != null) {
+            return c1 == c2;
+        }
         return Objects.equals(this.expression, other.expression);
     }
 
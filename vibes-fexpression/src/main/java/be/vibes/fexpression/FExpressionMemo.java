@@ -0,0 +1,48 @@
+package be.vibes.fexpression;
+
+/*-
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.collect.MapMaker;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Values memoized for a canonical (interned) FExpression and shared by all
+ * the expressions structurally equal to it.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+final class FExpressionMemo {
+
+    // CNF version of the expression (interned)
+    volatile FExpression cnf;
+
+    // Features of the expression
+    volatile Set<Feature<?>> features;
+
+    // DIMACS clauses of the expression per feature mapping (compared by identity)
+    final ConcurrentMap<Object, int[][]> dimacs = new MapMaker().weakKeys().makeMap();
+
+    // Other memoized values (compared by identity)
+    final ConcurrentMap<Object, Object> values = new MapMaker().weakKeys().makeMap();
+
+}
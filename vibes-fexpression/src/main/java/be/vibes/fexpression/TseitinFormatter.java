@@ -0,0 +1,301 @@
+package be.vibes.fexpression;
+
+/*-
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * Copyright 2025 Sophie Fortz
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.fexpression.exception.DimacsFormatException;
+import be.vibes.fexpression.exception.FExpressionException;
+import com.google.common.collect.BiMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Formats feature expressions to DIMACS clauses using the Tseitin
+ * transformation: each sub-expression is represented by a fresh auxiliary
+ * variable, which makes the number of clauses linear in the size of the
+ * expression (whereas {@link DimacsFormatter} first converts the expression
+ * to CNF, which may be exponential). The produced clauses are equisatisfiable
+ * with the expression.
+ * <p>
+ * {@link #format(FExpression, BiMap, IntSupplier)} defines auxiliary
+ * variables by equivalences: each valuation of the features satisfying the
+ * expression has exactly one extension to the auxiliary variables, which
+ * preserves the number of solutions. {@link #formatGuarded(FExpression, BiMap,
+ * IntSupplier, int)} uses the Plaisted-Greenbaum transformation (auxiliary
+ * variables only imply their sub-expression with the polarity in which it
+ * appears) and is meant for satisfiability checking only.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class TseitinFormatter implements FExpressionVisitorWithReturn<Integer> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TseitinFormatter.class);
+
+    private final BiMap<String, Integer> featureMapping;
+    private final IntSupplier newVariable;
+    private final boolean equivalence;
+    private final List<int[]> clauses;
+    // True if the sub-expression being encoded appears positively
+    private boolean positive;
+
+    /**
+     * Returns clauses equisatisfiable with the given expression. Auxiliary
+     * variables are created using the given supplier and are defined by
+     * equivalences.
+     *
+     * @param expression The expression to format.
+     * @param featureMapping The mapping from feature names to DIMACS
+     * variables.
+     * @param newVariable Supplier of fresh DIMACS variables (strictly
+     * positive and not used in the feature mapping).
+     * @return The clauses.
+     * @throws DimacsFormatException If a feature is not in the mapping.
+     */
+    public static int[][] format(FExpression expression, BiMap<String, Integer> featureMapping, IntSupplier newVariable) throws DimacsFormatException {
+        TseitinFormatter form = new TseitinFormatter(featureMapping, newVariable, true);
+        form.assertRoot(expression.applySimplification(), 0);
+        logger.trace("Tseitin version of expression {} has {} clauses", expression, form.clauses.size());
+        return form.clauses.toArray(new int[0][]);
+    }
+
+    /**
+     * Returns clauses such that the given selector implies the given
+     * expression: when the selector is true, the clauses are equisatisfiable
+     * with the expression, when the selector is false, the clauses are always
+     * satisfiable. Auxiliary variables are created using the given supplier
+     * and are defined using the Plaisted-Greenbaum transformation.
+     *
+     * @param expression The expression to format.
+     * @param featureMapping The mapping from feature names to DIMACS
+     * variables.
+     * @param newVariable Supplier of fresh DIMACS variables.
+     * @param selector The selector variable guarding the expression.
+     * @return The clauses.
+     * @throws DimacsFormatException If a feature is not in the mapping.
+     */
+    public static int[][] formatGuarded(FExpression expression, BiMap<String, Integer> featureMapping, IntSupplier newVariable, int selector) throws DimacsFormatException {
+        TseitinFormatter form = new TseitinFormatter(featureMapping, newVariable, false);
+        form.assertRoot(expression.applySimplification(), selector);
+        logger.trace("Plaisted-Greenbaum version of expression {} has {} clauses", expression, form.clauses.size());
+        return form.clauses.toArray(new int[0][]);
+    }
+
+    TseitinFormatter(BiMap<String, Integer> featureMapping, IntSupplier newVariable, boolean equivalence) {
+        this.featureMapping = checkNotNull(featureMapping, "Feature mapping may not be null!");
+        this.newVariable = checkNotNull(newVariable, "Variable supplier may not be null!");
+        this.equivalence = equivalence;
+        this.clauses = new ArrayList<>();
+    }
+
+    /**
+     * Adds the clauses asserting the given expression (guarded by the given
+     * selector if it is not 0). Top level conjunctions and disjunctions of
+     * literals are added directly, without auxiliary variable.
+     */
+    private void assertRoot(FExpression expression, int selector) throws DimacsFormatException {
+        if (expression.isTrue()) {
+            return;
+        }
+        if (expression.isFalse()) {
+            addRoot(selector);
+            return;
+        }
+        try {
+            List<FExpression> conjuncts = expression.accept(new Conjuncts());
+            if (conjuncts == null) {
+                conjuncts = List.of(expression);
+            }
+            for (FExpression conjunct : conjuncts) {
+                int[] literals = conjunct.accept(new LiteralsClause());
+                if (literals == null) {
+                    positive = true;
+                    literals = new int[]{conjunct.accept(this)};
+                }
+                addRoot(selector, literals);
+            }
+        } catch (DimacsFormatException ex) {
+            throw ex;
+        } catch (FExpressionException ex) {
+            throw new DimacsFormatException("Could not format expression " + expression + "!", ex);
+        }
+    }
+
+    private void addRoot(int selector, int... literals) {
+        if (selector == 0) {
+            clauses.add(literals);
+        } else {
+            int[] guarded = new int[literals.length + 1];
+            guarded[0] = -selector;
+            System.arraycopy(literals, 0, guarded, 1, literals.length);
+            clauses.add(guarded);
+        }
+    }
+
+    @Override
+    public Integer constant(boolean val) {
+        int aux = newVariable.getAsInt();
+        clauses.add(new int[]{val ? aux : -aux});
+        return aux;
+    }
+
+    @Override
+    public Integer feature(Feature<?> feature) throws DimacsFormatException {
+        Integer var = featureMapping.get(feature.getFeatureName());
+        if (var == null) {
+            throw new DimacsFormatException("Feature " + feature + " not found in DIMACS mapping!");
+        }
+        return var;
+    }
+
+    @Override
+    public Integer not(FExpression expr) throws FExpressionException {
+        positive = !positive;
+        int lit = expr.accept(this);
+        positive = !positive;
+        return -lit;
+    }
+
+    @Override
+    public Integer and(List<FExpression> operands) throws FExpressionException {
+        return define(operands, true);
+    }
+
+    @Override
+    public Integer or(List<FExpression> operands) throws FExpressionException {
+        return define(operands, false);
+    }
+
+    /**
+     * Defines a new auxiliary variable x for the conjunction (or disjunction)
+     * of the given operands: x -&gt; op_i for all i (resp. x -&gt; op_1 | ...
+     * | op_n) if the expression appears positively, and op_1 &amp; ... &amp;
+     * op_n -&gt; x (resp. op_i -&gt; x for all i) if it appears negatively.
+     */
+    private int define(List<FExpression> operands, boolean conjunction) throws FExpressionException {
+        int[] lits = new int[operands.size()];
+        for (int i = 0; i < lits.length; i++) {
+            lits[i] = operands.get(i).accept(this);
+        }
+        int aux = newVariable.getAsInt();
+        boolean impliesOperands = equivalence || positive;
+        boolean impliedByOperands = equivalence || !positive;
+        // Clauses for x -> big op (conjunction) and big op -> x (disjunction)
+        if ((conjunction && impliesOperands) || (!conjunction && impliedByOperands)) {
+            int sign = conjunction ? 1 : -1;
+            for (int lit : lits) {
+                clauses.add(new int[]{-sign * aux, sign * lit});
+            }
+        }
+        // Clauses for big op -> x (conjunction) and x -> big op (disjunction)
+        if ((conjunction && impliedByOperands) || (!conjunction && impliesOperands)) {
+            int sign = conjunction ? 1 : -1;
+            int[] clause = new int[lits.length + 1];
+            clause[0] = sign * aux;
+            for (int i = 0; i < lits.length; i++) {
+                clause[i + 1] = -sign * lits[i];
+            }
+            clauses.add(clause);
+        }
+        return aux;
+    }
+
+    /**
+     * Returns the operands of a top level conjunction, or null if the
+     * expression is not a conjunction.
+     */
+    private static class Conjuncts implements FExpressionVisitorWithReturn<List<FExpression>> {
+
+        @Override
+        public List<FExpression> constant(boolean val) {
+            return null;
+        }
+
+        @Override
+        public List<FExpression> feature(Feature<?> feature) {
+            return null;
+        }
+
+        @Override
+        public List<FExpression> not(FExpression expr) {
+            return null;
+        }
+
+        @Override
+        public List<FExpression> and(List<FExpression> operands) {
+            return operands;
+        }
+
+        @Override
+        public List<FExpression> or(List<FExpression> operands) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Returns the literals of a disjunction of literals (or of a literal), or
+     * null if the expression is not a disjunction of literals.
+     */
+    private class LiteralsClause implements FExpressionVisitorWithReturn<int[]> {
+
+        @Override
+        public int[] constant(boolean val) {
+            return null;
+        }
+
+        @Override
+        public int[] feature(Feature<?> feature) throws DimacsFormatException {
+            return new int[]{TseitinFormatter.this.feature(feature)};
+        }
+
+        @Override
+        public int[] not(FExpression expr) throws FExpressionException {
+            int[] lit = expr.accept(this);
+            return lit == null || lit.length != 1 ? null : new int[]{-lit[0]};
+        }
+
+        @Override
+        public int[] and(List<FExpression> operands) {
+            return null;
+        }
+
+        @Override
+        public int[] or(List<FExpression> operands) throws FExpressionException {
+            int[] lits = new int[operands.size()];
+            for (int i = 0; i < lits.length; i++) {
+                int[] lit = operands.get(i).accept(this);
+                if (lit == null || lit.length != 1) {
+                    return null;
+                }
+                lits[i] = lit[0];
+            }
+            return lits;
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+package be.vibes.fexpression.configuration;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * Copyright 2025 Sophie Fortz
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import be.vibes.fexpression.CompiledFExpression;
+import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.exception.ConfigurationException;
+import com.google.common.base.Preconditions;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link Configuration} storing its selected features in a bit set, using
+ * the numbering of a {@link FeatureIndex}. Features that do not belong to the
+ * index may not be selected.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class BitSetConfiguration implements Configuration {
+
+    private final FeatureIndex index;
+    private final BitSet selected;
+
+    /**
+     * Creates a new configuration without selected features.
+     *
+     * @param index The index of the features.
+     */
+    public BitSetConfiguration(FeatureIndex index) {
+        this(index, new BitSet(index.size()));
+    }
+
+    /**
+     * Creates a new configuration with the given selected features. The bit
+     * set is not copied.
+     *
+     * @param index The index of the features.
+     * @param selected The indices of the selected features.
+     */
+    public BitSetConfiguration(FeatureIndex index, BitSet selected) {
+        this.index = Preconditions.checkNotNull(index, "Index may not be null!");
+        this.selected = Preconditions.checkNotNull(selected, "Selected features may not be null!");
+        Preconditions.checkArgument(selected.length() <= index.size(), "Selected features out of the index!");
+    }
+
+    public FeatureIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns a copy of the indices of the selected features.
+     *
+     * @return The indices of the selected features.
+     */
+    public BitSet getSelected() {
+        return (BitSet) selected.clone();
+    }
+
+    @Override
+    public void selectFeature(Feature<?> feature) throws ConfigurationException {
+        int i = index.indexOf(feature);
+        if (i < 0) {
+            throw new ConfigurationException("Feature " + feature + " is not in the feature index!");
+        }
+        selected.set(i);
+    }
+
+    /**
+     * Selects the feature with the given index.
+     *
+     * @param i The index of the feature.
+     */
+    public void selectFeature(int i) {
+        Preconditions.checkElementIndex(i, index.size());
+        selected.set(i);
+    }
+
+    @Override
+    public void deselectFeature(Feature<?> feature) {
+        int i = index.indexOf(feature);
+        if (i >= 0) {
+            selected.clear(i);
+        }
+    }
+
+    /**
+     * Deselects the feature with the given index.
+     *
+     * @param i The index of the feature.
+     */
+    public void deselectFeature(int i) {
+        selected.clear(i);
+    }
+
+    @Override
+    public boolean isSelected(Feature<?> feature) {
+        int i = index.indexOf(feature);
+        return i >= 0 && selected.get(i);
+    }
+
+    /**
+     * Returns true if the feature with the given index is selected.
+     *
+     * @param i The index of the feature.
+     * @return True if the feature is selected.
+     */
+    public boolean isSelected(int i) {
+        return selected.get(i);
+    }
+
+    /**
+     * Returns true if this configuration satisfies the given compiled
+     * expression, which must use the same feature index.
+     *
+     * @param expression The compiled expression.
+     * @return True if the selected features satisfy the expression.
+     */
+    public boolean satisfies(CompiledFExpression expression) {
+        Preconditions.checkArgument(expression.usesIndex(index),
+                "Expression does not use the feature index of the configuration!");
+        return expression.evaluate(selected);
+    }
+
+    @Override
+    public Feature<?>[] getFeatures() {
+        Feature<?>[] features = new Feature<?>[selected.cardinality()];
+        int k = 0;
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            features[k++] = index.getFeature(i);
+        }
+        return features;
+    }
+
+    @Override
+    public Iterator<Feature<?>> iterator() {
+        return new Iterator<>() {
+
+            private int next = selected.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Feature<?> next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                Feature<?> f = index.getFeature(next);
+                next = selected.nextSetBit(next + 1);
+                return f;
+            }
+
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("BitSetConfiguration [features=[");
+        Iterator<Feature<?>> it = iterator();
+        while (it.hasNext()) {
+            builder.append(it.next());
+            if (it.hasNext()) {
+                builder.append(", ");
+            }
+        }
+        return builder.append("]]").toString();
+    }
+
+    /**
+     * Returns the same hash code as a {@link SimpleConfiguration} selecting
+     * the same features.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            hash += index.hashCode(i);
+        }
+        return 31 + hash;
+    }
+
+    /**
+     * Returns true if the given object is a BitSetConfiguration or a
+     * {@link SimpleConfiguration} selecting the same features.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof BitSetConfiguration other) {
+            if (index == other.index || index.equals(other.index)) {
+                return selected.equals(other.selected);
+            }
+            return sameFeatures(other);
+        } else if (obj instanceof SimpleConfiguration other) {
+            return sameFeatures(other);
+        }
+        return false;
+    }
+
+    private boolean sameFeatures(Configuration other) {
+        int count = 0;
+        for (Feature<?> f : other) {
+            if (!isSelected(f)) {
+                return false;
+            }
+            count++;
+        }
+        return count == selected.cardinality();
+    }
+
+}
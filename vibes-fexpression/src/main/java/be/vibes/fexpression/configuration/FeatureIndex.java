@@ -0,0 +1,141 @@
+package be.vibes.fexpression.configuration;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * Copyright 2025 Sophie Fortz
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import be.vibes.fexpression.Feature;
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dense numbering of the features of a feature model: each feature name is
+ * associated to an index between 0 and size() - 1. Indices are used by
+ * {@link BitSetConfiguration} to store selected features in a bit set.
+ * Indexes are immutable and may be shared between configurations.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public final class FeatureIndex {
+
+    private final String[] names;
+    private final Feature<?>[] features;
+    // Hash codes of the features
+    private final int[] hashes;
+    private final Map<String, Integer> indices;
+
+    /**
+     * Creates a new index, features are numbered in the given order.
+     *
+     * @param featureNames The names of the features.
+     * @throws IllegalArgumentException If a name appears more than once.
+     */
+    public FeatureIndex(List<String> featureNames) {
+        Preconditions.checkNotNull(featureNames, "Feature names may not be null!");
+        this.names = featureNames.toArray(new String[0]);
+        this.features = new Feature<?>[names.length];
+        this.hashes = new int[names.length];
+        this.indices = new HashMap<>((int) (features.length / 0.75f) + 1);
+        for (int i = 0; i < features.length; i++) {
+            String name = names[i];
+            Preconditions.checkArgument(indices.put(name, i) == null, "Feature %s appears more than once!", name);
+            features[i] = Feature.feature(name);
+            hashes[i] = features[i].hashCode();
+        }
+    }
+
+    public FeatureIndex(String... featureNames) {
+        this(Arrays.asList(featureNames));
+    }
+
+    /**
+     * Returns the index of the feature with the given name, or -1 if the
+     * feature is not in this index.
+     *
+     * @param featureName The name of the feature.
+     * @return The index of the feature, or -1.
+     */
+    public int indexOf(String featureName) {
+        Integer i = indices.get(featureName);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns the index of the given feature, or -1 if the feature is not in
+     * this index.
+     *
+     * @param feature The feature.
+     * @return The index of the feature, or -1.
+     */
+    public int indexOf(Feature<?> feature) {
+        return feature == null ? -1 : indexOf(feature.getFeatureName());
+    }
+
+    /**
+     * Returns the feature with the given index. The same Feature object is
+     * returned for each call.
+     *
+     * @param index The index of the feature.
+     * @return The feature.
+     */
+    public Feature<?> getFeature(int index) {
+        return features[index];
+    }
+
+    /**
+     * Returns the hash code of the feature with the given index.
+     */
+    int hashCode(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * Returns the number of features in this index.
+     *
+     * @return The number of features.
+     */
+    public int size() {
+        return features.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(names);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FeatureIndex other)) {
+            return false;
+        }
+        return Arrays.equals(names, other.names);
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureIndex" + Arrays.toString(names);
+    }
+
+}
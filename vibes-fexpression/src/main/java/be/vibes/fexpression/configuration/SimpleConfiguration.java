@@ -104,6 +104,9 @@ public class SimpleConfiguration implements Configuration {
         if (obj == null) {
             return false;
         }
+        if (obj instanceof BitSetConfiguration) {
+            return obj.equals(this);
+        }
         if (getClass() != obj.getClass()) {
             return false;
         }
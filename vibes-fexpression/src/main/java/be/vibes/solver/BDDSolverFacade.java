@@ -21,9 +21,11 @@ package be.vibes.solver;
  * #L%
  */
 
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.collect.Lists;
@@ -33,7 +35,8 @@ import net.sf.javabdd.BDD.AllSatIterator;
 import net.sf.javabdd.BDDFactory;
 import be.vibes.fexpression.FExpression;
 import be.vibes.fexpression.configuration.Configuration;
-import be.vibes.fexpression.configuration.SimpleConfiguration;
+import be.vibes.fexpression.configuration.BitSetConfiguration;
+import be.vibes.fexpression.configuration.FeatureIndex;
 import be.vibes.fexpression.DimacsModel;
 import be.vibes.fexpression.Feature;
 import be.vibes.fexpression.exception.FExpressionException;
@@ -46,13 +49,25 @@ public class BDDSolverFacade implements SolverFacade {
 
     private static final Logger logger = LoggerFactory.getLogger(BDDSolverFacade.class);
 
+    private static final int NODES_PER_FEATURE = 1000;
+    private static final int MIN_INITIAL_NODES = 10000;
+    private static final int MAX_INITIAL_NODES = 4000000;
+    private static final int MAX_INCREASE = 1000000;
+
     private final BDDFactory factory;
     private final Map<String, BDD> featureMapping;
     private final BDD model;
-    private final Map<ConstraintIdentifier, BDD> constraints;
     private final String[] featureNames;
+    private final FeatureIndex featureIndex;
 
-    private BDD modelAndContraints = null;
+    // Added constraints and their BDDs, in insertion order
+    private final List<ConstraintIdentifier> constraintIds;
+    private final List<BDD> constraints;
+    // conjunctions.get(i) is the conjunction of the model and of the first i
+    // constraints, the top of the stack represents the current problem
+    private final List<BDD> conjunctions;
+    // Memoized satCount of the conjunctions (NaN if not computed)
+    private final List<Double> satCounts;
 
     public BDDSolverFacade(DimacsModel model) {
         this(model.getFeatures(), model.getFd());
@@ -64,41 +79,63 @@ public class BDDSolverFacade implements SolverFacade {
 
     public BDDSolverFacade(List<String> features, FExpression featureDiagram) {
         this.featureMapping = Maps.newHashMap();
-        this.constraints = Maps.newHashMap();
-        /* Initialize with reasonable nodes and cache size and NxN variables */
+        this.constraintIds = Lists.newArrayList();
+        this.constraints = Lists.newArrayList();
+        this.conjunctions = Lists.newArrayList();
+        this.satCounts = Lists.newArrayList();
+        /* Initial node table size grows with the number of features, the
+         * factory then grows the table on demand (geometrically, up to
+         * maxIncrease nodes at a time) */
         String numOfNodes = System.getProperty("bddnodes");
         int numberOfNodes;
         if (numOfNodes == null) {
-            numberOfNodes = features.size() * 1000000 + 1;
+            numberOfNodes = (int) Math.min(MAX_INITIAL_NODES, (long) features.size() * NODES_PER_FEATURE);
         } else {
             numberOfNodes = Integer.parseInt(numOfNodes);
         }
+        numberOfNodes = Math.max(MIN_INITIAL_NODES, numberOfNodes);
         String cache = System.getProperty("bddcache");
         int cacheSize;
         if (cache == null) {
-            cacheSize = 1000;
+            cacheSize = Math.max(1000, numberOfNodes / 10);
         } else {
             cacheSize = Integer.parseInt(cache);
         }
-        numberOfNodes = Math.max(1000, numberOfNodes);
         this.factory = BDDFactory.init("java", numberOfNodes, cacheSize);
+        this.factory.setIncreaseFactor(2);
+        this.factory.setMaxIncrease(Math.max(numberOfNodes, MAX_INCREASE));
         if (this.factory.varNum() < features.size()) {
             this.factory.setVarNum(features.size());
         }
         // Initialize feature variables
         int i = 0;
         featureNames = features.toArray(new String[0]);
+        featureIndex = new FeatureIndex(featureNames);
         for (String name : featureNames) {
             this.featureMapping.put(name, this.factory.ithVar(i));
             i++;
         }
         // Build BDD representing the feature model
-        try {
-            this.model = featureDiagram.applySimplification().accept(new FExpressionBDDBuilder(this.factory,
-                    this.featureMapping));
-        } catch (FExpressionException ex) {
-            throw new IllegalStateException("No exception should happen while using FExpressionBDDBuilder visitor!", ex);
-        }
+        this.model = toBDD(featureDiagram.applySimplification());
+        this.conjunctions.add(this.model.id());
+        this.satCounts.add(Double.NaN);
+        logger.debug("BDD of the model has {} nodes, node table size is {} for {} features",
+                this.model.nodeCount(), this.factory.getNodeTableSize(), featureNames.length);
+    }
+
+    /**
+     * Returns the BDD of the given expression. BDDs are memoized in the
+     * expression for this facade.
+     */
+    private BDD toBDD(FExpression expression) {
+        BDD bdd = expression.memoize(this.featureMapping, (e) -> {
+            try {
+                return e.accept(new FExpressionBDDBuilder(this.factory, this.featureMapping));
+            } catch (FExpressionException ex) {
+                throw new IllegalStateException("No exception should happen while using FExpressionBDDBuilder visitor!", ex);
+            }
+        });
+        return bdd.id();
     }
 
     @Override
@@ -109,90 +146,216 @@ public class BDDSolverFacade implements SolverFacade {
     @Override
     public ConstraintIdentifier addConstraint(FExpression constraint)
             throws SolverInitializationException {
-        try {
-            ConstraintIdentifier id = new BDDConstraintIdentifier(constraint);
-            BDD c = constraint.accept(new FExpressionBDDBuilder(this.factory, this.featureMapping));
-            constraints.put(id, c);
-            if(modelAndContraints != null){
-                modelAndContraints = modelAndContraints.and(c);
-            }
-            return id;
-        } catch (FExpressionException ex) {
-            throw new IllegalStateException("No exception should happen while using FExpressionBDDBuilder visitor!", ex);
-        }
+        ConstraintIdentifier id = new BDDConstraintIdentifier(constraint);
+        BDD c = toBDD(constraint);
+        constraintIds.add(id);
+        constraints.add(c);
+        push(c);
+        return id;
+    }
+
+    private BDD top() {
+        return conjunctions.get(conjunctions.size() - 1);
+    }
+
+    private void push(BDD constraint) {
+        conjunctions.add(top().and(constraint));
+        satCounts.add(Double.NaN);
+    }
+
+    private void pop() {
+        conjunctions.remove(conjunctions.size() - 1).free();
+        satCounts.remove(satCounts.size() - 1);
     }
 
     @Override
     public void removeConstraint(ConstraintIdentifier id)
             throws ConstraintNotFoundException {
-        if (constraints.remove(id) == null) {
+        int index = constraintIds.lastIndexOf(id);
+        if (index < 0) {
             throw new ConstraintNotFoundException("Constraint not found: " + id);
         }
-        modelAndContraints = null;
+        // Pop the conjunctions down to the removed constraint and push back
+        // the constraints added after it (nothing to push back if the
+        // removed constraint is the last one)
+        while (conjunctions.size() > index + 1) {
+            pop();
+        }
+        constraintIds.remove(index);
+        constraints.remove(index).free();
+        for (int i = index; i < constraints.size(); i++) {
+            push(constraints.get(i));
+        }
     }
 
     @Override
     public boolean isSatisfiable() throws ConstraintSolvingException {
-        if (modelAndContraints == null) {
-            buildModelAndConstraints();
-        }
-        return this.modelAndContraints.satCount() > 0;
+        return !top().isZero();
     }
 
+    /**
+     * Returns the solutions of the model and the added constraints. Solutions
+     * are computed lazily from the cubes of the BDD (see {@link #getCubes()})
+     * and are {@link BitSetConfiguration}s using the feature index of this
+     * facade. The iterator is not affected by constraints added or removed
+     * after its creation.
+     *
+     * @return An iterator over the solutions.
+     * @throws ConstraintSolvingException Never thrown.
+     */
     @Override
     public Iterator<Configuration> getSolutions() throws ConstraintSolvingException {
-        if (modelAndContraints == null) {
-            buildModelAndConstraints();
-        }
-        AllSatIterator it = this.modelAndContraints.allsat();
-        List<Configuration> res = Lists.newArrayList();
-        while (it.hasNext()) {
-            byte[] assignation = it.nextSat();
-            checkState(assignation.length == featureNames.length);
-            addConfigurations(res, assignation, 0, new SimpleConfiguration());
-        }
-        logger.trace("BDDSolver: {} solutions found", res.size());
-        return res.iterator();
-    }
-
-    private void addConfigurations(List<Configuration> res, byte[] assignation, int i, SimpleConfiguration conf) {
-        if (i >= assignation.length) {
-            res.add(conf);
-        } else if (assignation[i] > 0) {
-            conf.selectFeature(Feature.feature(featureNames[i]));
-            addConfigurations(res, assignation, i + 1, conf);
-        } else if (assignation[i] < 0) {
-            SimpleConfiguration conf2 = new SimpleConfiguration(conf.getFeatures());
-            conf.selectFeature(Feature.feature(featureNames[i]));
-            // Add one conf without feature selected
-            addConfigurations(res, assignation, i + 1, conf2);
-            // Add one conf with feature selected
-            addConfigurations(res, assignation, i + 1, conf);
-        } else {
-            addConfigurations(res, assignation, i + 1, conf);
+        return new SolutionsIterator(getCubes());
+    }
+
+    /**
+     * Returns the cubes (i.e., partial assignments) of the model and the
+     * added constraints. Each cube is an array indexed using the feature
+     * index of this facade, where 1 means selected, 0 means deselected and -1
+     * means that both values are possible. Cubes are disjoint and computed
+     * lazily. The iterator is not affected by constraints added or removed
+     * after its creation.
+     *
+     * @return An iterator over the cubes.
+     */
+    public Iterator<byte[]> getCubes() {
+        return new CubesIterator(top().id());
+    }
+
+    /**
+     * Returns the index of the features used by the configurations and cubes
+     * returned by this facade.
+     *
+     * @return The feature index.
+     */
+    public FeatureIndex getFeatureIndex() {
+        return featureIndex;
+    }
+
+    private class CubesIterator implements Iterator<byte[]> {
+
+        // Reference to the BDD, freed at the end of the iteration
+        private BDD bdd;
+        private final AllSatIterator it;
+
+        CubesIterator(BDD bdd) {
+            this.bdd = bdd;
+            this.it = bdd.allsat();
         }
+
+        @Override
+        public boolean hasNext() {
+            if (it.hasNext()) {
+                return true;
+            }
+            if (bdd != null) {
+                bdd.free();
+                bdd = null;
+            }
+            return false;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] cube = it.nextSat();
+            checkState(cube.length == featureNames.length);
+            return cube.clone();
+        }
+
     }
 
-    @Override
-    public void reset() throws SolverInitializationException {
-        this.constraints.clear();
-        this.buildModelAndConstraints();
+    /**
+     * Expands the don't cares of the cubes one configuration at a time.
+     */
+    private class SolutionsIterator implements Iterator<Configuration> {
+
+        private final Iterator<byte[]> cubes;
+        private final BitSet selected = new BitSet();
+        private int[] dontCares = new int[0];
+        // Values of the don't cares of the next solution (binary counter)
+        private final BitSet counter = new BitSet();
+        private boolean pending = false;
+
+        SolutionsIterator(Iterator<byte[]> cubes) {
+            this.cubes = cubes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending) {
+                return true;
+            }
+            if (!cubes.hasNext()) {
+                return false;
+            }
+            byte[] cube = cubes.next();
+            selected.clear();
+            int nbDontCares = 0;
+            for (int i = 0; i < cube.length; i++) {
+                if (cube[i] > 0) {
+                    selected.set(i);
+                } else if (cube[i] < 0) {
+                    nbDontCares++;
+                }
+            }
+            dontCares = new int[nbDontCares];
+            nbDontCares = 0;
+            for (int i = 0; i < cube.length; i++) {
+                if (cube[i] < 0) {
+                    dontCares[nbDontCares++] = i;
+                }
+            }
+            counter.clear();
+            pending = true;
+            return true;
+        }
+
+        @Override
+        public Configuration next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BitSet solution = (BitSet) selected.clone();
+            for (int j = counter.nextSetBit(0); j >= 0; j = counter.nextSetBit(j + 1)) {
+                solution.set(dontCares[j]);
+            }
+            // Increment the counter
+            int j = counter.nextClearBit(0);
+            if (j >= dontCares.length) {
+                pending = false;
+            } else {
+                counter.set(j);
+                counter.clear(0, j);
+            }
+            return new BitSetConfiguration(featureIndex, solution);
+        }
+
     }
 
     @Override
-    public double getNumberOfSolutions() throws ConstraintSolvingException {
-        if (modelAndContraints == null) {
-            buildModelAndConstraints();
+    public void reset() throws SolverInitializationException {
+        while (conjunctions.size() > 1) {
+            pop();
         }
-        return modelAndContraints.satCount();
+        for (BDD c : constraints) {
+            c.free();
+        }
+        constraintIds.clear();
+        constraints.clear();
     }
 
-    private void buildModelAndConstraints() {
-        modelAndContraints = factory.one();
-        modelAndContraints = modelAndContraints.and(model);
-        for (BDD c : constraints.values()) {
-            modelAndContraints = modelAndContraints.and(c);
+    @Override
+    public double getNumberOfSolutions() throws ConstraintSolvingException {
+        int top = satCounts.size() - 1;
+        double count = satCounts.get(top);
+        if (Double.isNaN(count)) {
+            count = top().satCount();
+            satCounts.set(top, count);
         }
+        return count;
     }
 
 }
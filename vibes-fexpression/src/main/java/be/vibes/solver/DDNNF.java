@@ -0,0 +1,596 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.DimacsModel;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import java.io.*;
+import java.math.BigInteger;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A feature model compiled to a smooth decision-DNNF circuit. The circuit is
+ * compiled once (see {@link #compile(DimacsModel)}) and then answers
+ * satisfiability, counting, enumeration and uniform sampling queries
+ * conditioned by assumptions (i.e., literals assumed to be true) in time
+ * linear in the size of the circuit. Circuits are serializable and may be
+ * saved to disk to avoid recompilation.
+ * <p>
+ * Nodes are stored in arrays in topological order (children before their
+ * parents): constants, literals, free variables (i.e., v || !v), decomposable
+ * conjunctions and deterministic disjunctions (decisions on a variable). All
+ * the children of a disjunction have the same variables, and the root has
+ * all the variables of the models.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class DDNNF implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(DDNNF.class);
+
+    static final byte TRUE = 0;
+    static final byte FALSE = 1;
+    static final byte LITERAL = 2;
+    static final byte FREE = 3;
+    static final byte AND = 4;
+    static final byte OR = 5;
+
+    private final int nbVariables;
+    private final HashBiMap<String, Integer> featureMapping;
+    private final byte[] types;
+    // Literal of LITERAL nodes and variable of FREE nodes
+    private final int[] literals;
+    private final int[][] children;
+    private final int root;
+    // Compiled clauses and variables, used to conjoin new clauses
+    private final int[][] clauses;
+    private final BitSet variables;
+
+    private DDNNF(int nbVariables, HashBiMap<String, Integer> featureMapping, byte[] types, int[] literals, int[][] children, int root,
+            int[][] clauses, BitSet variables) {
+        this.nbVariables = nbVariables;
+        this.featureMapping = featureMapping;
+        this.types = types;
+        this.literals = literals;
+        this.children = children;
+        this.root = root;
+        this.clauses = clauses;
+        this.variables = variables;
+    }
+
+    /**
+     * Compiles the clauses of the given model. The models of the circuit are
+     * defined over the features and the variables used in the clauses of the
+     * model, other variables (e.g., unused variable identifiers) are ignored.
+     *
+     * @param model The model to compile.
+     * @return The d-DNNF of the model.
+     */
+    public static DDNNF compile(DimacsModel model) {
+        Preconditions.checkNotNull(model, "Model may not be null!");
+        BitSet variables = new BitSet(model.getVariablesCount() + 1);
+        for (int var : model.getFeatureMapping().values()) {
+            variables.set(var);
+        }
+        for (int[] clause : model.getDimacsFD()) {
+            for (int lit : clause) {
+                variables.set(Math.abs(lit));
+            }
+        }
+        return compile(model.getDimacsFD(), model.getVariablesCount(), variables, model.getFeatureMapping());
+    }
+
+    /**
+     * Compiles the given clauses.
+     *
+     * @param clauses The clauses to compile, using variables between 1 and
+     * nbVariables.
+     * @param nbVariables The number of variables.
+     * @param featureMapping The mapping from feature names to variables.
+     * Variables that are not mapped to a feature are auxiliary variables that
+     * must be functionally determined by the features (e.g., Tseitin
+     * variables).
+     * @return The d-DNNF of the clauses.
+     */
+    public static DDNNF compile(Collection<int[]> clauses, int nbVariables, BiMap<String, Integer> featureMapping) {
+        BitSet variables = new BitSet(nbVariables + 1);
+        variables.set(1, nbVariables + 1);
+        return compile(clauses, nbVariables, variables, featureMapping);
+    }
+
+    /**
+     * Compiles the given clauses over the given variables.
+     *
+     * @param clauses The clauses to compile, using variables between 1 and
+     * nbVariables.
+     * @param nbVariables The number of variables.
+     * @param variables The variables of the models, including the variables
+     * of the clauses. Other variables are false in the models.
+     * @param featureMapping The mapping from feature names to variables.
+     * @return The d-DNNF of the clauses.
+     */
+    public static DDNNF compile(Collection<int[]> clauses, int nbVariables, BitSet variables, BiMap<String, Integer> featureMapping) {
+        Preconditions.checkNotNull(clauses, "Clauses may not be null!");
+        Preconditions.checkNotNull(variables, "Variables may not be null!");
+        Preconditions.checkNotNull(featureMapping, "Feature mapping may not be null!");
+        Preconditions.checkArgument(variables.nextSetBit(nbVariables + 1) < 0 && !variables.get(0),
+                "Variables must be between 1 and %s!", nbVariables);
+        long start = System.currentTimeMillis();
+        Compiler compiler = new Compiler();
+        List<int[]> normalized = new ArrayList<>(clauses.size());
+        for (int[] clause : clauses) {
+            int[] c = ModelCounter.normalize(clause);
+            if (c != null) {
+                normalized.add(c);
+            }
+        }
+        int root = compiler.decompose(normalized, new int[0], (BitSet) variables.clone());
+        DDNNF ddnnf = new DDNNF(nbVariables, HashBiMap.create(featureMapping), compiler.toTypes(),
+                compiler.literals.stream().mapToInt(Integer::intValue).toArray(),
+                compiler.children.toArray(new int[0][]), root,
+                normalized.toArray(new int[0][]), (BitSet) variables.clone());
+        logger.debug("Compiled {} clauses over {} variables to d-DNNF with {} nodes in {} ms",
+                clauses.size(), nbVariables, ddnnf.getNodesCount(), System.currentTimeMillis() - start);
+        return ddnnf;
+    }
+
+    /**
+     * Compiles the conjunction of this circuit with the given clauses.
+     * Variables greater than {@link #getVariablesCount()} are auxiliary
+     * variables that must be functionally determined by the variables of this
+     * circuit (e.g., Tseitin variables defined by equivalences), so that the
+     * models of the result are the models of this circuit satisfying the
+     * clauses, extended with the values of the auxiliary variables.
+     *
+     * @param others The clauses to conjoin, using variables between 1 and
+     * nbVariables.
+     * @param nbVariables The number of variables, including the auxiliary
+     * variables.
+     * @return The d-DNNF of the conjunction.
+     */
+    public DDNNF conjoin(Collection<int[]> others, int nbVariables) {
+        Preconditions.checkNotNull(others, "Clauses may not be null!");
+        Preconditions.checkArgument(nbVariables >= this.nbVariables,
+                "Number of variables must be at least %s!", this.nbVariables);
+        Preconditions.checkState(clauses != null, "Compiled clauses are not available!");
+        if (others.isEmpty()) {
+            return this;
+        }
+        List<int[]> all = new ArrayList<>(clauses.length + others.size());
+        all.addAll(Arrays.asList(clauses));
+        all.addAll(others);
+        BitSet vars = (BitSet) variables.clone();
+        vars.set(this.nbVariables + 1, nbVariables + 1);
+        return compile(all, nbVariables, vars, featureMapping);
+    }
+
+    /**
+     * Loads a d-DNNF saved using {@link #save(File)}.
+     *
+     * @param file The file to read.
+     * @return The d-DNNF.
+     * @throws IOException If the file could not be read.
+     */
+    public static DDNNF load(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Loads a d-DNNF saved using {@link #save(OutputStream)}.
+     *
+     * @param in The input stream to read.
+     * @return The d-DNNF.
+     * @throws IOException If the stream could not be read.
+     */
+    public static DDNNF load(InputStream in) throws IOException {
+        ObjectInputStream input = new ObjectInputStream(in);
+        try {
+            return (DDNNF) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Stream does not contain a d-DNNF!", e);
+        }
+    }
+
+    /**
+     * Saves this d-DNNF to the given file.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void save(File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            save(out);
+        }
+    }
+
+    /**
+     * Saves this d-DNNF to the given output stream.
+     *
+     * @param out The output stream.
+     * @throws IOException If the d-DNNF could not be written.
+     */
+    public void save(OutputStream out) throws IOException {
+        ObjectOutputStream output = new ObjectOutputStream(out);
+        output.writeObject(this);
+        output.flush();
+    }
+
+    public BiMap<String, Integer> getFeatureMapping() {
+        return featureMapping;
+    }
+
+    public int getVariablesCount() {
+        return nbVariables;
+    }
+
+    public int getNodesCount() {
+        return types.length;
+    }
+
+    /**
+     * Returns the value of each variable in the given assumptions (1 if
+     * true, -1 if false, 0 if not assigned), or null if the assumptions are
+     * contradictory.
+     */
+    private byte[] values(int[] assumptions) {
+        byte[] values = new byte[nbVariables + 1];
+        for (int lit : assumptions) {
+            int var = Math.abs(lit);
+            Preconditions.checkArgument(var >= 1 && var <= nbVariables, "Unknown variable %s!", var);
+            byte value = (byte) Integer.signum(lit);
+            if (values[var] == -value) {
+                return null;
+            }
+            values[var] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Returns true if there is a model satisfying the given assumptions.
+     *
+     * @param assumptions The literals assumed to be true.
+     * @return True if the circuit is satisfiable under the given assumptions.
+     */
+    public boolean isSatisfiable(int... assumptions) {
+        byte[] values = values(assumptions);
+        if (values == null) {
+            return false;
+        }
+        boolean[] sat = new boolean[types.length];
+        for (int n = 0; n < types.length; n++) {
+            switch (types[n]) {
+                case TRUE, FREE ->
+                    sat[n] = true;
+                case FALSE ->
+                    sat[n] = false;
+                case LITERAL ->
+                    sat[n] = values[Math.abs(literals[n])] != -Integer.signum(literals[n]);
+                case AND -> {
+                    sat[n] = true;
+                    for (int c : children[n]) {
+                        if (!sat[c]) {
+                            sat[n] = false;
+                            break;
+                        }
+                    }
+                }
+                case OR -> {
+                    sat[n] = false;
+                    for (int c : children[n]) {
+                        if (sat[c]) {
+                            sat[n] = true;
+                            break;
+                        }
+                    }
+                }
+                default ->
+                    throw new IllegalStateException("Unknown node type " + types[n]);
+            }
+        }
+        return sat[root];
+    }
+
+    /**
+     * Returns the number of models of the circuit satisfying the given
+     * assumptions.
+     *
+     * @param assumptions The literals assumed to be true.
+     * @return The number of models.
+     */
+    public BigInteger count(int... assumptions) {
+        BigInteger[] counts = counts(assumptions);
+        return counts == null ? BigInteger.ZERO : counts[root];
+    }
+
+    /**
+     * Returns the number of models of each node under the given assumptions,
+     * or null if the assumptions are contradictory.
+     */
+    private BigInteger[] counts(int[] assumptions) {
+        byte[] values = values(assumptions);
+        if (values == null) {
+            return null;
+        }
+        BigInteger two = BigInteger.TWO;
+        BigInteger[] counts = new BigInteger[types.length];
+        for (int n = 0; n < types.length; n++) {
+            switch (types[n]) {
+                case TRUE ->
+                    counts[n] = BigInteger.ONE;
+                case FALSE ->
+                    counts[n] = BigInteger.ZERO;
+                case LITERAL ->
+                    counts[n] = values[Math.abs(literals[n])] == -Integer.signum(literals[n]) ? BigInteger.ZERO : BigInteger.ONE;
+                case FREE ->
+                    counts[n] = values[literals[n]] == 0 ? two : BigInteger.ONE;
+                case AND -> {
+                    BigInteger count = BigInteger.ONE;
+                    for (int c : children[n]) {
+                        count = count.multiply(counts[c]);
+                        if (count.signum() == 0) {
+                            break;
+                        }
+                    }
+                    counts[n] = count;
+                }
+                case OR -> {
+                    BigInteger count = BigInteger.ZERO;
+                    for (int c : children[n]) {
+                        count = count.add(counts[c]);
+                    }
+                    counts[n] = count;
+                }
+                default ->
+                    throw new IllegalStateException("Unknown node type " + types[n]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns a model of the circuit satisfying the given assumptions, chosen
+     * uniformly at random, or null if there is no such model.
+     *
+     * @param random The random generator to use.
+     * @param assumptions The literals assumed to be true.
+     * @return The values of the variables (index 0 is unused), or null.
+     */
+    public boolean[] sample(Random random, int... assumptions) {
+        Preconditions.checkNotNull(random, "Random may not be null!");
+        BigInteger[] counts = counts(assumptions);
+        if (counts == null || counts[root].signum() == 0) {
+            return null;
+        }
+        BigInteger total = counts[root];
+        BigInteger index;
+        do {
+            index = new BigInteger(total.bitLength(), random);
+        } while (index.compareTo(total) >= 0);
+        return model(counts, values(assumptions), index);
+    }
+
+    /**
+     * Returns the models of the circuit satisfying the given assumptions.
+     * Models are computed lazily.
+     *
+     * @param assumptions The literals assumed to be true.
+     * @return An iterator over the values of the variables of the models
+     * (index 0 is unused).
+     */
+    public Iterator<boolean[]> models(int... assumptions) {
+        BigInteger[] counts = counts(assumptions);
+        if (counts == null) {
+            return Collections.emptyIterator();
+        }
+        byte[] values = values(assumptions);
+        BigInteger total = counts[root];
+        return new Iterator<>() {
+
+            private BigInteger next = BigInteger.ZERO;
+
+            @Override
+            public boolean hasNext() {
+                return next.compareTo(total) < 0;
+            }
+
+            @Override
+            public boolean[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                boolean[] model = model(counts, values, next);
+                next = next.add(BigInteger.ONE);
+                return model;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the model with the given index (between 0 and the number of
+     * models of the root).
+     */
+    private boolean[] model(BigInteger[] counts, byte[] values, BigInteger index) {
+        boolean[] model = new boolean[nbVariables + 1];
+        Deque<Integer> nodes = new ArrayDeque<>();
+        Deque<BigInteger> indices = new ArrayDeque<>();
+        nodes.push(root);
+        indices.push(index);
+        while (!nodes.isEmpty()) {
+            int n = nodes.pop();
+            BigInteger i = indices.pop();
+            switch (types[n]) {
+                case LITERAL ->
+                    model[Math.abs(literals[n])] = literals[n] > 0;
+                case FREE ->
+                    model[literals[n]] = values[literals[n]] == 0 ? i.testBit(0) : values[literals[n]] > 0;
+                case AND -> {
+                    // Mixed radix decomposition of the index
+                    for (int c : children[n]) {
+                        BigInteger[] qr = i.divideAndRemainder(counts[c]);
+                        nodes.push(c);
+                        indices.push(qr[1]);
+                        i = qr[0];
+                    }
+                }
+                case OR -> {
+                    for (int c : children[n]) {
+                        if (i.compareTo(counts[c]) < 0) {
+                            nodes.push(c);
+                            indices.push(i);
+                            break;
+                        }
+                        i = i.subtract(counts[c]);
+                    }
+                }
+                default -> {
+                    // TRUE has nothing to assign, FALSE is never reached
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Builds the circuit bottom-up using a DPLL-style search with component
+     * decomposition and caching (see {@link ModelCounter}).
+     */
+    private static class Compiler {
+
+        private final List<Byte> types = new ArrayList<>();
+        private final List<Integer> literals = new ArrayList<>();
+        private final List<int[]> children = new ArrayList<>();
+        private final Map<ModelCounter.ComponentKey, Integer> cache = new HashMap<>();
+        private final Map<Integer, Integer> literalNodes = new HashMap<>();
+        private final Map<Integer, Integer> freeNodes = new HashMap<>();
+        private final int trueNode;
+        private final int falseNode;
+
+        Compiler() {
+            trueNode = add(TRUE, 0, new int[0]);
+            falseNode = add(FALSE, 0, new int[0]);
+        }
+
+        private int add(byte type, int literal, int[] nodeChildren) {
+            types.add(type);
+            literals.add(literal);
+            children.add(nodeChildren);
+            return types.size() - 1;
+        }
+
+        private byte[] toTypes() {
+            byte[] array = new byte[types.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = types.get(i);
+            }
+            return array;
+        }
+
+        private int literal(int lit) {
+            return literalNodes.computeIfAbsent(lit, (l) -> add(LITERAL, l, new int[0]));
+        }
+
+        private int free(int var) {
+            return freeNodes.computeIfAbsent(var, (v) -> add(FREE, v, new int[0]));
+        }
+
+        private int and(List<Integer> nodes) {
+            if (nodes.isEmpty()) {
+                return trueNode;
+            } else if (nodes.size() == 1) {
+                return nodes.get(0);
+            }
+            return add(AND, 0, nodes.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * Returns the node of the given clauses after assignment of the given
+         * literals. The node has all the given variables.
+         */
+        private int decompose(List<int[]> clauses, int[] assumptions, BitSet variables) {
+            List<Integer> assigned = new ArrayList<>();
+            List<int[]> reduced = ModelCounter.propagate(clauses, assumptions, variables, assigned);
+            if (reduced == null) {
+                return falseNode;
+            }
+            List<Integer> nodes = new ArrayList<>();
+            for (int lit : assigned) {
+                nodes.add(literal(lit));
+            }
+            // Free variables
+            BitSet free = (BitSet) variables.clone();
+            for (int[] clause : reduced) {
+                for (int lit : clause) {
+                    free.clear(Math.abs(lit));
+                }
+            }
+            for (int var = free.nextSetBit(0); var >= 0; var = free.nextSetBit(var + 1)) {
+                nodes.add(free(var));
+            }
+            // Independent components
+            for (List<int[]> component : ModelCounter.components(reduced)) {
+                int node = compileComponent(component);
+                if (node == falseNode) {
+                    return falseNode;
+                }
+                nodes.add(node);
+            }
+            return and(nodes);
+        }
+
+        private int compileComponent(List<int[]> component) {
+            ModelCounter.ComponentKey key = new ModelCounter.ComponentKey(component);
+            Integer node = cache.get(key);
+            if (node != null) {
+                return node;
+            }
+            BitSet variables = new BitSet();
+            int branch = ModelCounter.branchingVariable(component, variables);
+            List<Integer> nodes = new ArrayList<>(2);
+            for (int lit : new int[]{branch, -branch}) {
+                int n = decompose(component, new int[]{lit}, (BitSet) variables.clone());
+                if (n != falseNode) {
+                    nodes.add(n);
+                }
+            }
+            if (nodes.isEmpty()) {
+                node = falseNode;
+            } else if (nodes.size() == 1) {
+                node = nodes.get(0);
+            } else {
+                node = add(OR, 0, new int[]{nodes.get(0), nodes.get(1)});
+            }
+            cache.put(key, node);
+            return node;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.FExpression;
+
+public class DDNNFConstraintIdentifier extends DefaultConstraintIdentifier {
+
+    private final int[][] clauses;
+    private final int auxiliaryVariablesCount;
+
+    DDNNFConstraintIdentifier(FExpression constraint, int[][] clauses, int auxiliaryVariablesCount) {
+        super(constraint);
+        this.clauses = clauses;
+        this.auxiliaryVariablesCount = auxiliaryVariablesCount;
+    }
+
+    int[][] getClauses() {
+        return clauses;
+    }
+
+    int getAuxiliaryVariablesCount() {
+        return auxiliaryVariablesCount;
+    }
+
+}
@@ -0,0 +1,262 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import be.vibes.fexpression.DimacsModel;
+import be.vibes.fexpression.FExpression;
+import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.TseitinFormatter;
+import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.SimpleConfiguration;
+import be.vibes.fexpression.exception.DimacsFormatException;
+import be.vibes.solver.exception.ConstraintNotFoundException;
+import be.vibes.solver.exception.ConstraintSolvingException;
+import be.vibes.solver.exception.SolverInitializationException;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.math.BigInteger;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Solver facade answering queries using a feature model compiled to
+ * d-DNNF (see {@link DDNNF}). Added constraints are converted to CNF using
+ * the Tseitin transformation and conjoined to the d-DNNF of the feature
+ * model (see {@link DDNNF#conjoin(Collection, int)}) once per set of
+ * constraints. The d-DNNFs of the last sets of constraints are cached.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class DDNNFSolverFacade implements SolverFacade {
+
+    private static final Logger logger = LoggerFactory.getLogger(DDNNFSolverFacade.class);
+
+    /**
+     * Number of sets of constraints whose d-DNNF is kept in cache.
+     */
+    public static final int COMPILED_CACHE_SIZE = 16;
+
+    private final DDNNF ddnnf;
+    private final Set<ConstraintIdentifier> constraints;
+
+    // d-DNNF of the feature model and the constraints, null if outdated
+    private DDNNF constrained;
+    // d-DNNFs of the last sets of constraints (in access order)
+    private final Map<Set<FExpression>, DDNNF> compiled;
+
+    public DDNNFSolverFacade(DimacsModel model) {
+        this(DDNNF.compile(model));
+    }
+
+    public DDNNFSolverFacade(DDNNF ddnnf) {
+        this.ddnnf = checkNotNull(ddnnf, "d-DNNF may not be null!");
+        this.constraints = new LinkedHashSet<>();
+        this.compiled = new LinkedHashMap<>(COMPILED_CACHE_SIZE, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Set<FExpression>, DDNNF> eldest) {
+                return size() > COMPILED_CACHE_SIZE;
+            }
+
+        };
+    }
+
+    public DDNNF getDDNNF() {
+        return ddnnf;
+    }
+
+    @Override
+    public SolverType getType() {
+        return SolverType.DDNNF;
+    }
+
+    /**
+     * Adds the given constraint. Auxiliary variables of the Tseitin clauses
+     * of the constraint are numbered from the number of variables of the
+     * d-DNNF plus one, and renumbered when the constraints are conjoined.
+     */
+    @Override
+    public ConstraintIdentifier addConstraint(FExpression constraint) throws SolverInitializationException {
+        FExpression simplified = constraint.applySimplification();
+        int[][] clauses;
+        int[] auxiliaries = {0};
+        if (simplified.isTrue()) {
+            clauses = new int[0][];
+        } else if (simplified.isFalse()) {
+            clauses = new int[][]{new int[0]};
+        } else {
+            try {
+                clauses = TseitinFormatter.format(simplified, ddnnf.getFeatureMapping(),
+                        () -> ddnnf.getVariablesCount() + ++auxiliaries[0]);
+            } catch (DimacsFormatException ex) {
+                logger.error("Exception while formatting contraint {}!", constraint, ex);
+                throw new SolverInitializationException("Could not format constraint to DIMACS to add to solver", ex);
+            }
+        }
+        DDNNFConstraintIdentifier id = new DDNNFConstraintIdentifier(constraint, clauses, auxiliaries[0]);
+        constraints.add(id);
+        constrained = null;
+        return id;
+    }
+
+    @Override
+    public void removeConstraint(ConstraintIdentifier id) throws ConstraintNotFoundException {
+        if (!constraints.remove(id)) {
+            throw new ConstraintNotFoundException("Constraint not found: " + id);
+        }
+        constrained = null;
+    }
+
+    @Override
+    public boolean isSatisfiable() throws ConstraintSolvingException {
+        return getConstrained().isSatisfiable();
+    }
+
+    @Override
+    public Iterator<Configuration> getSolutions() throws ConstraintSolvingException {
+        return Iterators.transform(getConstrained().models(), this::toConfiguration);
+    }
+
+    @Override
+    public void reset() throws SolverInitializationException {
+        constraints.clear();
+        constrained = null;
+    }
+
+    @Override
+    public double getNumberOfSolutions() throws ConstraintSolvingException {
+        return countSolutions().doubleValue();
+    }
+
+    /**
+     * Returns the exact number of solutions of the feature model and the
+     * added constraints.
+     *
+     * @return The number of solutions.
+     */
+    public BigInteger countSolutions() {
+        return getConstrained().count();
+    }
+
+    /**
+     * Returns a solution of the feature model and the added constraints
+     * chosen uniformly at random, or null if there is no solution.
+     *
+     * @param random The random generator to use.
+     * @return A random solution, or null.
+     */
+    public Configuration sample(Random random) {
+        checkNotNull(random, "Random may not be null!");
+        boolean[] model = getConstrained().sample(random);
+        return model == null ? null : toConfiguration(model);
+    }
+
+    /**
+     * Returns true if the given feature is selected in all the solutions of
+     * the feature model and the added constraints.
+     *
+     * @param feature The name of the feature.
+     * @return True if the feature is core.
+     */
+    public boolean isCore(String feature) {
+        return !getConstrained().isSatisfiable(-getVariable(feature));
+    }
+
+    /**
+     * Returns true if the given feature is selected in none of the solutions
+     * of the feature model and the added constraints.
+     *
+     * @param feature The name of the feature.
+     * @return True if the feature is dead.
+     */
+    public boolean isDead(String feature) {
+        return !getConstrained().isSatisfiable(getVariable(feature));
+    }
+
+    private int getVariable(String feature) {
+        Integer var = ddnnf.getFeatureMapping().get(feature);
+        checkArgument(var != null, "Unknown feature %s!", feature);
+        return var;
+    }
+
+    private Configuration toConfiguration(boolean[] model) {
+        SimpleConfiguration config = new SimpleConfiguration();
+        for (Map.Entry<String, Integer> e : ddnnf.getFeatureMapping().entrySet()) {
+            if (model[e.getValue()]) {
+                config.selectFeature(Feature.feature(e.getKey()));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Returns the d-DNNF of the feature model and the added constraints. The
+     * auxiliary variables of the constraints are renumbered after the
+     * variables of the feature model and are determined by the features, so
+     * that they do not change the number of solutions.
+     */
+    private DDNNF getConstrained() {
+        if (constrained == null) {
+            if (constraints.isEmpty()) {
+                constrained = ddnnf;
+            } else {
+                Set<FExpression> key = Sets.newHashSet();
+                for (ConstraintIdentifier id : constraints) {
+                    key.add(id.getConstraint());
+                }
+                constrained = compiled.get(key);
+                if (constrained == null) {
+                    constrained = compile();
+                    compiled.put(key, constrained);
+                }
+            }
+        }
+        return constrained;
+    }
+
+    private DDNNF compile() {
+        int base = ddnnf.getVariablesCount();
+        int offset = 0;
+        List<int[]> clauses = Lists.newArrayList();
+        for (ConstraintIdentifier id : constraints) {
+            DDNNFConstraintIdentifier ddnnfId = (DDNNFConstraintIdentifier) id;
+            for (int[] clause : ddnnfId.getClauses()) {
+                int[] renumbered = clause.clone();
+                for (int i = 0; i < renumbered.length; i++) {
+                    if (Math.abs(renumbered[i]) > base) {
+                        renumbered[i] += Integer.signum(renumbered[i]) * offset;
+                    }
+                }
+                clauses.add(renumbered);
+            }
+            offset += ddnnfId.getAuxiliaryVariablesCount();
+        }
+        logger.trace("Conjoining {} clauses of {} constraints", clauses.size(), constraints.size());
+        return ddnnf.conjoin(clauses, base + offset);
+    }
+
+}
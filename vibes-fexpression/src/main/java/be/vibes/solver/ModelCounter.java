@@ -0,0 +1,402 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Preconditions;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exact model counter (#SAT) for DIMACS clauses. The counter is a DPLL-style
+ * search with unit propagation, decomposition of the formula into
+ * independent components (the number of models of a formula is the product
+ * of the number of models of its components) and caching of the number of
+ * models of the components already encountered. Models are never
+ * enumerated.
+ * <p>
+ * The component cache is kept between calls to
+ * {@link #count(Collection, BitSet)}, which allows to efficiently count
+ * models of the same feature model conditioned by different constraints.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class ModelCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCounter.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+
+    private static final Comparator<int[]> CLAUSE_ORDER = (c1, c2) -> Arrays.compare(c1, c2);
+
+    private final int maxCacheSize;
+    private final Map<ComponentKey, BigInteger> cache;
+
+    public ModelCounter() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new model counter. When the cache holds more than the given
+     * number of components, it is cleared.
+     *
+     * @param maxCacheSize The maximal number of cached components.
+     */
+    public ModelCounter(int maxCacheSize) {
+        Preconditions.checkArgument(maxCacheSize >= 0, "Cache size must be positive!");
+        this.maxCacheSize = maxCacheSize;
+        this.cache = new HashMap<>();
+    }
+
+    /**
+     * Returns the number of assignments of the variables 1 to nbVariables
+     * satisfying the given clauses.
+     *
+     * @param clauses The clauses, using variables between 1 and nbVariables.
+     * @param nbVariables The number of variables.
+     * @return The number of models of the clauses.
+     */
+    public BigInteger count(Collection<int[]> clauses, int nbVariables) {
+        BitSet variables = new BitSet(nbVariables + 1);
+        variables.set(1, nbVariables + 1);
+        return count(clauses, variables);
+    }
+
+    /**
+     * Returns the number of assignments of the given variables satisfying
+     * the given clauses. Variables that do not appear in the clauses are
+     * free: each of them doubles the number of models.
+     *
+     * @param clauses The clauses, using only the given variables.
+     * @param variables The variables.
+     * @return The number of models of the clauses.
+     */
+    public BigInteger count(Collection<int[]> clauses, BitSet variables) {
+        Preconditions.checkNotNull(clauses, "Clauses may not be null!");
+        Preconditions.checkNotNull(variables, "Variables may not be null!");
+        List<int[]> normalized = new ArrayList<>(clauses.size());
+        for (int[] clause : clauses) {
+            int[] c = normalize(clause);
+            if (c != null) {
+                Preconditions.checkArgument(c.length == 0 || variables.get(Math.abs(c[0])) && variables.get(Math.abs(c[c.length - 1])),
+                        "Clause %s uses unknown variables!", Arrays.toString(clause));
+                normalized.add(c);
+            }
+        }
+        BitSet free = (BitSet) variables.clone();
+        List<int[]> simplified = propagate(normalized, new int[0], free);
+        if (simplified == null) {
+            return BigInteger.ZERO;
+        }
+        BigInteger result = countComponents(simplified, free);
+        logger.trace("{} models found for {} clauses over {} variables (cache size is {})",
+                result, clauses.size(), variables.cardinality(), cache.size());
+        return result;
+    }
+
+    /**
+     * Clears the cache of this counter.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Sorts the literals of the clause by variable and removes duplicates.
+     * Returns null if the clause is a tautology.
+     */
+    static int[] normalize(int[] clause) {
+        int[] c = clause.clone();
+        sortByVariable(c);
+        int size = 0;
+        for (int i = 0; i < c.length; i++) {
+            if (size > 0 && Math.abs(c[size - 1]) == Math.abs(c[i])) {
+                if (c[size - 1] != c[i]) {
+                    return null;
+                }
+            } else {
+                c[size++] = c[i];
+            }
+        }
+        return size == c.length ? c : Arrays.copyOf(c, size);
+    }
+
+    private static void sortByVariable(int[] clause) {
+        // Insertion sort, clauses are usually short
+        for (int i = 1; i < clause.length; i++) {
+            int lit = clause[i];
+            int j = i - 1;
+            while (j >= 0 && compareLiterals(clause[j], lit) > 0) {
+                clause[j + 1] = clause[j];
+                j--;
+            }
+            clause[j + 1] = lit;
+        }
+    }
+
+    private static int compareLiterals(int l1, int l2) {
+        int cmp = Integer.compare(Math.abs(l1), Math.abs(l2));
+        return cmp != 0 ? cmp : Integer.compare(l1, l2);
+    }
+
+    /**
+     * Assigns the given literals, applies unit propagation and returns the
+     * remaining clauses (without satisfied clauses and falsified literals),
+     * or null if a conflict is reached. Assigned variables are removed from
+     * the given variables.
+     */
+    static List<int[]> propagate(List<int[]> clauses, int[] literals, BitSet variables) {
+        return propagate(clauses, literals, variables, null);
+    }
+
+    /**
+     * Same as {@link #propagate(List, int[], BitSet)}, the assigned literals
+     * are added to the given list (if not null).
+     */
+    static List<int[]> propagate(List<int[]> clauses, int[] literals, BitSet variables, List<Integer> assigned) {
+        // Assigned literals, indexed by variable (1: true, -1: false)
+        Map<Integer, Integer> assignment = new HashMap<>();
+        List<Integer> queue = new ArrayList<>();
+        for (int lit : literals) {
+            queue.add(lit);
+        }
+        List<int[]> current = clauses;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int lit : queue) {
+                Integer value = assignment.get(Math.abs(lit));
+                if (value != null && value != Integer.signum(lit)) {
+                    return null;
+                } else if (value == null) {
+                    assignment.put(Math.abs(lit), Integer.signum(lit));
+                    variables.clear(Math.abs(lit));
+                    if (assigned != null) {
+                        assigned.add(lit);
+                    }
+                }
+            }
+            queue.clear();
+            List<int[]> reduced = new ArrayList<>(current.size());
+            for (int[] clause : current) {
+                int[] c = reduce(clause, assignment);
+                if (c == null) {
+                    continue;
+                }
+                if (c.length == 0) {
+                    return null;
+                }
+                if (c.length == 1) {
+                    queue.add(c[0]);
+                    changed = true;
+                } else {
+                    reduced.add(c);
+                }
+            }
+            current = reduced;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the clause without falsified literals, or null if the clause is
+     * satisfied.
+     */
+    private static int[] reduce(int[] clause, Map<Integer, Integer> assignment) {
+        if (assignment.isEmpty()) {
+            return clause;
+        }
+        int size = 0;
+        int[] c = null;
+        for (int i = 0; i < clause.length; i++) {
+            Integer value = assignment.get(Math.abs(clause[i]));
+            if (value == null) {
+                if (c != null) {
+                    c[size] = clause[i];
+                }
+                size++;
+            } else if (value == Integer.signum(clause[i])) {
+                return null;
+            } else if (c == null) {
+                c = Arrays.copyOf(clause, clause.length);
+            }
+        }
+        return c == null ? clause : Arrays.copyOf(c, size);
+    }
+
+    /**
+     * Counts the models of the given clauses over the given (unassigned)
+     * variables: splits the clauses into independent components and
+     * multiplies their number of models by 2^f, where f is the number of
+     * variables not appearing in the clauses.
+     */
+    private BigInteger countComponents(List<int[]> clauses, BitSet variables) {
+        BitSet free = (BitSet) variables.clone();
+        for (int[] clause : clauses) {
+            for (int lit : clause) {
+                free.clear(Math.abs(lit));
+            }
+        }
+        BigInteger result = BigInteger.ONE.shiftLeft(free.cardinality());
+        for (List<int[]> component : components(clauses)) {
+            BigInteger count = countComponent(component);
+            if (count.signum() == 0) {
+                return BigInteger.ZERO;
+            }
+            result = result.multiply(count);
+        }
+        return result;
+    }
+
+    /**
+     * Splits the clauses into connected components (two clauses are
+     * connected if they share a variable) using a union-find.
+     */
+    static List<List<int[]>> components(List<int[]> clauses) {
+        Map<Integer, Integer> parent = new HashMap<>();
+        for (int[] clause : clauses) {
+            int root = find(parent, Math.abs(clause[0]));
+            for (int i = 1; i < clause.length; i++) {
+                int other = find(parent, Math.abs(clause[i]));
+                if (other != root) {
+                    parent.put(other, root);
+                }
+            }
+        }
+        Map<Integer, List<int[]>> components = new HashMap<>();
+        for (int[] clause : clauses) {
+            components.computeIfAbsent(find(parent, Math.abs(clause[0])), (k) -> new ArrayList<>()).add(clause);
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    private static int find(Map<Integer, Integer> parent, int var) {
+        int root = var;
+        Integer p;
+        while ((p = parent.get(root)) != null) {
+            root = p;
+        }
+        // Path compression
+        while ((p = parent.get(var)) != null && p != root) {
+            parent.put(var, root);
+            var = p;
+        }
+        return root;
+    }
+
+    /**
+     * Counts the models of a connected component over its variables.
+     */
+    private BigInteger countComponent(List<int[]> component) {
+        ComponentKey key = new ComponentKey(component);
+        BigInteger result = cache.get(key);
+        if (result != null) {
+            return result;
+        }
+        BitSet variables = new BitSet();
+        int branch = branchingVariable(component, variables);
+        result = BigInteger.ZERO;
+        for (int lit : new int[]{branch, -branch}) {
+            BitSet remaining = (BitSet) variables.clone();
+            List<int[]> reduced = propagate(component, new int[]{lit}, remaining);
+            if (reduced != null) {
+                result = result.add(countComponents(reduced, remaining));
+            }
+        }
+        if (cache.size() >= maxCacheSize) {
+            logger.trace("Model counter cache full, clearing it");
+            cache.clear();
+        }
+        cache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Returns the most frequent variable of the given component and adds its
+     * variables to the given set.
+     */
+    static int branchingVariable(List<int[]> component, BitSet variables) {
+        Map<Integer, Integer> occurrences = new HashMap<>();
+        for (int[] clause : component) {
+            for (int lit : clause) {
+                variables.set(Math.abs(lit));
+                occurrences.merge(Math.abs(lit), 1, Integer::sum);
+            }
+        }
+        int branch = 0;
+        int max = -1;
+        for (Map.Entry<Integer, Integer> e : occurrences.entrySet()) {
+            if (e.getValue() > max || (e.getValue() == max && e.getKey() < branch)) {
+                branch = e.getKey();
+                max = e.getValue();
+            }
+        }
+        return branch;
+    }
+
+    /**
+     * Key of a component in the cache: its sorted clauses.
+     */
+    static class ComponentKey {
+
+        private final int[] literals;
+        private final int hash;
+
+        /**
+         * Creates the key of the given component (clauses are sorted in
+         * place).
+         */
+        ComponentKey(List<int[]> clauses) {
+            clauses.sort(CLAUSE_ORDER);
+            int size = 0;
+            for (int[] clause : clauses) {
+                size += clause.length + 1;
+            }
+            literals = new int[size];
+            int i = 0;
+            for (int[] clause : clauses) {
+                System.arraycopy(clause, 0, literals, i, clause.length);
+                i += clause.length + 1; // 0 separator
+            }
+            hash = Arrays.hashCode(literals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ComponentKey other && hash == other.hash && Arrays.equals(literals, other.literals);
+        }
+
+    }
+
+}
@@ -31,10 +31,14 @@ public class Sat4JContraintIdentifier extends DefaultConstraintIdentifier {
 
     private final ArrayList<int[]> dimacsConstraints;
 
+    // Tseitin variables introduced by the constraint
+    private final ArrayList<Integer> auxiliaryVariables;
+
     Sat4JContraintIdentifier(FExpression constraint) {
         super(constraint);
         this.sat4JConstraints = new ArrayList<>();
         this.dimacsConstraints = new ArrayList<>();
+        this.auxiliaryVariables = new ArrayList<>();
     }
 
     void addSat4JConstraint(IConstr constr, int[] dimacsRepr) {
@@ -47,6 +51,11 @@ public class Sat4JContraintIdentifier extends DefaultConstraintIdentifier {
         this.sat4JConstraints.remove(constr);
     }
 
+    void clearSat4JConstraints() {
+        this.sat4JConstraints.clear();
+        this.dimacsConstraints.clear();
+    }
+
     Iterator<IConstr> iteratorIConstr() {
         return this.sat4JConstraints.iterator();
     }
@@ -55,6 +64,14 @@ public class Sat4JContraintIdentifier extends DefaultConstraintIdentifier {
         return this.dimacsConstraints.iterator();
     }
 
+    void addAuxiliaryVariable(int var) {
+        this.auxiliaryVariables.add(var);
+    }
+
+    Iterator<Integer> iteratorAuxiliaryVariables() {
+        return this.auxiliaryVariables.iterator();
+    }
+
     @Override
     public String toString() {
         return "Sat4JContraintIdentifier [sat4JConstraints=" + sat4JConstraints
@@ -20,10 +20,11 @@ package be.vibes.solver;
  * limitations under the License.
  * #L%
  */
-import be.vibes.fexpression.DimacsFormatter;
 import be.vibes.fexpression.DimacsModel;
+import be.vibes.fexpression.TseitinFormatter;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.*;
 
 import be.vibes.solver.exception.SolverFatalErrorException;
@@ -37,8 +38,8 @@ import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.IConstr;
 import org.sat4j.specs.IProblem;
 import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
 import org.sat4j.specs.TimeoutException;
-import org.sat4j.tools.ModelIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,18 +55,50 @@ import be.vibes.solver.exception.ConstraintNotFoundException;
 import be.vibes.solver.exception.ConstraintSolvingException;
 import be.vibes.solver.exception.SolverInitializationException;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration> {
 
     private static final Logger logger = LoggerFactory.getLogger(Sat4JSolverFacade.class);
 
+    /**
+     * Number of Tseitin auxiliary variables initially declared in the solver.
+     */
+    public static final int DEFAULT_AUXILIARY_VARIABLES = 1024;
+
     private ISolver solver;
     private final DimacsModel model;
+    // Number of variables of the model, computed once
+    private final int variablesCount;
     private final Set<ConstraintIdentifier> deliveredIds = Sets.newHashSet();
+    private boolean keepSolverHot = false;
+
+    // Auxiliary variables are declared with the solver (after the variables
+    // of the model) so that its search structures include them
+    private int auxiliaryVariablesCount = DEFAULT_AUXILIARY_VARIABLES;
+    private int nextAuxiliaryVariable = 0;
+    // Auxiliary variables of removed constraints, reused by new constraints
+    private final Deque<Integer> retiredAuxiliaryVariables = new ArrayDeque<>();
+    // Clauses blocking the solutions already returned by next()
+    private final List<int[]> blockingClauses = Lists.newArrayList();
+    // True if the last solution could not be blocked (no more solutions)
+    private boolean solutionsExhausted = false;
+    // True if the solver holds a model of the current problem (see next())
+    private boolean modelFound = false;
+
+    // Incremental solver used with assumptions, created on demand
+    private ISolver incrementalSolver;
+    private final Map<FExpression, Integer> selectors = Maps.newHashMap();
+
+    // Exact model counter, its cache is kept between calls
+    private ModelCounter counter;
+    // Variables of the feature model considered when counting solutions
+    private BitSet countedVariables;
     
     public Sat4JSolverFacade(DimacsModel model) throws SolverInitializationException {
         this.model = model;
+        this.variablesCount = model.getVariablesCount();
         // Initialize solver
         initSolver();
         // Load dimacs model into the solver
@@ -81,6 +114,7 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
             throw new SolverInitializationException(
                     "Could not load feature mapping file!", e);
         }
+        this.variablesCount = this.model.getVariablesCount();
         initSolver();
         loadDimacsFdModel();
     }
@@ -105,6 +139,7 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
             throw new SolverInitializationException(
                     "Could not load feature mapping file!", e);
         }
+        this.variablesCount = this.model.getVariablesCount();
 
         // Initialize solver
         initSolver();
@@ -117,16 +152,78 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
         // Enable random SAT solutions
         Solver<?> solv = SolverFactory.newSAT();
         solv.setOrder(new RandomWalkDecorator(new VarOrderHeap(new RandomLiteralSelectionStrategy()), 1));
-        solver = new ModelIterator(solv);
-        solver.newVar(this.model.getFeaturesCount());
+        solver = solv;
+        solutionsExhausted = false;
+        modelFound = false;
+        solver.newVar(variablesCount + auxiliaryVariablesCount);
+        solver.setKeepSolverHot(keepSolverHot);
+    }
+
+    private int newAuxiliaryVariable() {
+        if (!retiredAuxiliaryVariables.isEmpty()) {
+            return retiredAuxiliaryVariables.pop();
+        }
+        if (nextAuxiliaryVariable == 0) {
+            nextAuxiliaryVariable = variablesCount + 1;
+        }
+        return nextAuxiliaryVariable++;
+    }
+
+    /**
+     * Creates a new solver with enough auxiliary variables and adds the
+     * model, the delivered constraints and the blocking clauses of the
+     * solutions already returned to it.
+     */
+    private void growAuxiliaryVariables() throws SolverInitializationException, SolverFatalErrorException {
+        while (nextAuxiliaryVariable - 1 > variablesCount + auxiliaryVariablesCount) {
+            auxiliaryVariablesCount = 2 * auxiliaryVariablesCount;
+        }
+        logger.debug("Creating a new solver with {} auxiliary variables", auxiliaryVariablesCount);
+        initSolver();
+        loadDimacsFdModel(this.solver);
+        for (ConstraintIdentifier id : deliveredIds) {
+            Sat4JContraintIdentifier sat4jId = (Sat4JContraintIdentifier) id;
+            List<int[]> clauses = Lists.newArrayList(sat4jId.iteratorDimacs());
+            sat4jId.clearSat4JConstraints();
+            for (int[] clause : clauses) {
+                try {
+                    sat4jId.addSat4JConstraint(this.solver.addClause(new VecInt(clause)), clause);
+                } catch (ContradictionException e) {
+                    throw new SolverFatalErrorException("Could not add clause " + Arrays.toString(clause)
+                            + " to the new solver. Solver in inconsistant state, should be reset!", e);
+                }
+            }
+        }
+        for (int[] clause : blockingClauses) {
+            try {
+                this.solver.addClause(new VecInt(clause));
+            } catch (ContradictionException e) {
+                logger.trace("No more solutions after blocking {}", Arrays.toString(clause));
+                solutionsExhausted = true;
+            }
+        }
+        initSearch();
     }
 
     private void loadDimacsFdModel() throws SolverInitializationException {
+        loadDimacsFdModel(this.solver);
+        initSearch();
+    }
+
+    /**
+     * Initializes the variables order of the solver (without solving), which
+     * is needed to remove constraints.
+     */
+    private void initSearch() {
+        ((Solver<?>) this.solver).getOrder().init();
+    }
+
+    private void loadDimacsFdModel(ISolver solver) throws SolverInitializationException {
         logger.debug("Loading the model into the solver");
         try {
             for (int[] clause : model.getDimacsFD()) {
                 logger.debug("Adding clause {} to solver", Arrays.toString(clause));
-                this.solver.addClause(new VecInt(clause));
+                solver.addClause(new VecInt(clause));
             }
         } catch (ContradictionException e) {
             // If one of the clauses is empty or if one of the clauses contains
@@ -154,16 +251,26 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
         if (constraint.equals(FExpression.trueValue())) {
             return id;
         }
-        // else compute DIMACS
+        modelFound = false;
+        // else compute DIMACS using Tseitin auxiliary variables (defined by
+        // equivalences in order to keep the number of solutions unchanged)
         int[][] constraints;
         try {
-            constraints = DimacsFormatter.format(constraint, model.getFeatureMapping());
-            logger.trace("CNF version of expression {} has {} clauses", constraint,
+            constraints = TseitinFormatter.format(constraint, model.getFeatureMapping(), () -> {
+                int aux = newAuxiliaryVariable();
+                id.addAuxiliaryVariable(aux);
+                return aux;
+            });
+            logger.trace("Tseitin version of expression {} has {} clauses", constraint,
                     constraints.length);
         } catch (DimacsFormatException ex) {
             logger.error("Exception while formatting contraint {}!", constraint, ex);
+            Iterators.addAll(retiredAuxiliaryVariables, id.iteratorAuxiliaryVariables());
             throw new SolverInitializationException("Could not format constraint to DIMACS to add to solver", ex);
         }
+        if (nextAuxiliaryVariable - 1 > variablesCount + auxiliaryVariablesCount) {
+            growAuxiliaryVariables();
+        }
         // and add them to the solver
         for (int[] constr : constraints) {
             try {
@@ -172,19 +279,12 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
             } catch (ContradictionException e) {
                 // If one of the clauses is empty or if one of the clauses
                 // contains only falsified literals after unit propagation
-                // remove already added constraints
-                try {
-                    logger.trace(
-                            "Clauses is empty or one of the clauses contains only falsified literals after unit propagation",
-                            e);
-                    removeConstraint(id);
-                } catch (ConstraintNotFoundException e1) {
-                    logger.error("Constraint not found!", e);
-                    throw new SolverFatalErrorException(
-                            "Could not completely remove constraint from solver. "
-                            + "Solver in inconsistant state, should be reset!",
-                            e1);
-                }
+                // remove already added constraints (the id has not been
+                // delivered yet)
+                logger.trace(
+                        "Clauses is empty or one of the clauses contains only falsified literals after unit propagation",
+                        e);
+                removeSat4JConstraints(id);
                 throw new SolverInitializationException(
                         "Could not add constraint to the solver due to empty clause ("
                         + Arrays.toString(constr) + ") or "
@@ -203,7 +303,17 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
         if (!this.deliveredIds.contains(id)) {
             return;
         }
-        Iterator<IConstr> it = ((Sat4JContraintIdentifier) id).iteratorIConstr();
+        removeSat4JConstraints((Sat4JContraintIdentifier) id);
+        this.deliveredIds.remove(id);
+    }
+
+    /**
+     * Removes the clauses of the given constraint from the solver and
+     * retires its auxiliary variables.
+     */
+    private void removeSat4JConstraints(Sat4JContraintIdentifier id) throws SolverFatalErrorException {
+        modelFound = false;
+        Iterator<IConstr> it = id.iteratorIConstr();
         IConstr constr;
         while (it.hasNext()) {
             constr = it.next();
@@ -220,27 +330,131 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
                         "Unexpected exception occured ... SAT4J implementation ? :-/ ", e);
             }
         }
+        // Auxiliary variables are now free and may be used by new constraints
+        // (solutions are blocked on the variables of the model only)
+        Iterators.addAll(retiredAuxiliaryVariables, id.iteratorAuxiliaryVariables());
     }
 
     @Override
     public boolean isSatisfiable() throws ConstraintSolvingException {
         IProblem problem = this.solver;
         try {
-            return problem.isSatisfiable();
+            modelFound = !solutionsExhausted && problem.isSatisfiable();
+            return modelFound;
+        } catch (TimeoutException e) {
+            throw new ConstraintSolvingException("Timeout reached for solving !", e);
+        }
+    }
+
+    /**
+     * Returns the selector literal of the given constraint in the incremental
+     * solver of this facade. The first time a constraint is given, it is
+     * added to the incremental solver using the Plaisted-Greenbaum encoding,
+     * guarded by a new selector variable s (i.e., s implies the constraint,
+     * see {@link TseitinFormatter#formatGuarded}). The constraint is then
+     * enforced only when s is given as assumption to
+     * {@link #isSatisfiable(IVecInt)}. Selectors remain valid until the next
+     * call to {@link #reset()}.
+     *
+     * @param constraint The constraint to encode.
+     * @return The selector literal of the constraint.
+     * @throws SolverInitializationException If the constraint could not be
+     * added to the incremental solver.
+     */
+    public int getSelector(FExpression constraint) throws SolverInitializationException {
+        checkNotNull(constraint, "Constraint may not be null!");
+        Integer selector = selectors.get(constraint);
+        if (selector != null) {
+            return selector;
+        }
+        ISolver incremental = getIncrementalSolver();
+        int sel = incremental.nextFreeVarId(true);
+        logger.trace("Adding expression {} to incremental solver with selector {}", constraint, sel);
+        int[][] clauses;
+        try {
+            clauses = TseitinFormatter.formatGuarded(constraint, model.getFeatureMapping(),
+                    () -> incremental.nextFreeVarId(true), sel);
+        } catch (DimacsFormatException ex) {
+            logger.error("Exception while formatting contraint {}!", constraint, ex);
+            throw new SolverInitializationException("Could not format constraint to DIMACS to add to solver", ex);
+        }
+        for (int[] guarded : clauses) {
+            try {
+                incremental.addClause(new VecInt(guarded));
+            } catch (ContradictionException e) {
+                // Cannot happen as the selector is a new variable
+                logger.error("Contradiction while adding guarded clause {}!", Arrays.toString(guarded), e);
+                throw new SolverInitializationException("Could not add clause " + Arrays.toString(guarded) + " to the incremental solver!", e);
+            }
+        }
+        // Expression is copied as FExpression may be modified in place
+        selectors.put(constraint.copy(), sel);
+        return sel;
+    }
+
+    /**
+     * Checks the satisfiability of the feature model under the given
+     * assumptions using the incremental solver of this facade. Assumptions
+     * may be feature literals (as defined in the DIMACS mapping of the model)
+     * or selector literals obtained using {@link #getSelector(FExpression)}.
+     * Constraints added using {@link #addConstraint(FExpression)} are not
+     * considered. The incremental solver is never reset between calls, which
+     * allows it to keep learnt clauses.
+     *
+     * @param assumptions The literals assumed to be true.
+     * @return True if the feature model is satisfiable under the given
+     * assumptions.
+     * @throws ConstraintSolvingException If the solver reached a timeout.
+     */
+    public boolean isSatisfiable(IVecInt assumptions) throws ConstraintSolvingException {
+        checkNotNull(assumptions, "Assumptions may not be null!");
+        try {
+            return getIncrementalSolver().isSatisfiable(assumptions);
+        } catch (SolverInitializationException e) {
+            throw new ConstraintSolvingException("Could not initialize incremental solver!", e);
         } catch (TimeoutException e) {
             throw new ConstraintSolvingException("Timeout reached for solving !", e);
         }
     }
 
+    /**
+     * Checks the satisfiability of the feature model under the given
+     * assumptions, see {@link #isSatisfiable(IVecInt)}.
+     *
+     * @param assumptions The literals assumed to be true.
+     * @return True if the feature model is satisfiable under the given
+     * assumptions.
+     * @throws ConstraintSolvingException If the solver reached a timeout.
+     */
+    public boolean isSatisfiable(int[] assumptions) throws ConstraintSolvingException {
+        checkNotNull(assumptions, "Assumptions may not be null!");
+        return isSatisfiable(new VecInt(assumptions));
+    }
+
+    private ISolver getIncrementalSolver() throws SolverInitializationException {
+        if (incrementalSolver == null) {
+            ISolver incremental = SolverFactory.newDefault();
+            incremental.newVar(variablesCount);
+            loadDimacsFdModel(incremental);
+            incrementalSolver = incremental;
+        }
+        return incrementalSolver;
+    }
+
     /**
      * Creates a new Sat4J solver and load the feature model in it (all added
-     * constraints will be lost).
+     * constraints and selectors will be lost).
      *
      * @throws be.vibes.solver.exception.SolverInitializationException
      */
     @Override
     public void reset() throws SolverInitializationException {
         deliveredIds.clear();
+        incrementalSolver = null;
+        selectors.clear();
+        nextAuxiliaryVariable = 0;
+        retiredAuxiliaryVariables.clear();
+        blockingClauses.clear();
         initSolver();
         loadDimacsFdModel();
     }
@@ -259,12 +473,18 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
     public Configuration next() {
         String featureName;
         ArrayList<Feature<?>> sol = Lists.newArrayList();
+        if (!modelFound && !hasNext()) {
+            throw new NoSuchElementException("No more solutions!");
+        }
         int[] m;
         m = this.solver.model();
         for (int j : m) {
             if (j > 0) {
                 featureName = model.getFeatureMapping().inverse().get(j);
-                if (featureName == null) {
+                if (featureName == null && j > model.getFeaturesCount()) {
+                    // Tseitin variable of the model or of a constraint
+                    continue;
+                } else if (featureName == null) {
                     logger.error(
                             "Feature number {} not found in mapping, will be replaces by null!",
                             j);
@@ -272,9 +492,35 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
                 sol.add(Feature.feature(featureName));
             }
         }
+        blockSolution(m);
         return new SimpleConfiguration(sol);
     }
 
+    /**
+     * Excludes the given solution from the next ones. Only the variables of
+     * the model are considered, auxiliary variables of the constraints (which
+     * may be free once a constraint is removed) do not duplicate solutions.
+     */
+    private void blockSolution(int[] m) {
+        BitSet variables = getCountedVariables();
+        IVecInt clause = new VecInt();
+        for (int lit : m) {
+            if (variables.get(Math.abs(lit))) {
+                clause.push(-lit);
+            }
+        }
+        int[] blocking = new int[clause.size()];
+        clause.copyTo(blocking);
+        blockingClauses.add(blocking);
+        modelFound = false;
+        try {
+            this.solver.addClause(clause);
+        } catch (ContradictionException e) {
+            logger.trace("No more solutions after blocking {}", Arrays.toString(blocking));
+            solutionsExhausted = true;
+        }
+    }
+
     /**
      * @throws UnsupportedOperationException Always thrown when the method is
      * invoked
@@ -298,6 +544,7 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
      * Setting the reuse of the state of the solver between calls 
      */
     public void setKeepSolverHot(boolean hot) {
+        keepSolverHot = hot;
         solver.setKeepSolverHot(hot);
     }
 
@@ -306,11 +553,65 @@ public class Sat4JSolverFacade implements SolverFacade, Iterator<Configuration>
      */
     public void setRandomExploration() {
         ((Solver<?>) this.solver).setOrder(new RandomWalkDecorator(new VarOrderHeap(new RandomLiteralSelectionStrategy()), 1));
+        initSearch();
     }
 
+    /**
+     * Returns the exact number of solutions of the feature model and the
+     * added constraints, computed using a {@link ModelCounter} (solutions are
+     * not enumerated and the iteration state of this facade is unchanged).
+     *
+     * @return The number of solutions.
+     * @throws ConstraintSolvingException Never thrown.
+     */
     @Override
     public double getNumberOfSolutions() throws ConstraintSolvingException {
-        return Iterators.size(getSolutions());
+        return countSolutions().doubleValue();
+    }
+
+    /**
+     * Returns the exact number of solutions of the feature model and the
+     * added constraints.
+     *
+     * @return The number of solutions.
+     */
+    public BigInteger countSolutions() {
+        List<int[]> clauses = Lists.newArrayList(model.getDimacsFD());
+        BitSet variables = (BitSet) getCountedVariables().clone();
+        for (ConstraintIdentifier id : deliveredIds) {
+            Sat4JContraintIdentifier sat4jId = (Sat4JContraintIdentifier) id;
+            Iterators.addAll(clauses, sat4jId.iteratorDimacs());
+            // Tseitin variables are defined by the constraint clauses
+            Iterator<Integer> itAux = sat4jId.iteratorAuxiliaryVariables();
+            while (itAux.hasNext()) {
+                variables.set(itAux.next());
+            }
+        }
+        if (counter == null) {
+            counter = new ModelCounter();
+        }
+        return counter.count(clauses, variables);
+    }
+
+    /**
+     * Returns the features of the model and the variables used in its
+     * clauses. Unmapped variables that do not appear in any clause are not
+     * part of the solutions (see {@link #next()}) and are not counted.
+     */
+    private BitSet getCountedVariables() {
+        if (countedVariables == null) {
+            BitSet variables = new BitSet();
+            for (int var : model.getFeatureMapping().values()) {
+                variables.set(var);
+            }
+            for (int[] clause : model.getDimacsFD()) {
+                for (int lit : clause) {
+                    variables.set(Math.abs(lit));
+                }
+            }
+            countedVariables = variables;
+        }
+        return countedVariables;
     }
 
 }
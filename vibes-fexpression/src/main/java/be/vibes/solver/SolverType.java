@@ -18,5 +18,6 @@ package be.vibes.solver;
 
 public enum SolverType {
     SAT4J,
-    BDD
+    BDD,
+    DDNNF
 }
@@ -41,7 +41,8 @@ public class UVLModelFactory {
         switch (type) {
             case SAT4J -> this.solverType = SolverType.SAT4J;
             case BDD -> this.solverType = SolverType.BDD;
-            default -> throw new UnsupportedOperationException("Only SAT4J and BDD solvers are currently supported. Default is SAT4J.");
+            case DDNNF -> this.solverType = SolverType.DDNNF;
+            default -> throw new UnsupportedOperationException("Only SAT4J, BDD and DDNNF solvers are currently supported. Default is SAT4J.");
         }
     }
 
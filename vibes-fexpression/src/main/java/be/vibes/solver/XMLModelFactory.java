@@ -309,7 +309,8 @@ public abstract class XMLModelFactory<F extends Feature<F>, T extends FeatureMod
                 }
             }
             case BDD -> solver = new BDDSolverFacade(featureDiagram);
-            default -> throw new UnsupportedOperationException("Only SAT4J and BDD solvers are currently supported. Default is SAT4J.");
+            case DDNNF -> solver = new DDNNFSolverFacade(model);
+            default -> throw new UnsupportedOperationException("Only SAT4J, BDD and DDNNF solvers are currently supported. Default is SAT4J.");
         }
         return solver;
     }
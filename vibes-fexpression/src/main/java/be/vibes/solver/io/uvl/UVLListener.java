@@ -520,7 +520,8 @@ public class UVLListener<F extends Feature<F>> extends UVLJavaBaseListener {
                 }
             }
             case BDD -> solver = new BDDSolverFacade(featureDiagram);
-            default -> throw new UnsupportedOperationException("Only SAT4J and BDD solvers are currently supported. Default is SAT4J.");
+            case DDNNF -> solver = new DDNNFSolverFacade(model);
+            default -> throw new UnsupportedOperationException("Only SAT4J, BDD and DDNNF solvers are currently supported. Default is SAT4J.");
         }
         return solver;
     }
@@ -22,6 +22,8 @@ package be.vibes.fexpression;
 import static org.junit.Assert.*;
 
 import static org.hamcrest.Matchers.*;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
@@ -30,7 +32,9 @@ import org.junit.runner.Description;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import be.vibes.fexpression.configuration.BitSetConfiguration;
 import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.FeatureIndex;
 import be.vibes.fexpression.configuration.SimpleConfiguration;
 import static be.vibes.fexpression.Feature.*;
 
@@ -118,4 +122,94 @@ public class FExpressionTest {
         assertFalse(expr.isFalse());
     }
 
+    @Test
+    public void testIntern() throws Exception {
+        FExpression expr1 = ParserUtil.getInstance().parse("f1 && (f2 || !f3)");
+        FExpression expr2 = ParserUtil.getInstance().parse("f1 && (f2 || !f3)");
+        assertNotSame(expr1, expr2);
+        FExpression interned = expr1.intern();
+        assertTrue(interned.isInterned());
+        assertFalse(expr1.isInterned());
+        assertSame(interned, expr2.intern());
+        assertSame(interned, interned.intern());
+        assertEquals(interned, expr1);
+        assertEquals(expr1, expr2);
+        assertEquals(expr1.hashCode(), interned.hashCode());
+        assertNotSame(interned, ParserUtil.getInstance().parse("f1 && f2").intern());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInternedNotModifiable() throws Exception {
+        FExpression interned = ParserUtil.getInstance().parse("f1 && f2").intern();
+        interned.andWith(FExpression.featureExpr("f3"));
+    }
+
+    @Test
+    public void testModifiedExpressionNotEqual() throws Exception {
+        FExpression expr1 = ParserUtil.getInstance().parse("f1 && f2");
+        FExpression expr2 = expr1.copy();
+        assertSame(expr1.intern(), expr2.intern());
+        expr2.andWith(FExpression.featureExpr("f3"));
+        assertFalse(expr1.equals(expr2));
+        assertNotSame(expr1.intern(), expr2.intern());
+        assertThat(expr2.getFeatures(), containsInAnyOrder(feature("f1"), feature("f2"), feature("f3")));
+        assertThat(expr1.getFeatures(), containsInAnyOrder(feature("f1"), feature("f2")));
+    }
+
+    @Test
+    public void testMemoizedCnf() throws Exception {
+        FExpression expr = ParserUtil.getInstance().parse("f1 || (f2 && f3)");
+        FExpression cnf = expr.toCnf();
+        assertFalse(cnf.isInterned());
+        assertEquals(cnf, expr.copy().toCnf());
+        assertSame(cnf.intern(), expr.toCnf().intern());
+        Object key = new Object();
+        Object value = expr.memoize(key, (e) -> new Object());
+        assertSame(value, ParserUtil.getInstance().parse("f1 || (f2 && f3)").memoize(key, (e) -> new Object()));
+    }
+
+    @Test
+    public void testEvaluateBitSetConfiguration() throws Exception {
+        FeatureIndex index = new FeatureIndex("f1", "f2", "f3", "f4");
+        FExpression expr = ParserUtil.getInstance().parse("(f1 && !f2) || (f3 && (f4 || !f1)) || false");
+        CompiledFExpression compiled = expr.compile(index);
+        assertSame(compiled, ParserUtil.getInstance().parse("(f1 && !f2) || (f3 && (f4 || !f1)) || false").compile(index));
+        for (int i = 0; i < 16; i++) {
+            BitSetConfiguration conf = new BitSetConfiguration(index, BitSet.valueOf(new long[]{i}));
+            SimpleConfiguration simple = new SimpleConfiguration(conf.getFeatures());
+            boolean expected = expr.assign(simple).isTrue();
+            assertEquals(expected, compiled.evaluate(conf));
+            assertEquals(expected, expr.evaluate(conf));
+            assertEquals(expected, expr.evaluate(simple));
+            assertEquals(expected, expr.assign(conf).isTrue());
+        }
+    }
+
+    @Test
+    public void testCompiledExpressionDoesNotRetainIndex() throws Exception {
+        FExpression expr = ParserUtil.getInstance().parse("f1 && !f2").intern();
+        FeatureIndex index = new FeatureIndex("f1", "f2");
+        assertTrue(expr.compile(index).usesIndex(index));
+        WeakReference<FeatureIndex> ref = new WeakReference<>(index);
+        index = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("Feature index retained by the memo of the expression!", ref.get());
+    }
+
+    @Test
+    public void testEvaluateDeepExpression() throws Exception {
+        FeatureIndex index = new FeatureIndex("f1", "f2");
+        FExpression expr = FExpression.featureExpr("f1");
+        for (int i = 0; i < 100; i++) {
+            expr = i % 2 == 0 ? expr.not().and(FExpression.featureExpr("f2")) : expr.or(FExpression.featureExpr("f1").not());
+        }
+        for (int i = 0; i < 4; i++) {
+            BitSetConfiguration conf = new BitSetConfiguration(index, BitSet.valueOf(new long[]{i}));
+            assertEquals(expr.evaluate(new SimpleConfiguration(conf.getFeatures())), expr.compile(index).evaluate(conf));
+        }
+    }
+
 }
@@ -0,0 +1,174 @@
+package be.vibes.fexpression;
+
+/*-
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import be.vibes.fexpression.exception.DimacsFormatException;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Maps;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TseitinFormatterTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TseitinFormatterTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            logger.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private static final String[] FEATURES = {"a", "b", "c", "d"};
+
+    private static BiMap<String, Integer> mapping() {
+        BiMap<String, Integer> mapping = HashBiMap.create();
+        for (int i = 0; i < FEATURES.length; i++) {
+            mapping.put(FEATURES[i], i + 1);
+        }
+        return mapping;
+    }
+
+    private static FExpression f(String name) {
+        return FExpression.featureExpr(name);
+    }
+
+    private static FExpression example() {
+        // (a && !(b || c)) || !(d && (a || !c))
+        return f("a").and(f("b").or(f("c")).not())
+                .or(f("d").and(f("a").or(f("c").not())).not());
+    }
+
+    private static boolean evaluate(FExpression expr, int assignment) {
+        Map<Feature<?>, Boolean> values = Maps.newHashMap();
+        for (int i = 0; i < FEATURES.length; i++) {
+            values.put(Feature.feature(FEATURES[i]), (assignment & (1 << i)) != 0);
+        }
+        return expr.assign(values).applySimplification().isTrue();
+    }
+
+    private static boolean satisfies(int[][] clauses, long assignment) {
+        for (int[] clause : clauses) {
+            boolean sat = false;
+            for (int lit : clause) {
+                boolean value = (assignment & (1L << (Math.abs(lit) - 1))) != 0;
+                sat = sat || (lit > 0 ? value : !value);
+            }
+            if (!sat) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the extensions of the given feature assignment to auxiliary
+     * variables satisfying the clauses.
+     */
+    private static int countExtensions(int[][] clauses, int variables, int assignment) {
+        int count = 0;
+        int aux = variables - FEATURES.length;
+        for (long ext = 0; ext < (1L << aux); ext++) {
+            if (satisfies(clauses, assignment | (ext << FEATURES.length))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testFormatPreservesSolutions() throws Exception {
+        FExpression expr = example();
+        int[] next = {FEATURES.length + 1};
+        int[][] clauses = TseitinFormatter.format(expr, mapping(), () -> next[0]++);
+        int variables = next[0] - 1;
+        assertTrue(variables > FEATURES.length);
+        for (int assignment = 0; assignment < (1 << FEATURES.length); assignment++) {
+            assertEquals("Wrong number of extensions for assignment " + assignment,
+                    evaluate(expr, assignment) ? 1 : 0, countExtensions(clauses, variables, assignment));
+        }
+    }
+
+    @Test
+    public void testFormatGuarded() throws Exception {
+        FExpression expr = example();
+        int selector = FEATURES.length + 1;
+        int[] next = {selector + 1};
+        int[][] clauses = TseitinFormatter.formatGuarded(expr, mapping(), () -> next[0]++, selector);
+        int variables = next[0] - 1;
+        int aux = variables - FEATURES.length;
+        for (int assignment = 0; assignment < (1 << FEATURES.length); assignment++) {
+            boolean withSelector = false;
+            boolean withoutSelector = false;
+            for (long ext = 0; ext < (1L << aux); ext++) {
+                long full = assignment | (ext << FEATURES.length);
+                if (satisfies(clauses, full)) {
+                    if ((ext & 1) != 0) {
+                        withSelector = true;
+                    } else {
+                        withoutSelector = true;
+                    }
+                }
+            }
+            assertEquals("Wrong satisfiability for assignment " + assignment, evaluate(expr, assignment), withSelector);
+            assertTrue(withoutSelector);
+        }
+    }
+
+    @Test
+    public void testFormatClause() throws Exception {
+        int[] next = {FEATURES.length + 1};
+        int[][] clauses = TseitinFormatter.format(f("a").or(f("b").not()).and(f("c")), mapping(), () -> next[0]++);
+        assertEquals(FEATURES.length + 1, next[0]);
+        assertEquals(2, clauses.length);
+    }
+
+    @Test
+    public void testFormatConstants() throws Exception {
+        int[] next = {FEATURES.length + 1};
+        assertEquals(0, TseitinFormatter.format(FExpression.trueValue(), mapping(), () -> next[0]++).length);
+        int[][] clauses = TseitinFormatter.format(FExpression.falseValue(), mapping(), () -> next[0]++);
+        assertEquals(1, clauses.length);
+        assertEquals(0, clauses[0].length);
+        clauses = TseitinFormatter.formatGuarded(FExpression.falseValue(), mapping(), () -> next[0]++, 7);
+        assertEquals(1, clauses.length);
+        assertArrayEquals(new int[]{-7}, clauses[0]);
+    }
+
+    @Test(expected = DimacsFormatException.class)
+    public void testUnknownFeature() throws Exception {
+        TseitinFormatter.format(f("a").and(f("z").or(f("b"))), mapping(), () -> 42);
+    }
+
+}
@@ -0,0 +1,98 @@
+package be.vibes.fexpression.configuration;
+
+/*-
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.exception.ConfigurationException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.BitSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BitSetConfigurationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BitSetConfigurationTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            logger.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    };
+
+    private final FeatureIndex index = new FeatureIndex("f1", "f2", "f3");
+
+    @Test
+    public void testSelectFeatures() throws Exception {
+        BitSetConfiguration conf = new BitSetConfiguration(index);
+        assertEquals(0, conf.getFeatures().length);
+        conf.selectFeature(Feature.feature("f2"));
+        conf.selectFeature(0);
+        assertTrue(conf.isSelected(Feature.feature("f1")));
+        assertTrue(conf.isSelected(Feature.feature("f2")));
+        assertFalse(conf.isSelected(Feature.feature("f3")));
+        assertFalse(conf.isSelected(Feature.feature("unknown")));
+        assertTrue(conf.isSelected(1));
+        assertEquals(Lists.newArrayList(Feature.feature("f1"), Feature.feature("f2")), Lists.newArrayList(conf));
+        conf.deselectFeature(Feature.feature("f1"));
+        conf.deselectFeature(Feature.feature("unknown"));
+        assertArrayEquals(new Feature<?>[]{Feature.feature("f2")}, conf.getFeatures());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testSelectUnknownFeature() throws Exception {
+        new BitSetConfiguration(index).selectFeature(Feature.feature("unknown"));
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        BitSet selected = new BitSet();
+        selected.set(0);
+        selected.set(2);
+        BitSetConfiguration conf = new BitSetConfiguration(index, selected);
+        SimpleConfiguration simple = new SimpleConfiguration(Feature.feature("f1"), Feature.feature("f3"));
+        assertEquals(conf, simple);
+        assertEquals(simple, conf);
+        assertEquals(simple.hashCode(), conf.hashCode());
+        assertEquals(Sets.newHashSet(simple), Sets.newHashSet(conf));
+        // Same features in another index
+        BitSetConfiguration other = new BitSetConfiguration(new FeatureIndex("f3", "f2", "f1"));
+        other.selectFeature(Feature.feature("f1"));
+        other.selectFeature(Feature.feature("f3"));
+        assertEquals(conf, other);
+        assertEquals(conf.hashCode(), other.hashCode());
+        other.selectFeature(Feature.feature("f2"));
+        assertFalse(conf.equals(other));
+        assertFalse(simple.equals(other));
+        assertFalse(conf.equals(new SimpleConfiguration(Feature.feature("f1"))));
+    }
+
+}
@@ -38,12 +38,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 
+import be.vibes.fexpression.configuration.BitSetConfiguration;
 import be.vibes.fexpression.configuration.Configuration;
 import be.vibes.fexpression.configuration.SimpleConfiguration;
 import be.vibes.fexpression.DimacsModel;
 import be.vibes.fexpression.FExpression;
 import be.vibes.fexpression.Feature;
 import be.vibes.fexpression.ParserUtil;
+import be.vibes.solver.exception.ConstraintNotFoundException;
 import org.junit.Rule;
 import org.junit.rules.TestRule;
 import org.junit.rules.TestWatcher;
@@ -146,4 +148,72 @@ public class BDDSolverFacadeTest {
         assertTrue(results.get(0).isSelected(Feature.feature("f2")));
     }
 
+    @Test
+    public void testConstraintsStack() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        DimacsModel model = DimacsModel.createFromDimacsFile(dimacsModel);
+        BDDSolverFacade solver = new BDDSolverFacade(model);
+        assertEquals(24.00, solver.getNumberOfSolutions(), 0);
+        ConstraintIdentifier free = solver.addConstraint(ParserUtil.getInstance().parse("FreeDrinks"));
+        assertEquals(12.00, solver.getNumberOfSolutions(), 0);
+        ConstraintIdentifier tea = solver.addConstraint(ParserUtil.getInstance().parse("Tea && !Soda"));
+        assertEquals(4.00, solver.getNumberOfSolutions(), 0);
+        ConstraintIdentifier none = solver.addConstraint(ParserUtil.getInstance().parse("!Euro && !Dollar"));
+        assertFalse(solver.isSatisfiable());
+        assertEquals(0.00, solver.getNumberOfSolutions(), 0);
+        // Remove the last constraint
+        solver.removeConstraint(none);
+        assertTrue(solver.isSatisfiable());
+        assertEquals(4.00, solver.getNumberOfSolutions(), 0);
+        // Remove a constraint in the middle of the stack
+        ConstraintIdentifier euro = solver.addConstraint(ParserUtil.getInstance().parse("Euro"));
+        assertEquals(2.00, solver.getNumberOfSolutions(), 0);
+        solver.removeConstraint(free);
+        assertEquals(4.00, solver.getNumberOfSolutions(), 0);
+        assertEquals(4, Lists.newArrayList(solver.getSolutions()).size());
+        solver.removeConstraint(tea);
+        solver.removeConstraint(euro);
+        assertEquals(24.00, solver.getNumberOfSolutions(), 0);
+        try {
+            solver.removeConstraint(euro);
+            fail("Constraint should not be found!");
+        } catch (ConstraintNotFoundException e) {
+            logger.debug("Expected exception", e);
+        }
+        solver.addConstraint(ParserUtil.getInstance().parse("Soda"));
+        solver.reset();
+        assertEquals(24.00, solver.getNumberOfSolutions(), 0);
+    }
+
+    @Test
+    public void testCubes() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        DimacsModel model = DimacsModel.createFromDimacsFile(dimacsModel);
+        BDDSolverFacade solver = new BDDSolverFacade(model);
+        Iterator<byte[]> cubes = solver.getCubes();
+        int count = 0;
+        while (cubes.hasNext()) {
+            byte[] cube = cubes.next();
+            assertEquals(solver.getFeatureIndex().size(), cube.length);
+            int dontCares = 0;
+            for (byte value : cube) {
+                if (value < 0) {
+                    dontCares++;
+                }
+            }
+            count += 1 << dontCares;
+        }
+        assertEquals(24, count);
+        // Iterators are not affected by later constraints
+        Iterator<Configuration> it = solver.getSolutions();
+        ConstraintIdentifier id = solver.addConstraint(ParserUtil.getInstance().parse("FreeDrinks"));
+        Set<Configuration> solutions = Sets.newHashSet(it);
+        assertEquals(24, solutions.size());
+        for (Configuration conf : solutions) {
+            assertThat(conf, instanceOf(BitSetConfiguration.class));
+        }
+        assertEquals(12, Sets.newHashSet(solver.getSolutions()).size());
+        solver.removeConstraint(id);
+    }
+
 }
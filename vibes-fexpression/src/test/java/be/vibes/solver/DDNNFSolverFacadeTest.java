@@ -0,0 +1,225 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import be.vibes.fexpression.DimacsModel;
+import be.vibes.fexpression.FExpression;
+import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.ParserUtil;
+import be.vibes.fexpression.configuration.Configuration;
+import be.vibes.fexpression.configuration.SimpleConfiguration;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DDNNFSolverFacadeTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DDNNFSolverFacadeTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            logger.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    };
+
+    private static DDNNFSolverFacade getSVMSolver() throws Exception {
+        File dimacsModel = new File(DDNNFSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        assertTrue("Test file not found: svm.splot.dimacs!", dimacsModel.exists());
+        return new DDNNFSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+    }
+
+    private static Set<Configuration> getSVMSolutions() throws Exception {
+        Set<Configuration> expected = Sets.newHashSet();
+        File results = new File(DDNNFSolverFacadeTest.class.getClassLoader().getResource("svm.splot.solutions.txt").toURI());
+        for (String line : Splitter.on(CharMatcher.anyOf("\n\r")).omitEmptyStrings()
+                .split(Files.toString(results, Charsets.UTF_8))) {
+            String[] tabLine = line.split(",");
+            Feature[] features = new Feature[tabLine.length];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = Feature.feature(tabLine[i]);
+            }
+            expected.add(new SimpleConfiguration(features));
+        }
+        return expected;
+    }
+
+    @Test
+    public void testSVM() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        assertTrue(solver.isSatisfiable());
+        assertEquals(24.00, solver.getNumberOfSolutions(), 0);
+        Set<Configuration> result = Sets.newHashSet();
+        Iterator<Configuration> it = solver.getSolutions();
+        int cpt = 0;
+        while (it.hasNext()) {
+            result.add(it.next());
+            cpt++;
+        }
+        assertEquals(24, cpt);
+        assertEquals(getSVMSolutions(), result);
+    }
+
+    @Test
+    public void testVendingMachine() throws Exception {
+        File dimacsModel = new File(DDNNFSolverFacadeTest.class.getClassLoader().getResource("vending-machine.dimacs").toURI());
+        File featureMapping = new File(DDNNFSolverFacadeTest.class.getClassLoader().getResource("vending-machine.map").toURI());
+        DimacsModel model = DimacsModel.createFromTvlParserGeneratedFiles(featureMapping, dimacsModel);
+        DDNNFSolverFacade solver = new DDNNFSolverFacade(model);
+        Set<Configuration> expected = Sets.newHashSet(new Sat4JSolverFacade(model).getSolutions());
+        // Unused variables of the model are not part of the solutions
+        assertEquals(expected.size(), solver.getNumberOfSolutions(), 0);
+        int cpt = 0;
+        Set<Configuration> result = Sets.newHashSet();
+        Iterator<Configuration> it = solver.getSolutions();
+        while (it.hasNext()) {
+            result.add(it.next());
+            cpt++;
+        }
+        assertEquals(expected.size(), cpt);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testConstraints() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        ConstraintIdentifier free = solver.addConstraint(ParserUtil.getInstance().parse("FreeDrinks"));
+        assertEquals(12.00, solver.getNumberOfSolutions(), 0);
+        ConstraintIdentifier tea = solver.addConstraint(ParserUtil.getInstance().parse("Tea && !Soda"));
+        assertEquals(4.00, solver.getNumberOfSolutions(), 0);
+        Iterator<Configuration> it = solver.getSolutions();
+        while (it.hasNext()) {
+            Configuration conf = it.next();
+            assertTrue(conf.isSelected(Feature.feature("FreeDrinks")));
+            assertTrue(conf.isSelected(Feature.feature("Tea")));
+            assertFalse(conf.isSelected(Feature.feature("Soda")));
+        }
+        solver.removeConstraint(free);
+        assertEquals(8.00, solver.getNumberOfSolutions(), 0);
+        ConstraintIdentifier none = solver.addConstraint(ParserUtil.getInstance().parse("!Euro && !Dollar"));
+        assertFalse(solver.isSatisfiable());
+        assertEquals(0.00, solver.getNumberOfSolutions(), 0);
+        assertFalse(solver.getSolutions().hasNext());
+        solver.removeConstraint(none);
+        solver.removeConstraint(tea);
+        assertEquals(24.00, solver.getNumberOfSolutions(), 0);
+    }
+
+    @Test
+    public void testConjoinedConstraints() throws Exception {
+        File dimacsModel = new File(DDNNFSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        DimacsModel model = DimacsModel.createFromDimacsFile(dimacsModel);
+        DDNNFSolverFacade solver = new DDNNFSolverFacade(model);
+        // Constraints with an exponential CNF and constraints conflicting
+        // with the feature model
+        String[] constraints = {"(Soda && Euro) || (Tea && Dollar) || (FreeDrinks && CancelPurchase)",
+            "!(Soda && Tea) || (Euro && !FreeDrinks)", "Euro && Dollar"};
+        for (String constraint : constraints) {
+            FExpression expr = ParserUtil.getInstance().parse(constraint);
+            ConstraintIdentifier id = solver.addConstraint(expr);
+            Sat4JSolverFacade expected = new Sat4JSolverFacade(model);
+            expected.addConstraint(expr);
+            assertEquals(constraint, expected.getNumberOfSolutions(), solver.getNumberOfSolutions(), 0);
+            assertEquals(constraint, Sets.newHashSet(expected.getSolutions()), Sets.newHashSet(solver.getSolutions()));
+            solver.removeConstraint(id);
+        }
+        // Auxiliary variables of several constraints are distinct
+        Sat4JSolverFacade expected = new Sat4JSolverFacade(model);
+        ConstraintIdentifier first = solver.addConstraint(ParserUtil.getInstance().parse(constraints[0]));
+        ConstraintIdentifier expectedFirst = expected.addConstraint(ParserUtil.getInstance().parse(constraints[0]));
+        solver.addConstraint(ParserUtil.getInstance().parse(constraints[1]));
+        expected.addConstraint(ParserUtil.getInstance().parse(constraints[1]));
+        assertEquals(expected.getNumberOfSolutions(), solver.getNumberOfSolutions(), 0);
+        solver.removeConstraint(first);
+        expected.removeConstraint(expectedFirst);
+        assertEquals(expected.getNumberOfSolutions(), solver.getNumberOfSolutions(), 0);
+    }
+
+    @Test(expected = be.vibes.solver.exception.ConstraintNotFoundException.class)
+    public void testRemoveUnknownConstraint() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        ConstraintIdentifier id = solver.addConstraint(ParserUtil.getInstance().parse("FreeDrinks"));
+        solver.removeConstraint(id);
+        solver.removeConstraint(id);
+    }
+
+    @Test
+    public void testCoreAndDeadFeatures() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        assertTrue(solver.isCore("VendingMachine"));
+        assertTrue(solver.isCore("Currency"));
+        assertFalse(solver.isCore("Euro"));
+        assertFalse(solver.isDead("Dollar"));
+        solver.addConstraint(ParserUtil.getInstance().parse("Euro"));
+        assertTrue(solver.isDead("Dollar"));
+        assertTrue(solver.isCore("Euro"));
+        solver.reset();
+        assertFalse(solver.isDead("Dollar"));
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        solver.addConstraint(ParserUtil.getInstance().parse("Soda || CancelPurchase"));
+        Set<Configuration> expected = Sets.newHashSet(solver.getSolutions());
+        Set<Configuration> sampled = Sets.newHashSet();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Configuration conf = solver.sample(random);
+            assertTrue(expected.contains(conf));
+            sampled.add(conf);
+        }
+        assertEquals(expected, sampled);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        DDNNFSolverFacade solver = getSVMSolver();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        solver.getDDNNF().save(out);
+        DDNNF loaded = DDNNF.load(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(solver.getDDNNF().getNodesCount(), loaded.getNodesCount());
+        assertEquals(solver.getDDNNF().getFeatureMapping(), loaded.getFeatureMapping());
+        DDNNFSolverFacade other = new DDNNFSolverFacade(loaded);
+        assertEquals(24.00, other.getNumberOfSolutions(), 0);
+        assertEquals(getSVMSolutions(), Sets.newHashSet(other.getSolutions()));
+    }
+
+}
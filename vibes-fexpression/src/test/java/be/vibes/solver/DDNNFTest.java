@@ -0,0 +1,155 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.HashBiMap;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DDNNFTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DDNNFTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            logger.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    };
+
+    /**
+     * Returns the models (as bit sets of the variables) of the given clauses
+     * satisfying the given assumptions.
+     */
+    private static Set<Long> models(List<int[]> clauses, int nbVariables, int[] assumptions) {
+        Set<Long> models = new HashSet<>();
+        for (long assignment = 0; assignment < (1L << nbVariables); assignment++) {
+            boolean sat = true;
+            for (int lit : assumptions) {
+                sat = sat && ((assignment & (1L << (Math.abs(lit) - 1))) != 0) == (lit > 0);
+            }
+            for (int[] clause : clauses) {
+                boolean satClause = false;
+                for (int lit : clause) {
+                    boolean value = (assignment & (1L << (Math.abs(lit) - 1))) != 0;
+                    satClause = satClause || (lit > 0 ? value : !value);
+                }
+                sat = sat && satClause;
+            }
+            if (sat) {
+                models.add(assignment);
+            }
+        }
+        return models;
+    }
+
+    private static long toLong(boolean[] model) {
+        long assignment = 0;
+        for (int var = 1; var < model.length; var++) {
+            if (model[var]) {
+                assignment |= 1L << (var - 1);
+            }
+        }
+        return assignment;
+    }
+
+    @Test
+    public void testRandomFormulas() {
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            int nbVariables = 1 + random.nextInt(10);
+            List<int[]> clauses = new ArrayList<>();
+            int nbClauses = random.nextInt(15);
+            for (int j = 0; j < nbClauses; j++) {
+                int[] clause = new int[1 + random.nextInt(3)];
+                for (int k = 0; k < clause.length; k++) {
+                    int var = 1 + random.nextInt(nbVariables);
+                    clause[k] = random.nextBoolean() ? var : -var;
+                }
+                clauses.add(clause);
+            }
+            DDNNF ddnnf = DDNNF.compile(clauses, nbVariables, HashBiMap.create());
+            int[] assumptions = new int[random.nextInt(3)];
+            for (int k = 0; k < assumptions.length; k++) {
+                int var = 1 + random.nextInt(nbVariables);
+                assumptions[k] = random.nextBoolean() ? var : -var;
+            }
+            Set<Long> expected = models(clauses, nbVariables, assumptions);
+            assertEquals(BigInteger.valueOf(expected.size()), ddnnf.count(assumptions));
+            assertEquals(!expected.isEmpty(), ddnnf.isSatisfiable(assumptions));
+            Set<Long> actual = new HashSet<>();
+            Iterator<boolean[]> it = ddnnf.models(assumptions);
+            while (it.hasNext()) {
+                assertTrue(actual.add(toLong(it.next())));
+            }
+            assertEquals(expected, actual);
+            if (!expected.isEmpty()) {
+                assertTrue(expected.contains(toLong(ddnnf.sample(random, assumptions))));
+            } else {
+                assertNull(ddnnf.sample(random, assumptions));
+            }
+        }
+    }
+
+    @Test
+    public void testUniformSampling() {
+        List<int[]> clauses = new ArrayList<>();
+        clauses.add(new int[]{1, 2, 3});
+        clauses.add(new int[]{-1, -2});
+        DDNNF ddnnf = DDNNF.compile(clauses, 3, HashBiMap.create());
+        assertEquals(BigInteger.valueOf(5), ddnnf.count());
+        int[] samples = new int[8];
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            samples[(int) toLong(ddnnf.sample(random))]++;
+        }
+        for (long model : models(clauses, 3, new int[0])) {
+            assertEquals(2000, samples[(int) model], 200);
+        }
+    }
+
+    @Test
+    public void testContradictoryAssumptions() {
+        List<int[]> clauses = new ArrayList<>();
+        clauses.add(new int[]{1, 2});
+        DDNNF ddnnf = DDNNF.compile(clauses, 2, HashBiMap.create());
+        assertEquals(BigInteger.ZERO, ddnnf.count(1, -1));
+        assertFalse(ddnnf.isSatisfiable(1, -1));
+        assertFalse(ddnnf.models(1, -1).hasNext());
+    }
+
+}
@@ -0,0 +1,122 @@
+package be.vibes.solver;
+
+/*
+ * #%L
+ * VIBeS: featured expressions
+ * %%
+ * Copyright (C) 2014 PReCISE, University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ModelCounterTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCounterTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            logger.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    };
+
+    private static long bruteForce(List<int[]> clauses, int nbVariables) {
+        long count = 0;
+        for (long assignment = 0; assignment < (1L << nbVariables); assignment++) {
+            boolean sat = true;
+            for (int[] clause : clauses) {
+                boolean satClause = false;
+                for (int lit : clause) {
+                    boolean value = (assignment & (1L << (Math.abs(lit) - 1))) != 0;
+                    satClause = satClause || (lit > 0 ? value : !value);
+                }
+                sat = sat && satClause;
+            }
+            if (sat) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testSimpleFormulas() {
+        ModelCounter counter = new ModelCounter();
+        List<int[]> clauses = new ArrayList<>();
+        assertEquals(BigInteger.valueOf(8), counter.count(clauses, 3));
+        clauses.add(new int[]{1, 2});
+        assertEquals(BigInteger.valueOf(6), counter.count(clauses, 3));
+        clauses.add(new int[]{-1});
+        assertEquals(BigInteger.valueOf(2), counter.count(clauses, 3));
+        clauses.add(new int[]{-2, 1});
+        assertEquals(BigInteger.ZERO, counter.count(clauses, 3));
+        clauses.clear();
+        clauses.add(new int[0]);
+        assertEquals(BigInteger.ZERO, counter.count(clauses, 3));
+    }
+
+    @Test
+    public void testIndependentComponents() {
+        ModelCounter counter = new ModelCounter();
+        List<int[]> clauses = new ArrayList<>();
+        // 40 independent copies of (a || b) have 3^40 models
+        for (int i = 0; i < 40; i++) {
+            clauses.add(new int[]{2 * i + 1, 2 * i + 2});
+        }
+        assertEquals(BigInteger.valueOf(3).pow(40), counter.count(clauses, 80));
+        // Tautologies and variables out of the clauses
+        clauses.add(new int[]{81, -81});
+        BitSet variables = new BitSet();
+        variables.set(1, 83);
+        assertEquals(BigInteger.valueOf(3).pow(40).shiftLeft(2), counter.count(clauses, variables));
+    }
+
+    @Test
+    public void testRandomFormulas() {
+        Random random = new Random(42);
+        ModelCounter counter = new ModelCounter(100);
+        for (int i = 0; i < 500; i++) {
+            int nbVariables = 1 + random.nextInt(10);
+            List<int[]> clauses = new ArrayList<>();
+            int nbClauses = random.nextInt(15);
+            for (int j = 0; j < nbClauses; j++) {
+                int[] clause = new int[1 + random.nextInt(3)];
+                for (int k = 0; k < clause.length; k++) {
+                    int var = 1 + random.nextInt(nbVariables);
+                    clause[k] = random.nextBoolean() ? var : -var;
+                }
+                clauses.add(clause);
+            }
+            assertEquals(BigInteger.valueOf(bruteForce(clauses, nbVariables)), counter.count(clauses, nbVariables));
+        }
+    }
+
+}
@@ -19,10 +19,19 @@ package be.vibes.solver;
  * limitations under the License.
  * #L%
  */
+import be.vibes.fexpression.DimacsModel;
+import be.vibes.fexpression.FExpression;
 import be.vibes.fexpression.Feature;
+import be.vibes.fexpression.configuration.Configuration;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.Arrays;
 import org.junit.Test;
 
@@ -77,4 +86,150 @@ public class Sat4JSolverFacadeTest {
         fail("Model should not be SAT!");
     }
 
+    @Test
+    public void testSelectors() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("vending-machine.dimacs").toURI());
+        File featureMapping = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("vending-machine.map").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(dimacsModel, featureMapping);
+        int free = solver.getSelector(ParserUtil.getInstance().parse("FreeDrinks"));
+        int notFree = solver.getSelector(ParserUtil.getInstance().parse("!FreeDrinks"));
+        int cancel = solver.getSelector(ParserUtil.getInstance().parse("FreeDrinks && CancelPurchase"));
+        assertEquals("Selector should be reused!", free, solver.getSelector(ParserUtil.getInstance().parse("FreeDrinks")));
+        assertTrue("Model should be SAT!", solver.isSatisfiable(new int[]{free}));
+        assertTrue("Model should be SAT!", solver.isSatisfiable(new int[]{notFree}));
+        assertTrue("Model should be SAT!", solver.isSatisfiable(new int[]{free, cancel}));
+        assertFalse("Model should not be SAT!", solver.isSatisfiable(new int[]{notFree, cancel}));
+        assertFalse("Model should not be SAT!", solver.isSatisfiable(new int[]{free, notFree}));
+        // Selectors do not affect the main solver
+        assertTrue("Model should be SAT!", solver.isSatisfiable());
+    }
+
+    @Test
+    public void testNumberOfSolutions() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("vending-machine.dimacs").toURI());
+        File featureMapping = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("vending-machine.map").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(dimacsModel, featureMapping);
+        Sat4JSolverFacade enumerator = new Sat4JSolverFacade(dimacsModel, featureMapping);
+        int all = Iterators.size(enumerator.getSolutions());
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+        // Counting does not consume solutions
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+        assertTrue("Model should be SAT!", solver.hasNext());
+        // Conditioning on constraints
+        FExpression constraint = ParserUtil.getInstance().parse("FreeDrinks || (CancelPurchase && !Soda)");
+        ConstraintIdentifier id = solver.addConstraint(constraint);
+        enumerator.reset();
+        enumerator.addConstraint(constraint);
+        int constrained = Iterators.size(enumerator.getSolutions());
+        assertTrue(constrained < all);
+        assertEquals(constrained, solver.getNumberOfSolutions(), 0);
+        solver.removeConstraint(id);
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+    }
+
+    @Test
+    public void testNumberOfSolutionsAddRemove() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        Sat4JSolverFacade enumerator = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        int all = Iterators.size(enumerator.getSolutions());
+        // Constraints with unit clauses, removed without running the solver
+        for (String expr : new String[]{"FreeDrinks", "!Tea", "Soda && !FreeDrinks", "Euro || Dollar", "!CancelPurchase"}) {
+            FExpression constraint = ParserUtil.getInstance().parse(expr);
+            ConstraintIdentifier id = solver.addConstraint(constraint);
+            enumerator.reset();
+            enumerator.addConstraint(constraint);
+            assertEquals(expr, Iterators.size(enumerator.getSolutions()), solver.getNumberOfSolutions(), 0);
+            solver.removeConstraint(id);
+            assertEquals(expr, all, solver.getNumberOfSolutions(), 0);
+        }
+        // Solutions are not duplicated by the auxiliary variables of removed constraints
+        assertEquals(all, Iterators.size(solver.getSolutions()));
+    }
+
+    @Test
+    public void testManyConstraints() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        double all = solver.getNumberOfSolutions();
+        FExpression constraint = ParserUtil.getInstance().parse("FreeDrinks || (CancelPurchase && !Soda)");
+        ConstraintIdentifier first = solver.addConstraint(constraint);
+        double constrained = solver.getNumberOfSolutions();
+        // More auxiliary variables than initially declared
+        List<ConstraintIdentifier> ids = Lists.newArrayList(first);
+        for (int i = 0; i < Sat4JSolverFacade.DEFAULT_AUXILIARY_VARIABLES; i++) {
+            ids.add(solver.addConstraint(constraint));
+        }
+        assertEquals(constrained, solver.getNumberOfSolutions(), 0);
+        assertTrue("Model should be SAT!", solver.isSatisfiable());
+        for (ConstraintIdentifier id : Lists.reverse(ids)) {
+            solver.removeConstraint(id);
+        }
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+        assertEquals((int) all, Iterators.size(solver.getSolutions()));
+    }
+
+    @Test
+    public void testSolutionsAcrossGrowth() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        int all = Iterators.size(new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel)).getSolutions());
+        Set<Configuration> solutions = Sets.newHashSet();
+        Iterator<Configuration> it = solver.getSolutions();
+        for (int i = 0; i < all / 2; i++) {
+            assertTrue("Duplicated solution!", solutions.add(it.next()));
+        }
+        // The solver is rebuilt with more auxiliary variables
+        FExpression constraint = ParserUtil.getInstance().parse("FreeDrinks || (CancelPurchase && !Soda)");
+        List<ConstraintIdentifier> ids = Lists.newArrayList();
+        for (int i = 0; i <= Sat4JSolverFacade.DEFAULT_AUXILIARY_VARIABLES; i++) {
+            ids.add(solver.addConstraint(constraint));
+        }
+        for (ConstraintIdentifier id : ids) {
+            solver.removeConstraint(id);
+        }
+        // Already returned solutions are still excluded
+        while (it.hasNext()) {
+            assertTrue("Duplicated solution!", solutions.add(it.next()));
+        }
+        assertEquals(all, solutions.size());
+    }
+
+    @Test
+    public void testAddRemoveConstraints() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        int all = Iterators.size(new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel)).getSolutions());
+        FExpression constraint = ParserUtil.getInstance().parse("FreeDrinks || (CancelPurchase && !Soda)");
+        // Auxiliary variables of removed constraints are reused
+        for (int i = 0; i < 4 * Sat4JSolverFacade.DEFAULT_AUXILIARY_VARIABLES; i++) {
+            ConstraintIdentifier first = solver.addConstraint(constraint);
+            ConstraintIdentifier second = solver.addConstraint(constraint);
+            solver.removeConstraint(first);
+            solver.removeConstraint(second);
+        }
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+        assertEquals(all, Iterators.size(solver.getSolutions()));
+    }
+
+    @Test
+    public void testRejectedConstraint() throws Exception {
+        File dimacsModel = new File(Sat4JSolverFacadeTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        Sat4JSolverFacade solver = new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel));
+        int all = Iterators.size(new Sat4JSolverFacade(DimacsModel.createFromDimacsFile(dimacsModel)).getSolutions());
+        ConstraintIdentifier euro = solver.addConstraint(ParserUtil.getInstance().parse("Euro"));
+        for (int i = 0; i < 3; i++) {
+            try {
+                // Conflicts with the first constraint
+                solver.addConstraint(ParserUtil.getInstance().parse("(Tea || FreeDrinks) && !(Euro || CancelPurchase)"));
+                fail("Constraint should be rejected!");
+            } catch (SolverInitializationException e) {
+                // Clauses of the rejected constraint are removed
+            }
+        }
+        solver.removeConstraint(euro);
+        assertEquals(all, solver.getNumberOfSolutions(), 0);
+        assertEquals(all, Iterators.size(solver.getSolutions()));
+    }
+
 }
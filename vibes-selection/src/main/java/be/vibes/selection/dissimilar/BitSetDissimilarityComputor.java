@@ -0,0 +1,100 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.exception.DissimilarityComputationException;
+
+/**
+ * Dissimilarity computor working on sets encoded as bit vectors: element i of
+ * the input domain belongs to the set if bit i is set (i.e., if
+ * {@code (set[i / 64] & (1L << i)) != 0}). Bit vectors may have different
+ * lengths, missing words are considered as zeros.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ * @see TestCaseEncoder
+ */
+public interface BitSetDissimilarityComputor {
+
+    /**
+     * Returns a value between 0.0 (similar) and 1.0 (dissimilar) indicating
+     * the dissimilarity degree between the sets encoded by s1 and s2.
+     *
+     * @param s1 The bits of the first set to compare.
+     * @param s2 The bits of the second set to compare.
+     * @return a Value between 0.0 (similar) and 1.0 (dissimilar).
+     * @throws DissimilarityComputationException
+     */
+    public double dissimilarity(long[] s1, long[] s2) throws DissimilarityComputationException;
+
+    /**
+     * Returns the number of elements in the intersection of the given sets.
+     *
+     * @param s1 The bits of the first set.
+     * @param s2 The bits of the second set.
+     * @return The size of the intersection of s1 and s2.
+     */
+    public static int intersectionSize(long[] s1, long[] s2) {
+        int size = 0;
+        for (int i = 0; i < Math.min(s1.length, s2.length); i++) {
+            size += Long.bitCount(s1[i] & s2[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of elements in the union of the given sets.
+     *
+     * @param s1 The bits of the first set.
+     * @param s2 The bits of the second set.
+     * @return The size of the union of s1 and s2.
+     */
+    public static int unionSize(long[] s1, long[] s2) {
+        return size(s1) + size(s2) - intersectionSize(s1, s2);
+    }
+
+    /**
+     * Returns the number of elements that belong to exactly one of the given
+     * sets.
+     *
+     * @param s1 The bits of the first set.
+     * @param s2 The bits of the second set.
+     * @return The size of the symmetric difference of s1 and s2.
+     */
+    public static int symmetricDifferenceSize(long[] s1, long[] s2) {
+        return size(s1) + size(s2) - 2 * intersectionSize(s1, s2);
+    }
+
+    /**
+     * Returns the number of elements in the given set.
+     *
+     * @param s The bits of the set.
+     * @return The number of bits set in s.
+     */
+    public static int size(long[] s) {
+        int size = 0;
+        for (long word : s) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+}
@@ -46,6 +46,27 @@ public class CountingDissimilarityComputor<T extends Multiset> implements Dissim
         }
         return 1.0 - (countIdentical / ((s1.size() + s2.size()) / 2.0));
     }
+
+    /**
+     * Returns the dissimilarity between two multisets encoded as vectors of
+     * occurrences: element i occurs c1[i] times in the first multiset and
+     * c2[i] times in the second one.
+     *
+     * @param c1 The occurrences of the elements of the first multiset.
+     * @param c2 The occurrences of the elements of the second multiset.
+     * @return a Value between 0.0 (similar) and 1.0 (dissimilar).
+     */
+    public double dissimilarity(int[] c1, int[] c2) {
+        int countIdentical = 0;
+        int size = 0;
+        for (int i = 0; i < Math.max(c1.length, c2.length); i++) {
+            int count1 = i < c1.length ? c1[i] : 0;
+            int count2 = i < c2.length ? c2[i] : 0;
+            countIdentical = countIdentical + min(count1, count2);
+            size = size + count1 + count2;
+        }
+        return 1.0 - (countIdentical / (size / 2.0));
+    }
     
     
 
@@ -78,6 +78,56 @@ public class DissimilarTestCaseSelector extends AbstractTestCaseSelector {
 
     @Override
     public List<TestCase> select(int nbr) throws TestCaseSelectionException {
+        DissimilarityCache cache = prioritization.getDissimilarityCache();
+        if (cache == null) {
+            return selectWithTestSets(nbr);
+        }
+        RandomTestCaseSelector gen = getRandomTestCaseSelector();
+        DissimilarityMatrix matrix;
+        int[] order;
+        try {
+            LOG.debug("Generating initial population");
+            matrix = new DissimilarityMatrix(gen.select(nbr), cache);
+            order = prioritization.prioritize(matrix);
+            lastFitness = matrix.getFitness();
+            LOG.debug("Fitness of initial population {}", lastFitness);
+            long startTimeMS = System.currentTimeMillis();
+            lastNbrIterations = 0;
+            while (order.length > 0 && System.currentTimeMillis() - startTimeMS < runningTime) {
+                LOG.trace("Iteration {}", lastNbrIterations);
+                // Replace worst test case (lest dissimilar) by a random test case
+                int worst = order[order.length - 1];
+                TestCase tc = gen.select();
+                double[] distances = matrix.computeDistances(tc, worst);
+                if (matrix.getFitnessWith(worst, distances) >= matrix.getFitness()) {
+                    matrix.replace(worst, tc, distances);
+                    order = prioritization.prioritize(matrix);
+                }
+                lastNbrIterations++;
+                lastFitness = matrix.getFitness();
+                LOG.trace("New fitness = {}", lastFitness);
+            }
+        } catch (DissimilarityComputationException e) {
+            throw new TestCaseSelectionException(
+                    "Error while computing fitness function!", e);
+        } finally {
+            // Do not keep the test cases of the population reachable
+            cache.clear();
+        }
+        LOG.debug("Final fitness = {}", lastFitness);
+        List<TestCase> selected = Lists.newArrayList();
+        for (int i : order) {
+            selected.add(matrix.getTestCase(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Selection for prioritization techniques that do not rely on a
+     * dissimilarity matrix: the fitness of the whole test set is computed
+     * again at each iteration.
+     */
+    private List<TestCase> selectWithTestSets(int nbr) throws TestCaseSelectionException {
         DissimilarTestSet set;
         RandomTestCaseSelector gen = getRandomTestCaseSelector();
         try {
@@ -0,0 +1,145 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.exception.DissimilarityComputationException;
+import be.vibes.ts.TestCase;
+import static com.google.common.base.Preconditions.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoizes the dissimilarities computed by a test case dissimilarity
+ * computor. Pairs of test cases are identified by the identity of the test
+ * cases (the dissimilarity is assumed to be symmetric), dissimilarities are
+ * stored as floats. The cache is cleared when it reaches its maximal size.
+ * This class is thread-safe, test cases may be compared concurrently if the
+ * computor is thread-safe (see
+ * {@link TestCaseDissimilarityComputor#isThreadSafe()}).
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class DissimilarityCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000000;
+
+    private final TestCaseDissimilarityComputor comp;
+    private final int maxSize;
+    private final Map<Pair, Float> cache;
+
+    public DissimilarityCache(TestCaseDissimilarityComputor comp) {
+        this(comp, DEFAULT_MAX_SIZE);
+    }
+
+    public DissimilarityCache(TestCaseDissimilarityComputor comp, int maxSize) {
+        checkNotNull(comp, "Dissimilarity computor may not be null!");
+        checkArgument(maxSize >= 0, "Maximal size must be positive but was %s!", maxSize);
+        this.comp = comp;
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    public TestCaseDissimilarityComputor getDissimilarityComputor() {
+        return comp;
+    }
+
+    /**
+     * Returns the dissimilarity between the two given test cases, computed by
+     * the dissimilarity computor if not in the cache.
+     *
+     * @param tc1 The first test case.
+     * @param tc2 The second test case.
+     * @return The (positive) dissimilarity between the two test cases.
+     * @throws DissimilarityComputationException If the dissimilarity could
+     * not be computed.
+     */
+    public float dissimilarity(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+        Pair key = new Pair(tc1, tc2);
+        Float value = cache.get(key);
+        if (value == null) {
+            value = compute(tc1, tc2);
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the dissimilarity between the two given test cases, computed by
+     * the dissimilarity computor without using the cache (e.g., for test
+     * cases that are compared only once).
+     *
+     * @param tc1 The first test case.
+     * @param tc2 The second test case.
+     * @return The (positive) dissimilarity between the two test cases.
+     * @throws DissimilarityComputationException If the dissimilarity could
+     * not be computed.
+     */
+    public float compute(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+        double dissimilarity = comp.dissimilarity(tc1, tc2);
+        checkState(dissimilarity >= 0, "Dissimilarity computed using %s has to be >=0!", comp.getClass().getName());
+        return (float) dissimilarity;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Unordered pair of test cases compared by identity.
+     */
+    private static final class Pair {
+
+        private final TestCase tc1;
+        private final TestCase tc2;
+
+        Pair(TestCase tc1, TestCase tc2) {
+            this.tc1 = tc1;
+            this.tc2 = tc2;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(tc1) + System.identityHashCode(tc2);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Pair)) {
+                return false;
+            }
+            Pair other = (Pair) obj;
+            return (tc1 == other.tc1 && tc2 == other.tc2) || (tc1 == other.tc2 && tc2 == other.tc1);
+        }
+
+    }
+
+}
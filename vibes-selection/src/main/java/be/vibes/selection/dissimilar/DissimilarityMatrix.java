@@ -0,0 +1,299 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.exception.DissimilarityComputationException;
+import be.vibes.ts.TestCase;
+import static com.google.common.base.Preconditions.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Dissimilarities between all the pairs of test cases of a test set, with
+ * the fitness of the test set (i.e., the sum of the dissimilarities of all
+ * the pairs). Replacing a test case only requires to compute its
+ * dissimilarity with the other test cases of the set, the fitness of the new
+ * test set is updated incrementally.
+ * <p>
+ * Dissimilarities are stored as floats in a packed upper triangular array and
+ * obtained through a {@link DissimilarityCache}, so that matrices sharing
+ * the same cache do not compute the dissimilarity of a pair twice (the
+ * dissimilarities of candidate test cases are not cached, see
+ * {@link #computeDistances(TestCase, int)}). If the
+ * dissimilarity computor is thread-safe, dissimilarities are computed in
+ * parallel (one task per row).
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class DissimilarityMatrix {
+
+    private final DissimilarityCache cache;
+    private final List<TestCase> testCases;
+    // Dissimilarities of the pairs (i, j), with i < j, ordered by i then j
+    private final float[] distances;
+    private double fitness;
+
+    public DissimilarityMatrix(List<TestCase> testCases, TestCaseDissimilarityComputor comp) throws DissimilarityComputationException {
+        this(testCases, new DissimilarityCache(comp));
+    }
+
+    public DissimilarityMatrix(List<TestCase> testCases, DissimilarityCache cache) throws DissimilarityComputationException {
+        checkNotNull(testCases, "Test cases may not be null!");
+        checkNotNull(cache, "Dissimilarity cache may not be null!");
+        this.cache = cache;
+        this.testCases = new ArrayList<>(testCases);
+        int n = this.testCases.size();
+        checkArgument((long) n * (n - 1) / 2 <= Integer.MAX_VALUE, "Too many test cases (%s)!", n);
+        this.distances = new float[n * (n - 1) / 2];
+        double[] sums = new double[n];
+        forEach(n, (i) -> {
+            TestCase tci = this.testCases.get(i);
+            int offset = offset(i);
+            double sum = 0;
+            for (int j = i + 1; j < n; j++) {
+                float dissimilarity = cache.dissimilarity(tci, this.testCases.get(j));
+                distances[offset + j - i - 1] = dissimilarity;
+                sum = sum + dissimilarity;
+            }
+            sums[i] = sum;
+        });
+        this.fitness = 0;
+        for (double sum : sums) {
+            fitness = fitness + sum;
+        }
+    }
+
+    /**
+     * Returns the index of the pair (i, i + 1).
+     */
+    private int offset(int i) {
+        long n = testCases.size();
+        return (int) (i * (2 * n - i - 1) / 2);
+    }
+
+    /**
+     * Returns the index of the pair (i, j) (or (j, i) if j < i). Pairs are
+     * numbered row by row: (0, 1), (0, 2), ..., (0, n - 1), (1, 2), etc.
+     *
+     * @param i The index of the first test case.
+     * @param j The index of the second test case (different from i).
+     * @return The index of the pair.
+     */
+    int getPairIndex(int i, int j) {
+        return i < j ? offset(i) + j - i - 1 : offset(j) + i - j - 1;
+    }
+
+    /**
+     * Returns the index of the first (lowest) test case of the pair with the
+     * given index.
+     *
+     * @param pair The index of the pair.
+     * @return The lowest index of the test cases of the pair.
+     */
+    int getPairFirst(int pair) {
+        long n = testCases.size();
+        // Largest i such that offset(i) <= pair
+        int i = (int) Math.floor(((2 * n - 1) - Math.sqrt((2.0 * n - 1) * (2.0 * n - 1) - 8.0 * pair)) / 2);
+        i = Math.max(0, Math.min(i, (int) n - 2));
+        while (i > 0 && offset(i) > pair) {
+            i--;
+        }
+        while (i < n - 2 && offset(i + 1) <= pair) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the second (highest) test case of the pair with
+     * the given index.
+     *
+     * @param pair The index of the pair.
+     * @return The highest index of the test cases of the pair.
+     */
+    int getPairSecond(int pair) {
+        int i = getPairFirst(pair);
+        return pair - offset(i) + i + 1;
+    }
+
+    /**
+     * Returns the number of pairs of test cases, i.e., n * (n - 1) / 2.
+     *
+     * @return The number of pairs.
+     */
+    int getPairsCount() {
+        return distances.length;
+    }
+
+    /**
+     * Returns the dissimilarity of the pair with the given index.
+     *
+     * @param pair The index of the pair.
+     * @return The dissimilarity between the test cases of the pair.
+     */
+    float getPairDistance(int pair) {
+        return distances[pair];
+    }
+
+    @FunctionalInterface
+    private interface Task {
+
+        void run(int index) throws DissimilarityComputationException;
+
+    }
+
+    /**
+     * Runs the given task for indices 0 to n - 1, in parallel if the
+     * dissimilarity computor is thread-safe.
+     */
+    private void forEach(int n, Task task) throws DissimilarityComputationException {
+        if (!cache.getDissimilarityComputor().isThreadSafe()) {
+            for (int k = 0; k < n; k++) {
+                task.run(k);
+            }
+            return;
+        }
+        try {
+            IntStream.range(0, n).parallel().forEach((k) -> {
+                try {
+                    task.run(k);
+                } catch (DissimilarityComputationException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        } catch (CompletionException ex) {
+            throw (DissimilarityComputationException) ex.getCause();
+        }
+    }
+
+    public TestCaseDissimilarityComputor getDissimilarityComputor() {
+        return cache.getDissimilarityComputor();
+    }
+
+    public DissimilarityCache getDissimilarityCache() {
+        return cache;
+    }
+
+    public int size() {
+        return testCases.size();
+    }
+
+    public TestCase getTestCase(int index) {
+        return testCases.get(index);
+    }
+
+    /**
+     * Returns the (unmodifiable) list of test cases of this matrix.
+     *
+     * @return The test cases of this matrix.
+     */
+    public List<TestCase> getTestCases() {
+        return Collections.unmodifiableList(testCases);
+    }
+
+    /**
+     * Returns the dissimilarity between the i-th and j-th test cases, 0 if i
+     * == j.
+     *
+     * @param i The index of the first test case.
+     * @param j The index of the second test case.
+     * @return The dissimilarity between the two test cases.
+     */
+    public double getDistance(int i, int j) {
+        return i == j ? 0 : distances[getPairIndex(i, j)];
+    }
+
+    /**
+     * Returns the sum of the dissimilarities between all the pairs of test
+     * cases.
+     *
+     * @return The fitness of the test cases.
+     */
+    public double getFitness() {
+        return fitness;
+    }
+
+    /**
+     * Computes the dissimilarities between the given test case and the test
+     * cases of this matrix, except the one with the given index. The
+     * dissimilarities are not stored in the cache, which would otherwise keep
+     * the rejected test cases reachable.
+     *
+     * @param tc The test case.
+     * @param skip The index of the test case to skip (its distance is 0).
+     * @return The dissimilarities between the test case and the test cases of
+     * this matrix.
+     * @throws DissimilarityComputationException If a dissimilarity could not
+     * be computed.
+     */
+    public double[] computeDistances(TestCase tc, int skip) throws DissimilarityComputationException {
+        double[] row = new double[testCases.size()];
+        forEach(row.length, (j) -> {
+            if (j != skip) {
+                row[j] = cache.compute(tc, testCases.get(j));
+            }
+        });
+        return row;
+    }
+
+    /**
+     * Returns the fitness this matrix would have if the test case with the
+     * given index was replaced by a test case with the given dissimilarities.
+     *
+     * @param index The index of the replaced test case.
+     * @param row The dissimilarities of the new test case, as returned by
+     * {@link #computeDistances(TestCase, int)}.
+     * @return The fitness after replacement.
+     */
+    public double getFitnessWith(int index, double[] row) {
+        double delta = 0;
+        for (int j = 0; j < row.length; j++) {
+            if (j != index) {
+                delta = delta + row[j] - getDistance(index, j);
+            }
+        }
+        return fitness + delta;
+    }
+
+    /**
+     * Replaces the test case with the given index.
+     *
+     * @param index The index of the replaced test case.
+     * @param tc The new test case.
+     * @param row The dissimilarities of the new test case, as returned by
+     * {@link #computeDistances(TestCase, int)}.
+     */
+    public void replace(int index, TestCase tc, double[] row) {
+        checkArgument(row.length == testCases.size(), "Expected %s dissimilarities but got %s!", testCases.size(), row.length);
+        fitness = getFitnessWith(index, row);
+        testCases.set(index, tc);
+        for (int j = 0; j < row.length; j++) {
+            if (j != index) {
+                distances[getPairIndex(index, j)] = (float) row[j];
+            }
+        }
+    }
+
+}
@@ -36,7 +36,9 @@ import be.vibes.solver.exception.SolverInitializationException;
 import be.vibes.ts.FeaturedTransitionSystem;
 import be.vibes.ts.execution.FeaturedTransitionSystemExecutor;
 import be.vibes.ts.TestCase;
+import com.google.common.collect.MapMaker;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.BinaryOperator;
 
@@ -49,6 +51,9 @@ public class FtsTestCaseDissimilarityComputor extends TestCaseDissimilarityCompu
     private SolverFacade fm;
     private final BinaryOperator<Double> combineOperator;
     private FeaturedTransitionSystem fts;
+    private FeaturedTransitionSystemExecutor exec;
+    // Number of products able to execute each test case
+    private final Map<TestCase, Double> productsCounts;
 
     public FtsTestCaseDissimilarityComputor(SolverFacade solver, FeaturedTransitionSystem fts) {
         this(solver, new JaccardDissimilarityComputor(), fts);
@@ -63,6 +68,7 @@ public class FtsTestCaseDissimilarityComputor extends TestCaseDissimilarityCompu
         this.testCaseDissimilarity = computor;
         this.combineOperator = combineOperator;
         this.fts = fts;
+        this.productsCounts = new MapMaker().weakKeys().makeMap();
     }
 
     public FtsTestCaseDissimilarityComputor(SolverFacade solver, SetBasedDissimilarityComputor<? extends Set> computor, FeaturedTransitionSystem fts) {
@@ -75,12 +81,25 @@ public class FtsTestCaseDissimilarityComputor extends TestCaseDissimilarityCompu
 
     public void setFm(SolverFacade fm) {
         this.fm = fm;
+        this.exec = null;
+        this.productsCounts.clear();
     }
 
     public void setFts(FeaturedTransitionSystem fts) {
         this.fts = fts;
+        this.exec = null;
+        this.productsCounts.clear();
     }
     
+    /**
+     * Returns false, products dissimilarities are computed using a shared
+     * solver.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     @Override
     public double dissimilarity(TestCase o1, TestCase o2) throws DissimilarityComputationException {
         double dissimilarity = testCaseDissimilarity.dissimilarity(o1, o2);
@@ -95,35 +114,28 @@ public class FtsTestCaseDissimilarityComputor extends TestCaseDissimilarityCompu
         return dissimilarity;
     }
 
+    /**
+     * Returns 1 - |P1 & P2| / |P1 | P2|, where P1 and P2 are the sets of
+     * products able to execute o1 and o2. The number of products of each
+     * test case is computed once, the size of the union is obtained from
+     * |P1 | P2| = |P1| + |P2| - |P1 & P2|, so that only the intersection has
+     * to be counted for each pair.
+     */
     private double productsDissimilarity(TestCase o1, TestCase o2) throws DissimilarityComputationException {
         try {
-            FExpression intersect;
             FExpression o1Expr = getProductConstraint(o1);
             FExpression o2Expr = getProductConstraint(o2);
-            if (o1Expr == null || o1Expr.isTrue()) {
-                intersect = o2Expr == null ? FExpression.trueValue() : o2Expr;
-            } else if (o2Expr == null) {
-                intersect = o1Expr;
+            double o1Count = getNumberOfProducts(o1, o1Expr);
+            double o2Count = getNumberOfProducts(o2, o2Expr);
+            double intersectionCount;
+            if (o1Expr.isTrue() || o1Expr.equals(o2Expr)) {
+                intersectionCount = o2Count;
+            } else if (o2Expr.isTrue()) {
+                intersectionCount = o1Count;
             } else {
-                intersect = o1Expr.and(o2Expr).applySimplification();
+                intersectionCount = countSolutions(o1Expr.and(o2Expr).applySimplification());
             }
-
-            FExpression union;
-            if (o1Expr == null || o1Expr.isTrue()) {
-                union = o2Expr == null ? FExpression.trueValue() : o2Expr;
-            } else if (o2Expr == null) {
-                union = o1Expr;
-            } else {
-                union = o1Expr.or(o2Expr).applySimplification();
-            }
-
-            ConstraintIdentifier id = fm.addConstraint(intersect);
-            double intersectionCount = fm.getNumberOfSolutions();
-            fm.removeConstraint(id);
-
-            id = fm.addConstraint(union);
-            double unionCount = fm.getNumberOfSolutions();
-            fm.removeConstraint(id);
+            double unionCount = o1Count + o2Count - intersectionCount;
 
             checkState(unionCount >= intersectionCount, "Union (%s) has to be higher or equal to intersection (%s) !", unionCount, intersectionCount);
 
@@ -140,8 +152,43 @@ public class FtsTestCaseDissimilarityComputor extends TestCaseDissimilarityCompu
         }
     }
 
+    private double getNumberOfProducts(TestCase tc, FExpression productConstraint) throws SolverInitializationException,
+            SolverFatalErrorException, ConstraintNotFoundException, ConstraintSolvingException {
+        Double count = productsCounts.get(tc);
+        if (count == null) {
+            count = countSolutions(productConstraint);
+            productsCounts.put(tc, count);
+        }
+        return count;
+    }
+
+    private double countSolutions(FExpression constraint) throws SolverInitializationException,
+            SolverFatalErrorException, ConstraintNotFoundException, ConstraintSolvingException {
+        if (constraint.isTrue()) {
+            return fm.getNumberOfSolutions();
+        } else if (constraint.isFalse()) {
+            // Some solvers (e.g., Sat4J) refuse unsatisfiable constraints
+            return 0;
+        }
+        ConstraintIdentifier id;
+        try {
+            id = fm.addConstraint(constraint);
+        } catch (SolverInitializationException e) {
+            // The constraint conflicts with the feature model (the solver
+            // rolls it back)
+            LOG.trace("Constraint {} rejected by the solver, no product", constraint, e);
+            return 0;
+        }
+        double count = fm.getNumberOfSolutions();
+        fm.removeConstraint(id);
+        return count;
+    }
+
     private FExpression getProductConstraint(TestCase tc) {
-        FeaturedTransitionSystemExecutor exec = new FeaturedTransitionSystemExecutor(fts, fm);
-        return exec.getFexpression(tc);
+        // The executor caches the product constraints of the test cases
+        if (exec == null) {
+            exec = new FeaturedTransitionSystemExecutor(fts, fm);
+        }
+        return exec.getProductConstraint(tc);
     }
 }
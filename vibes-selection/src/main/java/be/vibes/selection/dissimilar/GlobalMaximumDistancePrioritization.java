@@ -30,90 +30,83 @@ import be.vibes.ts.TestCase;
 public class GlobalMaximumDistancePrioritization implements PrioritizationTechnique {
 
     private final TestCaseDissimilarityComputor comp;
+    private final DissimilarityCache cache;
     private double fitness;
 
     public GlobalMaximumDistancePrioritization(TestCaseDissimilarityComputor comp) {
         this.comp = comp;
+        this.cache = new DissimilarityCache(comp);
         this.fitness = 0;
     }
 
     @Override
     public List<TestCase> prioritize(List<TestCase> testCases) throws DissimilarityComputationException {
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases, cache);
         List<TestCase> prioritized = Lists.newArrayList();
-        List<TestCase> copy = Lists.newArrayList(testCases);
-        double[][] distances = new double[testCases.size()][testCases.size()];
-        fitness = 0;
-        // Initialise distance matrix
-        for (int i = 0; i < distances.length; i++) {
-            for (int j = 0; j < distances.length; j++) {
-                if (j > i) {
-                    double dissimilarity = comp.dissimilarity(copy.get(i), copy.get(j));
-                    distances[i][j] = dissimilarity;
-                    fitness = fitness + dissimilarity;
-                } else {
-                    distances[i][j] = -1;
-                }
-            }
+        for (int i : prioritize(matrix)) {
+            prioritized.add(testCases.get(i));
         }
-        // Take the couple with the maximal distance
-        List<Integer> possibleIndices = Lists.newArrayList();
-        List<Integer> doneIndices = Lists.newArrayList();
-        for (int i = 0; i < testCases.size(); i++) {
-            possibleIndices.add(i);
+        return prioritized;
+    }
+
+    @Override
+    public int[] prioritize(DissimilarityMatrix matrix) {
+        int size = matrix.size();
+        fitness = matrix.getFitness();
+        int[] prioritized = new int[size];
+        if (size < 2) {
+            return prioritized;
         }
+        // Take the couple with the maximal distance
         double maxDistance = -1;
-        int toAddIIndex = -1;
-        int toAddJIndex = -1;
-        for (int i = 0; i < distances.length; i++) {
-            for (int j = 0; j < distances.length; j++) {
-                if (j > i) {
-                    if (distances[i][j] > maxDistance) {
-                        maxDistance = distances[i][j];
-                        toAddIIndex = i;
-                        toAddJIndex = j;
-                    }
-                }
+        int maxPair = -1;
+        for (int p = 0; p < matrix.getPairsCount(); p++) {
+            if (matrix.getPairDistance(p) > maxDistance) {
+                maxDistance = matrix.getPairDistance(p);
+                maxPair = p;
             }
         }
-        TestCase pi = testCases.get(toAddIIndex);
-        TestCase pj = testCases.get(toAddJIndex);
-
-        prioritized.add(pi);
-        prioritized.add(pj);
-        copy.remove(pi);
-        copy.remove(pj);
-        possibleIndices.remove((Integer) toAddIIndex);
-        possibleIndices.remove((Integer) toAddJIndex);
-        doneIndices.add(toAddIIndex);
-        doneIndices.add(toAddJIndex);
-
-        while (!copy.isEmpty()) {
-            if (possibleIndices.size() > 1) {
-                double maxSim = -1;
-                int toAdd = -1;
-                for (Integer i : possibleIndices) {
-                    double dissimilarity = 0;
-                    for (Integer j : doneIndices) {
-                        dissimilarity += (j > i) ? distances[i][j] : distances[j][i];
-                    }
-                    if (dissimilarity > maxSim) {
-                        maxSim = dissimilarity;
-                        toAdd = i;
-                    }
+        int k = 0;
+        boolean[] done = new boolean[size];
+        // Sum of the distances between each test case and the prioritized ones
+        double[] sums = new double[size];
+        k = add(matrix, matrix.getPairFirst(maxPair), prioritized, k, done, sums);
+        k = add(matrix, matrix.getPairSecond(maxPair), prioritized, k, done, sums);
+        while (k < size) {
+            double maxSim = -1;
+            int toAdd = -1;
+            for (int i = 0; i < size; i++) {
+                if (!done[i] && sums[i] > maxSim) {
+                    maxSim = sums[i];
+                    toAdd = i;
                 }
-                TestCase p = testCases.get(toAdd);
-                prioritized.add(p);
-                copy.remove(p);
-                possibleIndices.remove((Integer) toAdd);
-                doneIndices.add(toAdd);
-            } else {
-                prioritized.add(testCases.get(possibleIndices.get(0)));
-                copy.clear();
             }
+            k = add(matrix, toAdd, prioritized, k, done, sums);
         }
         return prioritized;
     }
 
+    private static int add(DissimilarityMatrix matrix, int toAdd, int[] prioritized, int k, boolean[] done, double[] sums) {
+        prioritized[k] = toAdd;
+        done[toAdd] = true;
+        for (int i = 0; i < sums.length; i++) {
+            if (!done[i]) {
+                sums[i] += matrix.getDistance(i, toAdd);
+            }
+        }
+        return k + 1;
+    }
+
+    @Override
+    public TestCaseDissimilarityComputor getDissimilarityComputor() {
+        return comp;
+    }
+
+    @Override
+    public DissimilarityCache getDissimilarityCache() {
+        return cache;
+    }
+
     @Override
     public double getFitness() {
         return fitness;
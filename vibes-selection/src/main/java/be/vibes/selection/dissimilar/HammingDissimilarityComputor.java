@@ -28,7 +28,7 @@ import java.util.Set;
  * @author Xavier Devroey - xavier.devroey@unamur.be
  * @param <T>
  */
-public class HammingDissimilarityComputor<T extends Set> implements SetBasedDissimilarityComputor<T> {
+public class HammingDissimilarityComputor<T extends Set> implements SetBasedDissimilarityComputor<T>, BitSetDissimilarityComputor {
 
     private final T allElements;
 
@@ -59,6 +59,21 @@ public class HammingDissimilarityComputor<T extends Set> implements SetBasedDiss
         }
         return ((double) cptIdentical) / allPossibleElementsCount();
     }
+
+    /**
+     * Returns the Hamming dissimilarity between the sets encoded by s1 and
+     * s2. As for sets, all the elements of s1 and s2 must belong to the input
+     * domain of this computor.
+     */
+    @Override
+    public double dissimilarity(long[] s1, long[] s2) {
+        return 1 - getDistance(s1, s2);
+    }
+
+    public double getDistance(long[] s1, long[] s2) {
+        int cptIdentical = allPossibleElementsCount() - BitSetDissimilarityComputor.symmetricDifferenceSize(s1, s2);
+        return ((double) cptIdentical) / allPossibleElementsCount();
+    }
     
     public int allPossibleElementsCount(){
         return allElements.size();
@@ -0,0 +1,47 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.exception.DissimilarityComputationException;
+
+/**
+ * Dissimilarity computor working on sequences encoded as arrays of
+ * non-negative indexes: two elements of the sequences are equal if they have
+ * the same index.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ * @see TestCaseEncoder
+ */
+public interface IntSequenceDissimilarityComputor {
+
+    /**
+     * Returns a value between 0.0 (similar) and 1.0 (dissimilar) indicating
+     * the dissimilarity degree between the sequences s1 and s2.
+     *
+     * @param s1 The indexes of the elements of the first sequence to compare.
+     * @param s2 The indexes of the elements of the second sequence to compare.
+     * @return a Value between 0.0 (similar) and 1.0 (dissimilar).
+     * @throws DissimilarityComputationException
+     */
+    public double dissimilarity(int[] s1, int[] s2) throws DissimilarityComputationException;
+
+}
@@ -27,7 +27,7 @@ import com.google.common.collect.Sets;
 import static com.google.common.base.Preconditions.*;
 
 public class JaccardDissimilarityComputor<T extends Set> implements
-        SetBasedDissimilarityComputor<T> {
+        SetBasedDissimilarityComputor<T>, BitSetDissimilarityComputor {
     
     private double w;
     
@@ -54,4 +54,18 @@ public class JaccardDissimilarityComputor<T extends Set> implements
         return (intersect / (intersect + w * (union - intersect) ));
     }
 
+    @Override
+    public double dissimilarity(long[] s1, long[] s2) {
+        return 1 - getDistance(s1, s2);
+    }
+
+    public double getDistance(long[] s1, long[] s2) {
+        double intersect = (double) BitSetDissimilarityComputor.intersectionSize(s1, s2);
+        double union = (double) BitSetDissimilarityComputor.unionSize(s1, s2);
+        if (union == 0) {
+            return 1.0;
+        }
+        return (intersect / (intersect + w * (union - intersect) ));
+    }
+
 }
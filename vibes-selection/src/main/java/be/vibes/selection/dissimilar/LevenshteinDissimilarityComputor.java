@@ -20,24 +20,37 @@ package be.vibes.selection.dissimilar;
  * #L%
  */
 
+
 import be.vibes.selection.exception.DissimilarityComputationException;
+import java.util.HashMap;
 import java.util.List;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Map;
+import static com.google.common.base.Preconditions.*;
 import static java.lang.Integer.min;
 
 /**
- * 
+ * Levenshtein (edit) distance between two sequences, normalized by the length
+ * of the longest sequence. The distance is computed with the bit-parallel
+ * algorithm of Myers, in its multi-word version by Hyyrö: the shortest
+ * sequence is encoded in blocks of 64 bits and each element of the longest
+ * sequence is processed in O(m / 64) word operations. Elements of lists are
+ * mapped to indexes using their equals method.
+ * <p>
+ * When only distances up to a given bound matter, the
+ * {@link #getDistance(int[], int[], int)} method restricts the computation
+ * to a band around the diagonal and stops as soon as the bound is exceeded.
+ *
  * @author Xavier Devroey - xavier.devroey@unamur.be
  * @param <T>
  */
-public class LevenshteinDissimilarityComputor<T extends List> implements SequenceBasedDissimilarityComputor<T> {
-
-    private static final Logger logger = LoggerFactory.getLogger(LevenshteinDissimilarityComputor.class);
+public class LevenshteinDissimilarityComputor<T extends List> implements SequenceBasedDissimilarityComputor<T>,
+        IntSequenceDissimilarityComputor {
 
     private static final int INSERT_DELETE_COST = 1;
     private static final int REPLACE_COST = 1;
 
+    private static final long HIGH_BIT = 1L << (Long.SIZE - 1);
+
     public LevenshteinDissimilarityComputor() {
     }
 
@@ -56,40 +69,160 @@ public class LevenshteinDissimilarityComputor<T extends List> implements Sequenc
         return ((double) getDistance(l1, l2)) / maxDist;
     }
 
+    @Override
+    public double dissimilarity(int[] s1, int[] s2) {
+        if (s1 == s2) {
+            return 0.0;
+        } else if (s1.length == 0 && s2.length == 0) {
+            return 0.0;
+        } else if (s1.length == 0) {
+            return 1.0;
+        } else if (s2.length == 0) {
+            return 1.0;
+        }
+        double maxDist = Math.max(s1.length, s2.length);
+        return ((double) getDistance(s1, s2)) / maxDist;
+    }
+
     public int getDistance(T l1, T l2) {
         if (l1 == l2) {
             return 0;
-        } else if (l1.size() == 0 && l2.size() == 0) {
-            return 0;
-        } else if (l1.size() == 0) {
-            return l2.size() * INSERT_DELETE_COST;
-        } else if (l2.size() == 0) {
-            return l1.size() * INSERT_DELETE_COST;
         }
-        // Previous row for computation
-        int[] previous = new int[l2.size() + 1];
-        // new row for computation
-        int[] current = new int[l2.size() + 1];
+        Map<Object, Integer> indexes = new HashMap<>();
+        return getDistance(toIndexes(l1, indexes), toIndexes(l2, indexes));
+    }
 
-        // Initialise previous to insert cost
-        for (int j = 0; j < previous.length; j++) {
-            previous[j] = j * INSERT_DELETE_COST;
+    private static int[] toIndexes(List<?> list, Map<Object, Integer> indexes) {
+        int[] sequence = new int[list.size()];
+        int i = 0;
+        for (Object o : list) {
+            sequence[i++] = indexes.computeIfAbsent(o, (k) -> indexes.size());
         }
+        return sequence;
+    }
 
-        for (int i = 0; i < l1.size(); i++) {
-            logger.trace("Line in Levenshtein computation is {}", previous);
-            current[0] = (i + 1) * INSERT_DELETE_COST;
-            // Compute new line in the matrix
-            for (int j = 0; j < l2.size(); j++) {
-                int replace = l1.get(i).equals(l2.get(j)) ? 0 : 1;
-                current[j + 1] = min(current[j] + INSERT_DELETE_COST,
-                        min(previous[j + 1] + INSERT_DELETE_COST,
-                                previous[j] + (REPLACE_COST * replace)));
+    /**
+     * Returns the Levenshtein distance between the given sequences.
+     *
+     * @param s1 The indexes of the elements of the first sequence.
+     * @param s2 The indexes of the elements of the second sequence.
+     * @return The Levenshtein distance between s1 and s2.
+     */
+    public int getDistance(int[] s1, int[] s2) {
+        if (s1 == s2) {
+            return 0;
+        } else if (s1.length == 0) {
+            return s2.length * INSERT_DELETE_COST;
+        } else if (s2.length == 0) {
+            return s1.length * INSERT_DELETE_COST;
+        }
+        // The pattern (encoded as bits) is the shortest sequence
+        int[] pattern = s1.length <= s2.length ? s1 : s2;
+        int[] text = s1.length <= s2.length ? s2 : s1;
+        int m = pattern.length;
+        int blocks = (m + Long.SIZE - 1) / Long.SIZE;
+        // peq[c * blocks + b]: positions of element c in block b of the pattern
+        int alphabetSize = 0;
+        for (int c : pattern) {
+            checkArgument(c >= 0, "Indexes may not be negative!");
+            alphabetSize = Math.max(alphabetSize, c + 1);
+        }
+        long[] peq = new long[alphabetSize * blocks];
+        for (int i = 0; i < m; i++) {
+            peq[pattern[i] * blocks + i / Long.SIZE] |= 1L << i;
+        }
+        // Vertical positive and negative deltas, initially D[i][0] = i
+        long[] pv = new long[blocks];
+        long[] mv = new long[blocks];
+        for (int b = 0; b < blocks; b++) {
+            pv[b] = -1L;
+        }
+        long lastBit = 1L << (m - 1);
+        int score = m;
+        for (int c : text) {
+            checkArgument(c >= 0, "Indexes may not be negative!");
+            int eqOffset = c < alphabetSize ? c * blocks : -1;
+            // Horizontal delta entering the first block: D[0][j] = j
+            int hin = 1;
+            for (int b = 0; b < blocks; b++) {
+                long eq = eqOffset < 0 ? 0L : peq[eqOffset + b];
+                long hinIsNeg = hin < 0 ? 1L : 0L;
+                long xv = eq | mv[b];
+                eq |= hinIsNeg;
+                long xh = (((eq & pv[b]) + pv[b]) ^ pv[b]) | eq;
+                long ph = mv[b] | ~(xh | pv[b]);
+                long mh = pv[b] & xh;
+                if (b == blocks - 1) {
+                    if ((ph & lastBit) != 0) {
+                        score++;
+                    } else if ((mh & lastBit) != 0) {
+                        score--;
+                    }
+                }
+                int hout = (ph & HIGH_BIT) != 0 ? 1 : ((mh & HIGH_BIT) != 0 ? -1 : 0);
+                ph = (ph << 1) | (hin > 0 ? 1L : 0L);
+                mh = (mh << 1) | hinIsNeg;
+                pv[b] = mh | ~(xv | ph);
+                mv[b] = ph & xv;
+                hin = hout;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns the Levenshtein distance between the given sequences if it is
+     * lower or equal to maxDistance, or maxDistance + 1 otherwise. Only the
+     * cells at most maxDistance away from the diagonal are computed and the
+     * computation stops as soon as all the cells of a row exceed
+     * maxDistance.
+     *
+     * @param s1 The indexes of the elements of the first sequence.
+     * @param s2 The indexes of the elements of the second sequence.
+     * @param maxDistance The maximal distance of interest.
+     * @return The Levenshtein distance between s1 and s2, or maxDistance + 1
+     * if this distance is greater than maxDistance.
+     */
+    public int getDistance(int[] s1, int[] s2, int maxDistance) {
+        checkArgument(maxDistance >= 0, "Maximal distance may not be negative!");
+        int n = s1.length;
+        int m = s2.length;
+        if (Math.abs(n - m) * INSERT_DELETE_COST > maxDistance) {
+            return maxDistance + 1;
+        }
+        // Cells farther than band from the diagonal cost more than maxDistance
+        int band = maxDistance / INSERT_DELETE_COST;
+        int outside = maxDistance + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= band ? j * INSERT_DELETE_COST : outside;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - band);
+            int to = Math.min(m, i + band);
+            current[from - 1] = from == 1 && i <= band ? i * INSERT_DELETE_COST : outside;
+            int rowMin = current[from - 1];
+            int c = s1[i - 1];
+            for (int j = from; j <= to; j++) {
+                int replace = c == s2[j - 1] ? 0 : 1;
+                int d = min(current[j - 1] + INSERT_DELETE_COST,
+                        min(previous[j] + INSERT_DELETE_COST,
+                                previous[j - 1] + (REPLACE_COST * replace)));
+                current[j] = min(d, outside);
+                rowMin = min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
             }
-            System.arraycopy(current, 0, previous, 0, previous.length);
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
         }
-        logger.trace("Line in Levenshtein computation is {}", previous);
-        return current[l2.size()];
+        return min(previous[m], outside);
     }
 
 }
@@ -31,67 +31,104 @@ import static com.google.common.base.Preconditions.*;
 public class LocalMaximumDistancePrioritization implements PrioritizationTechnique {
 
     private final TestCaseDissimilarityComputor comp;
+    private final DissimilarityCache cache;
     private double fitness;
 
     public LocalMaximumDistancePrioritization(TestCaseDissimilarityComputor comp) {
         this.comp = comp;
+        this.cache = new DissimilarityCache(comp);
         this.fitness = 0;
     }
 
     @Override
     public List<TestCase> prioritize(List<TestCase> testCases) throws DissimilarityComputationException {
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases, cache);
         List<TestCase> prioritized = Lists.newArrayList();
-        List<TestCase> copy = Lists.newArrayList(testCases);
-        double[][] distances = new double[copy.size()][copy.size()];
-        // Initialize distances
-        for (int i = 0; i < distances.length; i++) {
-            for (int j = 0; j < distances.length; j++) {
-                if (j > i) {
-                    double dissimilarity = comp.dissimilarity(testCases.get(i), testCases.get(j));
-                    checkState(dissimilarity >= 0, "Dissimilarity computed using %s has to be >=0!", comp.getClass().getName());
-                    distances[i][j] = dissimilarity;
-                    fitness = fitness + dissimilarity;
-                } else {
-                    distances[i][j] = -1;
-                }
-            }
+        for (int i : prioritize(matrix)) {
+            prioritized.add(testCases.get(i));
+        }
+        return prioritized;
+    }
+
+    @Override
+    public int[] prioritize(DissimilarityMatrix matrix) {
+        int size = matrix.size();
+        fitness = matrix.getFitness();
+        int[] prioritized = new int[size];
+        boolean[] done = new boolean[size];
+        // Max-heap of the pairs of test cases. Pairs are invalidated lazily:
+        // a pair with a test case already prioritized is dropped when it
+        // reaches the top of the heap.
+        int heapSize = matrix.getPairsCount();
+        int[] heap = new int[heapSize];
+        for (int p = 0; p < heapSize; p++) {
+            heap[p] = p;
+        }
+        for (int p = heapSize / 2 - 1; p >= 0; p--) {
+            siftDown(matrix, heap, heapSize, p);
         }
         // Prioritize testCases
-        while (!copy.isEmpty()) {
-            if (copy.size() != 1) {
-                double dmax = -1;
-                int toAddIIndex = -1;
-                int toAddJIndex = -1;
-                for (int i = 0; i < distances.length; i++) {
-                    for (int j = 0; j < distances.length; j++) {
-                        if (j > i) {
-                            if (distances[i][j] > dmax) {
-                                dmax = distances[i][j];
-                                toAddIIndex = i;
-                                toAddJIndex = j;
-                            }
-                        }
-                    }
-                }
-                checkState(toAddIIndex >= 0);
-                checkState(toAddJIndex >= 0);
-                TestCase tci = testCases.get(toAddIIndex);
-                TestCase tcj = testCases.get(toAddJIndex);
-                prioritized.add(tci);
-                prioritized.add(tcj);
-                copy.remove(tci);
-                copy.remove(tcj);
-                for (int i = 0; i < distances.length; i++) {
-                    distances[toAddIIndex][i] = distances[i][toAddIIndex] = distances[i][toAddJIndex] = distances[toAddJIndex][i] = -1;
-                }
-            } else {
-                prioritized.add(copy.get(0));
-                copy.clear();
+        int k = 0;
+        while (size - k > 1) {
+            checkState(heapSize > 0);
+            int pair = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(matrix, heap, heapSize, 0);
+            int i = matrix.getPairFirst(pair);
+            int j = matrix.getPairSecond(pair);
+            if (!done[i] && !done[j]) {
+                prioritized[k++] = i;
+                prioritized[k++] = j;
+                done[i] = done[j] = true;
+            }
+        }
+        if (k < size) {
+            int last = 0;
+            while (done[last]) {
+                last++;
             }
+            prioritized[k] = last;
         }
         return prioritized;
     }
 
+    /**
+     * Returns true if pair p1 has to be prioritized before pair p2: pairs are
+     * ordered by decreasing dissimilarity, then by increasing indexes.
+     */
+    private static boolean before(DissimilarityMatrix matrix, int p1, int p2) {
+        float d1 = matrix.getPairDistance(p1);
+        float d2 = matrix.getPairDistance(p2);
+        return d1 > d2 || (d1 == d2 && p1 < p2);
+    }
+
+    private static void siftDown(DissimilarityMatrix matrix, int[] heap, int heapSize, int index) {
+        int pair = heap[index];
+        int child = 2 * index + 1;
+        while (child < heapSize) {
+            if (child + 1 < heapSize && before(matrix, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(matrix, heap[child], pair)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+            child = 2 * index + 1;
+        }
+        heap[index] = pair;
+    }
+
+    @Override
+    public TestCaseDissimilarityComputor getDissimilarityComputor() {
+        return comp;
+    }
+
+    @Override
+    public DissimilarityCache getDissimilarityCache() {
+        return cache;
+    }
+
     @Override
     public double getFitness() {
         return fitness;
@@ -42,4 +42,53 @@ public interface PrioritizationTechnique {
      */
     public double getFitness();
 
+    /**
+     * Returns the dissimilarity computor used by this technique, or null if
+     * it does not rely on pairwise dissimilarities between test cases.
+     *
+     * @return The dissimilarity computor used by this technique, or null.
+     */
+    public default TestCaseDissimilarityComputor getDissimilarityComputor() {
+        return null;
+    }
+
+    /**
+     * Returns the cache used by this technique to compute dissimilarities,
+     * or null if it does not rely on pairwise dissimilarities between test
+     * cases. The default implementation returns a new cache for the
+     * dissimilarity computor of this technique.
+     *
+     * @return The dissimilarity cache used by this technique, or null.
+     */
+    public default DissimilarityCache getDissimilarityCache() {
+        TestCaseDissimilarityComputor comp = getDissimilarityComputor();
+        return comp == null ? null : new DissimilarityCache(comp);
+    }
+
+    /**
+     * Returns the indices of the test cases of the given matrix in
+     * prioritized order, without computing dissimilarities again. The
+     * fitness value is the fitness of the matrix. The default implementation
+     * prioritizes the list of test cases of the matrix.
+     *
+     * @param matrix The dissimilarities between the test cases to
+     * prioritize.
+     * @return The indices of the test cases in prioritized order.
+     * @throws DissimilarityComputationException
+     */
+    public default int[] prioritize(DissimilarityMatrix matrix) throws DissimilarityComputationException {
+        List<TestCase> prioritized = prioritize(matrix.getTestCases());
+        int[] order = new int[prioritized.size()];
+        boolean[] used = new boolean[matrix.size()];
+        for (int k = 0; k < order.length; k++) {
+            int i = 0;
+            while (used[i] || prioritized.get(k) != matrix.getTestCase(i)) {
+                i++;
+            }
+            used[i] = true;
+            order[k] = i;
+        }
+        return order;
+    }
+
 }
@@ -35,30 +35,82 @@ public class TestCaseDissimilarityComputor implements DissimilarityComputor<Test
 
     private DissimilarityComputor computor;
     private Function<TestCase, ? extends Collection> converter;
+    private BitSetDissimilarityComputor bitSetComputor;
+    private CountingDissimilarityComputor countingComputor;
+    private IntSequenceDissimilarityComputor sequenceComputor;
+    private TestCaseEncoder encoder;
+    private final boolean threadSafe;
     
-    protected TestCaseDissimilarityComputor(){}
+    protected TestCaseDissimilarityComputor(){
+        this.threadSafe = false;
+    }
+
+    private TestCaseDissimilarityComputor(BitSetDissimilarityComputor computor) {
+        this.bitSetComputor = computor;
+        this.encoder = new TestCaseEncoder();
+        this.threadSafe = true;
+    }
+
+    private TestCaseDissimilarityComputor(CountingDissimilarityComputor computor) {
+        this.countingComputor = computor;
+        this.encoder = new TestCaseEncoder();
+        this.threadSafe = true;
+    }
+
+    private TestCaseDissimilarityComputor(IntSequenceDissimilarityComputor computor) {
+        this.sequenceComputor = computor;
+        this.encoder = new TestCaseEncoder();
+        this.threadSafe = true;
+    }
     
     private TestCaseDissimilarityComputor(SetBasedDissimilarityComputor computor, Function<TestCase, ? extends Collection> converter) {
         this.computor = computor;
         this.converter = converter;
+        this.threadSafe = true;
     }
         
     private TestCaseDissimilarityComputor(SequenceBasedDissimilarityComputor computor, Function<TestCase, ? extends Collection> converter) {
         this.computor = computor;
         this.converter = converter;
+        this.threadSafe = true;
     }
 
     @Override
     public double dissimilarity(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+        if (bitSetComputor != null) {
+            return bitSetComputor.dissimilarity(encoder.getActionSet(tc1), encoder.getActionSet(tc2));
+        } else if (countingComputor != null) {
+            return countingComputor.dissimilarity(encoder.getActionCounts(tc1), encoder.getActionCounts(tc2));
+        } else if (sequenceComputor != null) {
+            return sequenceComputor.dissimilarity(encoder.getActionSequence(tc1), encoder.getActionSequence(tc2));
+        }
         return this.computor.dissimilarity(converter.apply(tc1), converter.apply(tc2));
     }
+
+    /**
+     * Returns true if dissimilarities may be computed concurrently by this
+     * computor. Only the computors returned by the
+     * toTestCaseDissimilarityComputor methods (using stateless set, sequence
+     * and counting dissimilarity computors) are thread-safe, subclasses have
+     * to override this method to allow concurrent computations.
+     *
+     * @return True if this computor is thread-safe.
+     */
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
     
     /**
      * Returns a new dissimilarity computor that will compute a set based dissimilarity between the actions of two test cases.
+     * If the given computor is a {@link BitSetDissimilarityComputor}, the sets of actions are encoded once per test case
+     * as bit vectors.
      * @param computor The dissimilarity computor to use with the sets of actions of two test cases.
      * @return A TestCaseDissimilarityComputor that will use the given dissimilarity computor to compute dissimilarity between two test cases.
      */
     public static TestCaseDissimilarityComputor toTestCaseDissimilarityComputor(SetBasedDissimilarityComputor computor){
+        if (computor instanceof BitSetDissimilarityComputor bitSetComputor) {
+            return new TestCaseDissimilarityComputor(bitSetComputor);
+        }
         return new TestCaseDissimilarityComputor(computor, (TestCase testcase) -> {
             Set<Action> set = new HashSet<>();
             testcase.iterator().forEachRemaining((Transition tr) -> {set.add(tr.getAction());});
@@ -68,10 +120,15 @@ public class TestCaseDissimilarityComputor implements DissimilarityComputor<Test
     
     /**
      * Returns a new dissimilarity computor that will compute a sequence based dissimilarity between the sequence of actions of two test cases.
+     * If the given computor is an {@link IntSequenceDissimilarityComputor}, the sequences of actions are encoded once per
+     * test case as sequences of action indexes.
      * @param computor The dissimilarity computor to use with the sequences of actions of two test cases.
      * @return A TestCaseDissimilarityComputor that will use the given dissimilarity computor to compute dissimilarity between two test cases.
      */
     public static TestCaseDissimilarityComputor toTestCaseDissimilarityComputor(SequenceBasedDissimilarityComputor computor){
+        if (computor instanceof IntSequenceDissimilarityComputor sequenceComputor) {
+            return new TestCaseDissimilarityComputor(sequenceComputor);
+        }
         return new TestCaseDissimilarityComputor(computor, (TestCase testcase) -> {
             List<Action> set = new ArrayList<>();
             testcase.iterator().forEachRemaining((Transition tr) -> {set.add(tr.getAction());});
@@ -79,4 +136,14 @@ public class TestCaseDissimilarityComputor implements DissimilarityComputor<Test
         });
     }
 
+    /**
+     * Returns a new dissimilarity computor that will compute a counting dissimilarity between the multisets of actions of
+     * two test cases. The occurrences of the actions are counted once per test case.
+     * @param computor The dissimilarity computor to use with the multisets of actions of two test cases.
+     * @return A TestCaseDissimilarityComputor that will use the given dissimilarity computor to compute dissimilarity between two test cases.
+     */
+    public static TestCaseDissimilarityComputor toTestCaseDissimilarityComputor(CountingDissimilarityComputor computor){
+        return new TestCaseDissimilarityComputor(computor);
+    }
+
 }
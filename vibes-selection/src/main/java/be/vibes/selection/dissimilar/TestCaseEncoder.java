@@ -0,0 +1,150 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.ts.Action;
+import be.vibes.ts.TestCase;
+import be.vibes.ts.Transition;
+import static com.google.common.base.Preconditions.*;
+import com.google.common.collect.MapMaker;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Encodes the actions of test cases as bit vectors (see
+ * {@link BitSetDissimilarityComputor}), as vectors of occurrences and as
+ * sequences of indexes (see {@link IntSequenceDissimilarityComputor}), using
+ * an index assigned to each action the first time it is encountered.
+ * Encodings are computed once per test case and kept as long as the test
+ * case is reachable, test cases are identified by their identity and should
+ * not be modified once encoded. This class is thread-safe.
+ *
+ * @author Xavier Devroey - xavier.devroey@unamur.be
+ */
+public class TestCaseEncoder {
+
+    private final Map<Action, Integer> indexes;
+    private final ConcurrentMap<TestCase, long[]> actionSets;
+    private final ConcurrentMap<TestCase, int[]> actionCounts;
+    private final ConcurrentMap<TestCase, int[]> actionSequences;
+
+    public TestCaseEncoder() {
+        this.indexes = new ConcurrentHashMap<>();
+        this.actionSets = new MapMaker().weakKeys().makeMap();
+        this.actionCounts = new MapMaker().weakKeys().makeMap();
+        this.actionSequences = new MapMaker().weakKeys().makeMap();
+    }
+
+    /**
+     * Returns the index of the given action, assigning a new index to the
+     * action if it has not been encountered yet.
+     *
+     * @param action The action.
+     * @return The index of the action.
+     */
+    public int getIndex(Action action) {
+        checkNotNull(action, "Action may not be null!");
+        Integer index = indexes.get(action);
+        if (index == null) {
+            synchronized (indexes) {
+                index = indexes.computeIfAbsent(action, (a) -> indexes.size());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of actions encountered so far.
+     *
+     * @return The number of actions with an index.
+     */
+    public int getActionsCount() {
+        return indexes.size();
+    }
+
+    /**
+     * Returns the set of actions of the given test case, encoded as a bit
+     * vector.
+     *
+     * @param testCase The test case to encode.
+     * @return The bits of the indexes of the actions of the test case.
+     */
+    public long[] getActionSet(TestCase testCase) {
+        checkNotNull(testCase, "Test case may not be null!");
+        return actionSets.computeIfAbsent(testCase, (tc) -> {
+            long[] set = new long[0];
+            for (Transition tr : tc) {
+                int index = getIndex(tr.getAction());
+                if (index / Long.SIZE >= set.length) {
+                    set = Arrays.copyOf(set, index / Long.SIZE + 1);
+                }
+                set[index / Long.SIZE] |= 1L << index;
+            }
+            return set;
+        });
+    }
+
+    /**
+     * Returns the number of occurrences of each action in the given test
+     * case.
+     *
+     * @param testCase The test case to encode.
+     * @return The number of occurrences of each action of the test case,
+     * indexed by action index.
+     */
+    public int[] getActionCounts(TestCase testCase) {
+        checkNotNull(testCase, "Test case may not be null!");
+        return actionCounts.computeIfAbsent(testCase, (tc) -> {
+            int[] counts = new int[0];
+            for (Transition tr : tc) {
+                int index = getIndex(tr.getAction());
+                if (index >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(index + 1, 2 * counts.length));
+                }
+                counts[index]++;
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Returns the sequence of the indexes of the actions of the given test
+     * case.
+     *
+     * @param testCase The test case to encode.
+     * @return The indexes of the actions of the test case, in order.
+     */
+    public int[] getActionSequence(TestCase testCase) {
+        checkNotNull(testCase, "Test case may not be null!");
+        return actionSequences.computeIfAbsent(testCase, (tc) -> {
+            int[] sequence = new int[tc.getSize()];
+            int i = 0;
+            for (Transition tr : tc) {
+                sequence[i++] = getIndex(tr.getAction());
+            }
+            return sequence;
+        });
+    }
+
+}
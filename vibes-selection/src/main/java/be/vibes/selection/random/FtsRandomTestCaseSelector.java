@@ -35,6 +35,7 @@ import be.vibes.ts.Transition;
 import com.google.common.collect.Lists;
 import java.util.Iterator;
 import java.util.List;
+import java.util.random.RandomGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,11 +64,34 @@ public class FtsRandomTestCaseSelector extends RandomTestCaseSelector {
         this(fts, fm, DEFAULT_MAX_NUMBER_TRY, maxLength);
     }
 
+    /**
+     * Guided selection is not supported, as it does not take the feature
+     * expressions of the transitions into account.
+     *
+     * @throws UnsupportedOperationException If guided is true.
+     */
     @Override
-    protected Transition getRandomTransition(TestCase tc) throws SinkStateReachedException {
+    public void setGuided(boolean guided) {
+        if (guided) {
+            throw new UnsupportedOperationException("Guided selection is not supported for featured transition systems!");
+        }
+        super.setGuided(guided);
+    }
+
+    /**
+     * Returns false, the solver and the executor are shared by all the
+     * selections.
+     */
+    @Override
+    protected boolean isParallelSelectionSupported() {
+        return false;
+    }
+
+    @Override
+    protected Transition getRandomTransition(TestCase tc, RandomGenerator random) throws SinkStateReachedException {
         FeaturedTransitionSystem fts = getTransitionSystem();
         State state = tc == null ? fts.getInitialState() : tc.getLast().getTarget();
-        FExpression prods = tc == null ? FExpression.trueValue() : exec.getFexpression(tc);
+        FExpression prods = exec.getProductConstraint(tc);
         List<Transition> outgoings = Lists.newArrayList();
         Iterator<Transition> it = fts.getOutgoing(state);
         ConstraintIdentifier idProds = null;
@@ -97,7 +121,7 @@ public class FtsRandomTestCaseSelector extends RandomTestCaseSelector {
         if (outgoings.isEmpty()) {
             throw new SinkStateReachedException("Sink state " + state + " reached, could not select next transition!", state);
         } else {
-            return outgoings.get(this.random.nextInt(outgoings.size()));
+            return outgoings.get(random.nextInt(outgoings.size()));
         }
     }
 
@@ -112,7 +112,7 @@ public class LocalRandomTestCaseSelector extends RandomTestCaseSelector {
             deque.addLast(tr);
             state = tr.getTarget();
         }
-        TestCase testcase = new TestCase("localrandom" + (this.id++));
+        TestCase testcase = new TestCase("localrandom" + nextId());
         try {
             for (Transition tr : deque) {
                 testcase.enqueue(tr);
@@ -23,20 +23,36 @@ package be.vibes.selection.random;
 import be.vibes.selection.AbstractTestCaseSelector;
 import be.vibes.selection.exception.SinkStateReachedException;
 import be.vibes.selection.exception.TestCaseSelectionException;
+import be.vibes.ts.CompactTransitionSystem;
+import be.vibes.ts.DistanceToInitialStateAnnotator;
 import be.vibes.ts.State;
 import be.vibes.ts.TestCase;
 import be.vibes.ts.Transition;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.exception.TransitionSystenExecutionException;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Random test case selection using random walk in the transition system.
+ * Random test case selection using random walk in the transition system. In
+ * parallel mode (see {@link #setParallel(boolean)}), the test cases of
+ * {@link #select(int)} are selected concurrently, each one using its own
+ * {@link SplittableRandom} split from a seed drawn from the random generator
+ * of the selector, so that the selected test cases only depend on the random
+ * seed. In guided mode (see {@link #setGuided(boolean)}), the random walk
+ * only takes transitions allowing to go back to the initial state within the
+ * maximal length.
  *
  * @author Xavier Devroey - xavier.devroey@unamur.be
  */
@@ -51,7 +67,12 @@ public class RandomTestCaseSelector extends AbstractTestCaseSelector {
     private int maxLength;
     protected final Random random;
 
-    protected int id = 0;
+    // Number of the next test case, shared by the parallel selections (see
+    // nextId())
+    protected final AtomicInteger id = new AtomicInteger();
+
+    private boolean parallel = false;
+    private boolean guided = false;
 
     public RandomTestCaseSelector(TransitionSystem transitionSystem, int maxNbrTry, int maxLength) {
         super(transitionSystem);
@@ -88,12 +109,74 @@ public class RandomTestCaseSelector extends AbstractTestCaseSelector {
         this.random.setSeed(randomSeed);
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Enables or disables the parallel selection of test cases in
+     * {@link #select(int)}. Parallel selection is ignored by selectors that do
+     * not support it (see {@link #isParallelSelectionSupported()}).
+     *
+     * @param parallel True to select test cases in parallel.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isGuided() {
+        return guided;
+    }
+
+    /**
+     * Enables or disables the guided selection of test cases. In guided
+     * mode, states are annotated once using the
+     * {@link DistanceToInitialStateAnnotator} and the random walk only takes
+     * transitions from which the initial state can be reached within the
+     * remaining length. Attempts only fail if the initial state cannot be
+     * reached at all within the maximal length.
+     *
+     * @param guided True to select test cases in guided mode.
+     */
+    public void setGuided(boolean guided) {
+        if (guided) {
+            DistanceToInitialStateAnnotator dto = DistanceToInitialStateAnnotator.getInstance();
+            if (!dto.isAnnotated(getTransitionSystem())) {
+                dto.annotate(getTransitionSystem());
+            }
+        }
+        this.guided = guided;
+    }
+
+    /**
+     * Returns true if {@link #getRandomTransition(TestCase, RandomGenerator)}
+     * may be called concurrently.
+     *
+     * @return True if this selector supports parallel selection.
+     */
+    protected boolean isParallelSelectionSupported() {
+        return true;
+    }
+
+    /**
+     * Returns a new unique test case number (thread-safe).
+     *
+     * @return A new test case number.
+     */
+    protected int nextId() {
+        return id.getAndIncrement();
+    }
+
     public TestCase select() throws TestCaseSelectionException {
+        return select("random" + nextId(), random);
+    }
+
+    private TestCase select(String tcId, RandomGenerator random) throws TestCaseSelectionException {
         int tries = 0;
         TestCase tc = null;
         while (tc == null && tries < getMaxNbrAttempts()) {
             try {
-                tc = trySelect();
+                tc = trySelect(tcId, random);
             } catch (SinkStateReachedException ex) {
                 LOG.debug("Sink state {} reached during selection, will try in next attempt!", ex.getSinkState());
             }
@@ -106,17 +189,17 @@ public class RandomTestCaseSelector extends AbstractTestCaseSelector {
         }
     }
 
-    private TestCase trySelect() throws SinkStateReachedException {
+    private TestCase trySelect(String tcId, RandomGenerator random) throws SinkStateReachedException {
         TransitionSystem ts = getTransitionSystem();
-        TestCase tc = new TestCase("random" + (this.id++));
-        Transition tr = getRandomTransition(null);
+        TestCase tc = new TestCase(tcId);
+        Transition tr = nextTransition(null, 0, random);
         State last;
         try {
             tc.enqueue(tr);
             last = tc.getLast().getTarget();
             int length = 1;
             while (!last.equals(ts.getInitialState()) && length < getMaxLength()) {
-                tr = getRandomTransition(tc);
+                tr = nextTransition(tc, length, random);
                 tc.enqueue(tr);
                 last = tc.getLast().getTarget();
                 length++;
@@ -135,19 +218,122 @@ public class RandomTestCaseSelector extends AbstractTestCaseSelector {
         }
     }
 
+    private Transition nextTransition(TestCase tc, int length, RandomGenerator random) throws SinkStateReachedException {
+        if (isGuided()) {
+            return getGuidedRandomTransition(tc, getMaxLength() - length, random);
+        } else if (random == this.random) {
+            // Sequential selection
+            return getRandomTransition(tc);
+        }
+        return getRandomTransition(tc, random);
+    }
+
+    /**
+     * Returns a random transition going out of the last state of the given
+     * test case (or the initial state if the test case is null), using the
+     * random generator of this selector. Called during sequential selection
+     * only, parallel selection calls
+     * {@link #getRandomTransition(TestCase, RandomGenerator)} directly:
+     * subclasses overriding this method only should not support parallel
+     * selection (see {@link #isParallelSelectionSupported()}).
+     *
+     * @param tc The test case, or null.
+     * @return A random outgoing transition.
+     * @throws SinkStateReachedException If the state has no outgoing
+     * transition.
+     */
     protected Transition getRandomTransition(TestCase tc) throws SinkStateReachedException {
+        return getRandomTransition(tc, random);
+    }
+
+    /**
+     * Returns a random transition going out of the last state of the given
+     * test case (or the initial state if the test case is null) from which
+     * the initial state may still be reached within the given number of
+     * steps (including the returned transition), according to the
+     * {@link DistanceToInitialStateAnnotator} annotations.
+     *
+     * @param tc The test case, or null.
+     * @param remaining The remaining number of steps.
+     * @param random The random generator to use.
+     * @return A random outgoing transition.
+     * @throws SinkStateReachedException If no outgoing transition allows to
+     * reach the initial state in time.
+     */
+    protected Transition getGuidedRandomTransition(TestCase tc, int remaining, RandomGenerator random) throws SinkStateReachedException {
         TransitionSystem ts = getTransitionSystem();
         State state = tc == null ? ts.getInitialState() : tc.getLast().getTarget();
-        List<Transition> outgoings = Lists.newArrayList(ts.getOutgoing(state));
-        if (outgoings.isEmpty()) {
+        int count = 0;
+        Iterator<Transition> it = ts.getOutgoing(state);
+        while (it.hasNext()) {
+            if (canReachInitialState(it.next(), remaining)) {
+                count++;
+            }
+        }
+        if (count <= 0) {
+            throw new SinkStateReachedException("Initial state cannot be reached from " + state + " within " + remaining + " steps, could not select next transition!", state);
+        }
+        int selected = random.nextInt(count);
+        it = ts.getOutgoing(state);
+        while (true) {
+            Transition tr = it.next();
+            if (canReachInitialState(tr, remaining) && selected-- == 0) {
+                return tr;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the initial state may be reached within the given
+     * number of steps by taking the given transition.
+     *
+     * @param tr The transition.
+     * @param remaining The remaining number of steps.
+     * @return True if the distance from the target of the transition to the
+     * initial state is lower than remaining.
+     */
+    protected static boolean canReachInitialState(Transition tr, int remaining) {
+        return tr.getTarget().getProperty(DistanceToInitialStateAnnotator.PROP_STATE_DTO, Integer.MAX_VALUE) < remaining;
+    }
+
+    /**
+     * Returns a random transition going out of the last state of the given
+     * test case (or the initial state if the test case is null), using the
+     * given random generator.
+     *
+     * @param tc The test case, or null.
+     * @param random The random generator to use.
+     * @return A random outgoing transition.
+     * @throws SinkStateReachedException If the state has no outgoing
+     * transition.
+     */
+    protected Transition getRandomTransition(TestCase tc, RandomGenerator random) throws SinkStateReachedException {
+        TransitionSystem ts = getTransitionSystem();
+        State state = tc == null ? ts.getInitialState() : tc.getLast().getTarget();
+        int count = ts.getOutgoingCount(state);
+        if (count <= 0) {
             throw new SinkStateReachedException("Sink state " + state + " reached, could not select next transition!", state);
         } else {
-            return outgoings.get(this.random.nextInt(outgoings.size()));
+            return getOutgoing(ts, state, random.nextInt(count));
         }
     }
 
+    /**
+     * Returns the index-th outgoing transition of the given state, without
+     * copying the outgoing transitions.
+     */
+    protected static Transition getOutgoing(TransitionSystem ts, State state, int index) {
+        if (ts instanceof CompactTransitionSystem compact) {
+            return compact.getOutgoing(state, index);
+        }
+        return Iterators.get(ts.getOutgoing(state), index);
+    }
+
     @Override
     public List<TestCase> select(int nbr) throws TestCaseSelectionException {
+        if (isParallel() && isParallelSelectionSupported() && nbr > 1) {
+            return selectParallel(nbr);
+        }
         List<TestCase> lst = new ArrayList<>();
         for(int i = 0 ; i < nbr ; i++){
             lst.add(select());
@@ -155,4 +341,26 @@ public class RandomTestCaseSelector extends AbstractTestCaseSelector {
         return lst;
     }
 
+    private List<TestCase> selectParallel(int nbr) throws TestCaseSelectionException {
+        SplittableRandom seed = new SplittableRandom(random.nextLong());
+        SplittableRandom[] randoms = new SplittableRandom[nbr];
+        for (int i = 0; i < nbr; i++) {
+            randoms[i] = seed.split();
+        }
+        int first = id.getAndAdd(nbr);
+        TestCase[] testcases = new TestCase[nbr];
+        try {
+            IntStream.range(0, nbr).parallel().forEach((i) -> {
+                try {
+                    testcases[i] = select("random" + (first + i), randoms[i]);
+                } catch (TestCaseSelectionException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        } catch (CompletionException ex) {
+            throw (TestCaseSelectionException) ex.getCause();
+        }
+        return Lists.newArrayList(testcases);
+    }
+
 }
@@ -25,10 +25,9 @@ import be.vibes.ts.State;
 import be.vibes.ts.TestCase;
 import be.vibes.ts.Transition;
 import be.vibes.ts.UsageModel;
-import com.google.common.collect.Lists;
 
 import java.util.Iterator;
-import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * A selector to select random test cases from the given usage model, based on the weights of the different
@@ -55,37 +54,62 @@ public class UsageDrivenRandomSelector extends RandomTestCaseSelector {
         return (UsageModel) super.getTransitionSystem();
     }
 
+    /**
+     * Returns a random outgoing transition selected according to the
+     * probabilities of the usage model, using
+     * {@link UsageModel#getRandomOutgoing(State, RandomGenerator)}.
+     */
     @Override
-    protected Transition getRandomTransition(TestCase tc) throws SinkStateReachedException {
+    protected Transition getRandomTransition(TestCase tc, RandomGenerator random) throws SinkStateReachedException {
         UsageModel um = getTransitionSystem();
         State state = tc == null ? um.getInitialState() : tc.getLast().getTarget();
-        List<Transition> outgoings = Lists.newArrayList(um.getOutgoing(state));
-        if (outgoings.isEmpty()) {
+        Transition tr = um.getRandomOutgoing(state, random);
+        if (tr == null) {
             throw new SinkStateReachedException("Sink state " + state + " reached, could not select next transition!", state);
         } else {
-            return getUsageBasedTransition(outgoings);
+            return tr;
         }
     }
 
-    private Transition getUsageBasedTransition(List<Transition> outgoings) {
+    /**
+     * Returns a random outgoing transition selected according to the
+     * probabilities of the usage model, among the transitions allowing to
+     * reach the initial state within the remaining number of steps. If all
+     * those transitions have a probability of 0, they are selected with the
+     * same probability.
+     */
+    @Override
+    protected Transition getGuidedRandomTransition(TestCase tc, int remaining, RandomGenerator random) throws SinkStateReachedException {
         UsageModel um = getTransitionSystem();
-        // Get Maximum proba for remaining transitions
-        double maxProba = 0;
-        for (Transition tr : outgoings) {
-            maxProba += um.getProbability(tr);
+        State state = tc == null ? um.getInitialState() : tc.getLast().getTarget();
+        double total = 0;
+        int count = 0;
+        Iterator<Transition> it = um.getOutgoing(state);
+        while (it.hasNext()) {
+            Transition tr = it.next();
+            if (canReachInitialState(tr, remaining)) {
+                total += um.getProbability(tr);
+                count++;
+            }
+        }
+        if (count <= 0) {
+            throw new SinkStateReachedException("Initial state cannot be reached from " + state + " within " + remaining + " steps, could not select next transition!", state);
+        }
+        if (total <= 0) {
+            return super.getGuidedRandomTransition(tc, remaining, random);
         }
-        // Get the element with the proba'
-        double randomNbr = random.nextDouble() * maxProba;
-        int elemIdx = -1;
-        maxProba = 0;
-        Iterator<Transition> it = outgoings.iterator();
-        while (it.hasNext() && randomNbr >= maxProba) {
+        double randomNbr = random.nextDouble() * total;
+        Transition selected = null;
+        it = um.getOutgoing(state);
+        while (it.hasNext() && randomNbr >= 0) {
             Transition tr = it.next();
-            maxProba = maxProba + um.getProbability(tr);
-            elemIdx++;
+            double proba = um.getProbability(tr);
+            if (proba > 0 && canReachInitialState(tr, remaining)) {
+                selected = tr;
+                randomNbr -= proba;
+            }
         }
-        // Return the designated element 
-        return outgoings.get(elemIdx);
+        return selected;
     }
 
 }
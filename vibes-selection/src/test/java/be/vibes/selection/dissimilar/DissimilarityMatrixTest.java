@@ -0,0 +1,192 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.exception.DissimilarityComputationException;
+import be.vibes.selection.random.RandomTestCaseSelector;
+import be.vibes.ts.TestCase;
+import be.vibes.ts.TransitionSystem;
+import be.vibes.ts.io.xml.XmlLoaders;
+import com.google.common.collect.Lists;
+import java.io.InputStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DissimilarityMatrixTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DissimilarityMatrixTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private final TestCaseDissimilarityComputor comp = new TestCaseDissimilarityComputor() {
+        @Override
+        public double dissimilarity(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+            return Math.abs(tc1.getSize() - tc2.getSize()) + (tc1.toString().equals(tc2.toString()) ? 0.0 : 0.5);
+        }
+    };
+
+    private List<TestCase> randomTestCases(int nbr) throws Exception {
+        InputStream input = this.getClass().getClassLoader()
+                .getResourceAsStream("ts-sodaVendingMachine.xml");
+        TransitionSystem ts = XmlLoaders.loadTransitionSystem(input);
+        RandomTestCaseSelector selector = new RandomTestCaseSelector(ts, 100, 30);
+        selector.setRandomSeed(42);
+        return selector.select(nbr);
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        List<TestCase> testCases = randomTestCases(30);
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases.subList(0, 20), comp);
+        for (int k = 20; k < 30; k++) {
+            int index = (k * 7) % 20;
+            double[] row = matrix.computeDistances(testCases.get(k), index);
+            double fitness = matrix.getFitnessWith(index, row);
+            matrix.replace(index, testCases.get(k), row);
+            DissimilarityMatrix expected = new DissimilarityMatrix(matrix.getTestCases(), comp);
+            assertEquals(expected.getFitness(), fitness, 1e-9);
+            assertEquals(expected.getFitness(), matrix.getFitness(), 1e-9);
+            for (int i = 0; i < matrix.size(); i++) {
+                for (int j = 0; j < matrix.size(); j++) {
+                    assertEquals(expected.getDistance(i, j), matrix.getDistance(i, j), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPrioritize() throws Exception {
+        List<TestCase> testCases = randomTestCases(20);
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases, comp);
+        for (PrioritizationTechnique prior : Lists.newArrayList(
+                new GlobalMaximumDistancePrioritization(comp),
+                new LocalMaximumDistancePrioritization(comp))) {
+            List<TestCase> prioritized = prior.prioritize(testCases);
+            assertEquals(matrix.getFitness(), prior.getFitness(), 1e-9);
+            int[] order = prior.prioritize(matrix);
+            assertEquals(testCases.size(), order.length);
+            for (int k = 0; k < order.length; k++) {
+                assertSame(prioritized.get(k), testCases.get(order[k]));
+            }
+        }
+    }
+
+    @Test
+    public void testLocalMaximumDistanceSharedPartner() throws Exception {
+        // Dissimilarity |i - j|: the most dissimilar partner of most test
+        // cases is the first or the last one
+        int size = 1000;
+        Map<TestCase, Integer> indexes = new IdentityHashMap<>();
+        List<TestCase> testCases = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            TestCase tc = new TestCase("tc" + i);
+            indexes.put(tc, i);
+            testCases.add(tc);
+        }
+        TestCaseDissimilarityComputor distance = new TestCaseDissimilarityComputor() {
+            @Override
+            public double dissimilarity(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+                return Math.abs(indexes.get(tc1) - indexes.get(tc2));
+            }
+        };
+        LocalMaximumDistancePrioritization prior = new LocalMaximumDistancePrioritization(distance);
+        int[] order = prior.prioritize(new DissimilarityMatrix(testCases, distance));
+        assertEquals(size, order.length);
+        for (int k = 0; k < size / 2; k++) {
+            assertEquals(k, order[2 * k]);
+            assertEquals(size - 1 - k, order[2 * k + 1]);
+        }
+    }
+
+    @Test
+    public void testPairIndex() throws Exception {
+        List<TestCase> testCases = randomTestCases(13);
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases, comp);
+        assertEquals(13 * 12 / 2, matrix.getPairsCount());
+        int pair = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            for (int j = i + 1; j < testCases.size(); j++) {
+                assertEquals(pair, matrix.getPairIndex(i, j));
+                assertEquals(pair, matrix.getPairIndex(j, i));
+                assertEquals(i, matrix.getPairFirst(pair));
+                assertEquals(j, matrix.getPairSecond(pair));
+                assertEquals(matrix.getDistance(i, j), matrix.getPairDistance(pair), 0.0);
+                pair++;
+            }
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        TestCaseDissimilarityComputor counting = new TestCaseDissimilarityComputor() {
+            @Override
+            public double dissimilarity(TestCase tc1, TestCase tc2) throws DissimilarityComputationException {
+                calls.incrementAndGet();
+                return comp.dissimilarity(tc1, tc2);
+            }
+        };
+        List<TestCase> testCases = randomTestCases(20);
+        DissimilarityCache cache = new DissimilarityCache(counting);
+        DissimilarityMatrix matrix = new DissimilarityMatrix(testCases, cache);
+        assertEquals(20 * 19 / 2, calls.get());
+        assertEquals(20 * 19 / 2, cache.size());
+        DissimilarityMatrix other = new DissimilarityMatrix(Lists.reverse(testCases), cache);
+        assertEquals(20 * 19 / 2, calls.get());
+        assertEquals(matrix.getFitness(), other.getFitness(), 1e-6);
+        assertEquals(matrix.getDistance(0, 19), other.getDistance(19, 0), 0.0);
+        assertEquals(matrix.getDistance(3, 5), matrix.getDistance(5, 3), 0.0);
+        assertEquals(0.0, matrix.getDistance(4, 4), 0.0);
+        // Dissimilarities of candidate test cases are not cached
+        TestCase candidate = randomTestCases(21).get(20);
+        matrix.computeDistances(candidate, 0);
+        assertEquals(20 * 19 / 2 + 19, calls.get());
+        assertEquals(20 * 19 / 2, cache.size());
+    }
+
+    @Test
+    public void testThreadSafe() throws Exception {
+        assertFalse(comp.isThreadSafe());
+        assertTrue(TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(new JaccardDissimilarityComputor()).isThreadSafe());
+        assertTrue(TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(new LevenshteinDissimilarityComputor()).isThreadSafe());
+    }
+
+}
@@ -21,8 +21,13 @@ package be.vibes.selection.dissimilar;
  */
 
 import be.vibes.fexpression.DimacsModel;
+import be.vibes.fexpression.ParserUtil;
 import be.vibes.solver.BDDSolverFacade;
+import be.vibes.solver.DDNNFSolverFacade;
+import be.vibes.solver.Sat4JSolverFacade;
+import be.vibes.solver.SolverFacade;
 import be.vibes.ts.FeaturedTransitionSystem;
+import be.vibes.ts.FeaturedTransitionSystemFactory;
 import be.vibes.ts.TestCase;
 import be.vibes.ts.io.xml.XmlLoaders;
 import static org.junit.Assert.*;
@@ -85,4 +90,101 @@ public class FtsDissimilarTestCaseSelectorTest {
         List<TestCase> tests = gen.select(20);
         assertThat(tests, hasSize(20));
     }
+
+    @Test
+    public void testProductsDissimilaritySat4J() throws Exception {
+        testProductsDissimilarity((model) -> new Sat4JSolverFacade(model));
+    }
+
+    @Test
+    public void testProductsDissimilarityBDD() throws Exception {
+        testProductsDissimilarity((model) -> new BDDSolverFacade(model));
+    }
+
+    @Test
+    public void testProductsDissimilarityDDNNF() throws Exception {
+        testProductsDissimilarity((model) -> new DDNNFSolverFacade(model));
+    }
+
+    private interface SolverFactory {
+
+        SolverFacade create(DimacsModel model) throws Exception;
+
+    }
+
+    private void testProductsDissimilarity(SolverFactory factory) throws Exception {
+        File dimacsModel = new File(FtsDissimilarTestCaseSelectorTest.class.getClassLoader().getResource("svm.splot.dimacs").toURI());
+        InputStream input = this.getClass().getClassLoader().getResourceAsStream("fts-sodaVendingMachine.xml");
+        FeaturedTransitionSystem fts = XmlLoaders.loadFeaturedTransitionSystem(input);
+        SolverFacade solver = factory.create(DimacsModel.createFromDimacsFile(dimacsModel));
+        // Products dissimilarity only
+        FtsTestCaseDissimilarityComputor products = new FtsTestCaseDissimilarityComputor(solver,
+                TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(new JaccardDissimilarityComputor()),
+                (Double x, Double y) -> y, fts);
+        // !FreeDrinks && Soda: 8 products
+        TestCase soda = testCase(fts, "soda", "state1", "pay", "state2", "change", "state3", "soda", "state5",
+                "serveSoda", "state7", "open", "state8", "take", "state9", "close", "state1");
+        // !FreeDrinks && Tea: 8 products
+        TestCase tea = testCase(fts, "tea", "state1", "pay", "state2", "change", "state3", "tea", "state6",
+                "serveTea", "state7", "open", "state8", "take", "state9", "close", "state1");
+        // FreeDrinks && Tea: 8 products
+        TestCase freeTea = testCase(fts, "freeTea", "state1", "free", "state3", "tea", "state6",
+                "serveTea", "state7", "take", "state1");
+        // FreeDrinks && CancelPurchase: 6 products
+        TestCase freeCancel = testCase(fts, "freeCancel", "state1", "free", "state3", "cancel", "state4",
+                "return", "state1");
+        assertEquals(0.0, products.dissimilarity(soda, soda), 1e-9);
+        // No common product
+        assertEquals(1.0, products.dissimilarity(soda, freeTea), 1e-9);
+        assertEquals(1.0, products.dissimilarity(freeCancel, tea), 1e-9);
+        assertEquals(1.0, products.dissimilarity(tea, freeTea), 1e-9);
+        // 4 common products out of 8 + 8 - 4
+        assertEquals(2.0 / 3.0, products.dissimilarity(soda, tea), 1e-9);
+        assertEquals(2.0 / 3.0, products.dissimilarity(tea, soda), 1e-9);
+        // 4 common products out of 8 + 6 - 4
+        assertEquals(0.6, products.dissimilarity(freeTea, freeCancel), 1e-9);
+        // Conflicts coming from the feature model (Euro and Dollar are
+        // exclusive, Beverages is mandatory)
+        FeaturedTransitionSystemFactory ftsFactory = new FeaturedTransitionSystemFactory("s0");
+        ftsFactory.addTransition("s0", "euro", ParserUtil.getInstance().parse("Euro"), "s1");
+        ftsFactory.addTransition("s0", "dollar", ParserUtil.getInstance().parse("Dollar"), "s2");
+        ftsFactory.addTransition("s0", "nothing", ParserUtil.getInstance().parse("!Beverages"), "s3");
+        FeaturedTransitionSystem currencies = ftsFactory.build();
+        FtsTestCaseDissimilarityComputor currencyProducts = new FtsTestCaseDissimilarityComputor(solver,
+                TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(new JaccardDissimilarityComputor()),
+                (Double x, Double y) -> y, currencies);
+        TestCase euro = testCase(currencies, "euro", "s0", "euro", "s1");
+        TestCase dollar = testCase(currencies, "dollar", "s0", "dollar", "s2");
+        TestCase nothing = testCase(currencies, "nothing", "s0", "nothing", "s3");
+        assertEquals(1.0, currencyProducts.dissimilarity(euro, dollar), 1e-9);
+        // Rejected by some solvers (e.g., Sat4J) when added
+        assertEquals(1.0, currencyProducts.dissimilarity(euro, nothing), 1e-9);
+        assertEquals(1.0, currencyProducts.dissimilarity(nothing, dollar), 1e-9);
+        // Counting products does not change the solutions of the feature model
+        assertEquals(24.0, solver.getNumberOfSolutions(), 0);
+        // Selected test cases
+        FtsTestCaseDissimilarityComputor comp = new FtsTestCaseDissimilarityComputor(solver, fts);
+        GlobalMaximumDistancePrioritization prior = new GlobalMaximumDistancePrioritization(comp);
+        FtsDissimilarTestCaseSelector gen = new FtsDissimilarTestCaseSelector(fts, solver, prior);
+        gen.setRunningTime(100);
+        List<TestCase> tests = gen.select(10);
+        for (TestCase tc1 : tests) {
+            assertThat(products.dissimilarity(tc1, tc1), equalTo(0.0));
+            for (TestCase tc2 : tests) {
+                double dissimilarity = products.dissimilarity(tc1, tc2);
+                assertThat(dissimilarity, greaterThanOrEqualTo(0.0));
+                assertThat(dissimilarity, lessThanOrEqualTo(1.0));
+                assertEquals(dissimilarity, products.dissimilarity(tc2, tc1), 1e-9);
+            }
+        }
+        assertEquals(24.0, solver.getNumberOfSolutions(), 0);
+    }
+
+    private static TestCase testCase(FeaturedTransitionSystem fts, String id, String... path) throws Exception {
+        TestCase tc = new TestCase(id);
+        for (int i = 0; i + 2 < path.length; i += 2) {
+            tc.enqueue(fts.getTransitions(path[i], path[i + 1], path[i + 2]).next());
+        }
+        return tc;
+    }
 }
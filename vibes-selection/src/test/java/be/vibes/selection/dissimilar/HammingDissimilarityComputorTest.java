@@ -112,4 +112,16 @@ public class HammingDissimilarityComputorTest {
         assertThat(dist.getDistance(toSet(str1), toSet(str2)), equalTo(expected));
     }
 
+    @Test
+    public void testGetDistanceBits() throws Exception{
+        Set<Character> allElements = Sets.newHashSet('a', 'b', 'c', 'd', 'e', 'f');
+        HammingDissimilarityComputor<Set<Character>> dist = new HammingDissimilarityComputor(allElements);
+        String[] strs = {"", "abc", "abe", "def", "abcdef"};
+        for (String str1 : strs) {
+            for (String str2 : strs) {
+                assertThat(dist.getDistance(toBits(str1), toBits(str2)), equalTo(dist.getDistance(toSet(str1), toSet(str2))));
+            }
+        }
+    }
+
 }
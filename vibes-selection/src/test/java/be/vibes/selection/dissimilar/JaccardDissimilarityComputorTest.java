@@ -109,5 +109,17 @@ public class JaccardDissimilarityComputorTest {
         assertThat(dist.getDistance(toSet(str1), toSet(str2)), equalTo(expected));
     }
 
+    @Test
+    public void testGetDistanceBits() {
+        String[] strs = {"", "abc", "abe", "abcde", "def", "abcdef"};
+        for (JaccardDissimilarityComputor<Set<Character>> dist : new JaccardDissimilarityComputor[]{
+            new JaccardDissimilarityComputor(), new DiceDissimilarityComputor(), new AntiDiceDissimilarityComputor()}) {
+            for (String str1 : strs) {
+                for (String str2 : strs) {
+                    assertThat(dist.getDistance(toBits(str1), toBits(str2)), equalTo(dist.getDistance(toSet(str1), toSet(str2))));
+                }
+            }
+        }
+    }
 
 }
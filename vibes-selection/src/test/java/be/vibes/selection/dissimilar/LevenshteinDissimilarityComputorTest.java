@@ -21,6 +21,7 @@ package be.vibes.selection.dissimilar;
  */
 
 import java.util.List;
+import java.util.Random;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
@@ -123,4 +124,55 @@ public class LevenshteinDissimilarityComputorTest {
         assertThat(levenshtein.getDistance(toList(str1), toList(str2)), equalTo(expected));
     }
 
+    private static int[] randomSequence(Random random, int length, int alphabetSize) {
+        int[] sequence = new int[length];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = random.nextInt(alphabetSize);
+        }
+        return sequence;
+    }
+
+    private static int dynamicProgrammingDistance(int[] s1, int[] s2) {
+        int[] previous = new int[s2.length + 1];
+        int[] current = new int[s2.length + 1];
+        for (int j = 0; j <= s2.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 0; i < s1.length; i++) {
+            current[0] = i + 1;
+            for (int j = 0; j < s2.length; j++) {
+                current[j + 1] = Math.min(current[j] + 1, Math.min(previous[j + 1] + 1,
+                        previous[j] + (s1[i] == s2[j] ? 0 : 1)));
+            }
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        return previous[s2.length];
+    }
+
+    @Test
+    public void testGetLevenshteinDistanceLongSequences() {
+        LevenshteinDissimilarityComputor<List<Character>> levenshtein = new LevenshteinDissimilarityComputor();
+        Random random = new Random(42);
+        for (int k = 0; k < 200; k++) {
+            int[] s1 = randomSequence(random, random.nextInt(200), 1 + random.nextInt(10));
+            int[] s2 = randomSequence(random, random.nextInt(200), 1 + random.nextInt(10));
+            assertThat(levenshtein.getDistance(s1, s2), equalTo(dynamicProgrammingDistance(s1, s2)));
+        }
+    }
+
+    @Test
+    public void testGetLevenshteinDistanceBounded() {
+        LevenshteinDissimilarityComputor<List<Character>> levenshtein = new LevenshteinDissimilarityComputor();
+        Random random = new Random(42);
+        for (int k = 0; k < 200; k++) {
+            int[] s1 = randomSequence(random, random.nextInt(100), 1 + random.nextInt(10));
+            int[] s2 = randomSequence(random, random.nextInt(100), 1 + random.nextInt(10));
+            int expected = dynamicProgrammingDistance(s1, s2);
+            int maxDistance = random.nextInt(100);
+            assertThat(levenshtein.getDistance(s1, s2, maxDistance), equalTo(Math.min(expected, maxDistance + 1)));
+        }
+    }
+
 }
@@ -0,0 +1,141 @@
+package be.vibes.selection.dissimilar;
+
+/*-
+ * #%L
+ * VIBeS: test case selection
+ * %%
+ * Copyright (C) 2014 - 2018 University of Namur
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import be.vibes.selection.random.RandomTestCaseSelector;
+import be.vibes.ts.Action;
+import be.vibes.ts.TestCase;
+import be.vibes.ts.Transition;
+import be.vibes.ts.TransitionSystem;
+import be.vibes.ts.io.xml.XmlLoaders;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestCaseEncoderTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TestCaseEncoderTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info(String.format("Starting test: %s()...",
+                    description.getMethodName()));
+        }
+    ;
+
+    };
+
+    private TransitionSystem loadTransitionSystem() throws Exception {
+        InputStream input = this.getClass().getClassLoader()
+                .getResourceAsStream("ts-sodaVendingMachine.xml");
+        return XmlLoaders.loadTransitionSystem(input);
+    }
+
+    private List<TestCase> randomTestCases(TransitionSystem ts, int nbr) throws Exception {
+        RandomTestCaseSelector selector = new RandomTestCaseSelector(ts, 100, 30);
+        selector.setRandomSeed(42);
+        return selector.select(nbr);
+    }
+
+    private static Set<Action> actions(TestCase tc) {
+        Set<Action> set = Sets.newHashSet();
+        for (Transition tr : tc) {
+            set.add(tr.getAction());
+        }
+        return set;
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        TestCaseEncoder encoder = new TestCaseEncoder();
+        for (TestCase tc : randomTestCases(loadTransitionSystem(), 20)) {
+            long[] set = encoder.getActionSet(tc);
+            assertSame(set, encoder.getActionSet(tc));
+            int[] counts = encoder.getActionCounts(tc);
+            Multiset<Action> multiset = HashMultiset.create();
+            for (Transition tr : tc) {
+                int index = encoder.getIndex(tr.getAction());
+                assertTrue((set[index / Long.SIZE] & (1L << index)) != 0);
+                multiset.add(tr.getAction());
+            }
+            assertEquals(actions(tc).size(), BitSetDissimilarityComputor.size(set));
+            for (Action action : multiset.elementSet()) {
+                assertEquals(multiset.count(action), counts[encoder.getIndex(action)]);
+            }
+        }
+    }
+
+    @Test
+    public void testEncodedDissimilarity() throws Exception {
+        TransitionSystem ts = loadTransitionSystem();
+        List<TestCase> testCases = randomTestCases(ts, 20);
+        Set<Action> allActions = Sets.newHashSet(ts.actions());
+        List<SetBasedDissimilarityComputor> computors = List.of(new JaccardDissimilarityComputor(),
+                new DiceDissimilarityComputor(), new AntiDiceDissimilarityComputor(),
+                new HammingDissimilarityComputor(allActions));
+        for (SetBasedDissimilarityComputor computor : computors) {
+            TestCaseDissimilarityComputor comp = TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(computor);
+            for (TestCase tc1 : testCases) {
+                for (TestCase tc2 : testCases) {
+                    assertEquals(computor.dissimilarity(actions(tc1), actions(tc2)), comp.dissimilarity(tc1, tc2), 1e-12);
+                }
+            }
+        }
+        LevenshteinDissimilarityComputor levenshtein = new LevenshteinDissimilarityComputor();
+        TestCaseDissimilarityComputor sequenceComp = TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(levenshtein);
+        for (TestCase tc1 : testCases) {
+            for (TestCase tc2 : testCases) {
+                List<Action> l1 = Lists.newArrayList();
+                tc1.forEach((tr) -> l1.add(tr.getAction()));
+                List<Action> l2 = Lists.newArrayList();
+                tc2.forEach((tr) -> l2.add(tr.getAction()));
+                assertEquals(levenshtein.dissimilarity(l1, l2), sequenceComp.dissimilarity(tc1, tc2), 1e-12);
+            }
+        }
+        CountingDissimilarityComputor counting = new CountingDissimilarityComputor();
+        TestCaseDissimilarityComputor comp = TestCaseDissimilarityComputor.toTestCaseDissimilarityComputor(counting);
+        for (TestCase tc1 : testCases) {
+            for (TestCase tc2 : testCases) {
+                Multiset<Action> m1 = HashMultiset.create();
+                tc1.forEach((tr) -> m1.add(tr.getAction()));
+                Multiset<Action> m2 = HashMultiset.create();
+                tc2.forEach((tr) -> m2.add(tr.getAction()));
+                assertEquals(counting.dissimilarity(m1, m2), comp.dissimilarity(tc1, tc2), 1e-12);
+            }
+        }
+    }
+
+}
@@ -42,4 +42,12 @@ class TestUtils {
         }
         return lst;
     }
+
+    public static long[] toBits(String str) {
+        long[] bits = new long[1];
+        for (char c : str.toCharArray()) {
+            bits[0] |= 1L << (c - 'a');
+        }
+        return bits;
+    }
 }
@@ -21,11 +21,15 @@ package be.vibes.selection.random;
  * #L%
  */
 
+import be.vibes.selection.exception.SinkStateReachedException;
 import be.vibes.ts.TestCase;
+import be.vibes.ts.Transition;
 import be.vibes.ts.TransitionSystem;
 import be.vibes.ts.io.xml.XmlLoaders;
 import java.io.InputStream;
+import com.google.common.collect.Lists;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
@@ -71,5 +75,72 @@ public class RandomTestCaseSelectorTest {
         }
     }
 
+    @Test
+    public void testSelectParallel() throws Exception {
+        InputStream input = this.getClass().getClassLoader()
+                .getResourceAsStream("ts-sodaVendingMachine.xml");
+        TransitionSystem ts = XmlLoaders.loadTransitionSystem(input);
+        List<List<TestCase>> selections = Lists.newArrayList();
+        for (TransitionSystem system : Lists.newArrayList(ts, ts)) {
+            RandomTestCaseSelector selector = new RandomTestCaseSelector(system, 34, 42);
+            selector.setRandomSeed(42);
+            selector.setParallel(true);
+            assertTrue(selector.isParallel());
+            List<TestCase> testcases = selector.select(100);
+            assertThat(testcases, hasSize(100));
+            for (TestCase tc : testcases) {
+                assertThat(tc.getFirst().getSource(), equalTo(system.getInitialState()));
+                assertThat(tc.getLast().getTarget(), equalTo(system.getInitialState()));
+            }
+            selections.add(testcases);
+        }
+        // Same seed gives the same test cases
+        for (List<TestCase> testcases : selections.subList(1, selections.size())) {
+            for (int i = 0; i < testcases.size(); i++) {
+                assertEquals(selections.get(0).get(i).getId(), testcases.get(i).getId());
+                assertEquals(selections.get(0).get(i).toString(), testcases.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testSelectSequentialHook() throws Exception {
+        InputStream input = this.getClass().getClassLoader()
+                .getResourceAsStream("ts-sodaVendingMachine.xml");
+        TransitionSystem ts = XmlLoaders.loadTransitionSystem(input);
+        AtomicInteger calls = new AtomicInteger();
+        RandomTestCaseSelector selector = new RandomTestCaseSelector(ts, 34, 42) {
+            @Override
+            protected Transition getRandomTransition(TestCase tc) throws SinkStateReachedException {
+                calls.incrementAndGet();
+                return super.getRandomTransition(tc);
+            }
+        };
+        List<TestCase> testcases = selector.select(10);
+        int size = 0;
+        for (TestCase tc : testcases) {
+            size = size + tc.getSize();
+        }
+        // Overriding the hook is not bypassed by sequential selection
+        assertThat(calls.get(), greaterThanOrEqualTo(size));
+    }
+
+    @Test
+    public void testSelectGuided() throws Exception {
+        InputStream input = this.getClass().getClassLoader()
+                .getResourceAsStream("ts-sodaVendingMachine.xml");
+        TransitionSystem ts = XmlLoaders.loadTransitionSystem(input);
+        // Only one attempt: every walk must go back to the initial state
+        RandomTestCaseSelector selector = new RandomTestCaseSelector(ts, 1, 8);
+        selector.setGuided(true);
+        assertTrue(selector.isGuided());
+        List<TestCase> testcases = selector.select(100);
+        assertThat(testcases, hasSize(100));
+        for (TestCase tc : testcases) {
+            assertThat(tc.getFirst().getSource(), equalTo(ts.getInitialState()));
+            assertThat(tc.getLast().getTarget(), equalTo(ts.getInitialState()));
+            assertThat(tc.getSize(), lessThanOrEqualTo(8));
+        }
+    }
 
 }